@@ -12,11 +12,14 @@ import scraper.api.node.type.Node;
 import scraper.api.plugin.NodeHook;
 import scraper.api.specification.ScrapeInstance;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
 
 /**
  * The main component in a Scraper workflow specification.
@@ -30,7 +33,7 @@ import java.util.concurrent.ExecutorService;
  *     precautions have to be taken to avoid race conditions.
  * </p>
  */
-public interface NodeContainer<NODE> extends NodeInitializable, IdentityTemplateEvaluator {
+public interface NodeContainer<NODE> extends NodeInitializable, IdentityTemplateEvaluator, NodeLogger {
 
     // ==================
     // Specification
@@ -79,6 +82,16 @@ public interface NodeContainer<NODE> extends NodeInitializable, IdentityTemplate
     @NotNull
     Collection<NodeHook> hooks();
 
+    /** Hooks which are executed in the given phase of processing a flow map */
+    @NotNull
+    default Collection<NodeHook> hooks(@NotNull NodeHook.Phase phase) {
+        return hooks().stream().filter(h -> h.phases().contains(phase)).collect(Collectors.toList());
+    }
+
+    /** Runtime metrics of this node, empty if metrics are not collected */
+    @NotNull
+    default Optional<NodeMetrics> getMetrics() { return Optional.empty(); }
+
     /** If forwarding is enabled or not */
     boolean isForward();
 
@@ -121,6 +134,27 @@ public interface NodeContainer<NODE> extends NodeInitializable, IdentityTemplate
      */
     void forkDispatch(@NotNull FlowMap o, @NotNull Address target);
 
+    /**
+     * Dispatches all flows to the same target address, like {@link #forkDispatch(FlowMap, Address)} for every flow.
+     * Implementations may dispatch flows in batches which are run by a single thread.
+     */
+    default void forkDispatchAll(@NotNull Iterable<FlowMap> flows, @NotNull Address target) {
+        flows.forEach(o -> forkDispatch(o, target));
+    }
+
+    /**
+     * Dispatches all flows to the same target address, like {@link #forkDepend(FlowMap, Address)} for every flow.
+     * Implementations may dispatch flows in batches which are run by a single thread.
+     *
+     * @return one future per flow in iteration order
+     */
+    @NotNull
+    default List<CompletableFuture<FlowMap>> forkDependAll(@NotNull Iterable<FlowMap> flows, @NotNull Address target) {
+        List<CompletableFuture<FlowMap>> futures = new ArrayList<>();
+        flows.forEach(o -> futures.add(forkDepend(o, target)));
+        return futures;
+    }
+
     //-----------
     // Implementation Container
     //-----------
@@ -134,10 +168,4 @@ public interface NodeContainer<NODE> extends NodeInitializable, IdentityTemplate
 
     @NotNull
     Address addressOf(@NotNull String representation);
-
-    //-----------
-    // Logging
-    //-----------
-
-    void log(@NotNull NodeLogLevel trace, @NotNull String s, @NotNull Object... args);
 }
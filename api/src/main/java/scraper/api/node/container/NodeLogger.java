@@ -0,0 +1,39 @@
+package scraper.api.node.container;
+
+import scraper.annotations.NotNull;
+
+import java.util.function.Supplier;
+
+/**
+ * Logging facade of nodes.
+ * <p>
+ * Fixed arity and supplier variants only create argument arrays and messages if the level is enabled.
+ * Expensive messages should be guarded with {@link #isEnabled(NodeLogLevel)} or passed as a supplier.
+ */
+public interface NodeLogger {
+
+    /** Arguments of a message without arguments */
+    Object[] NO_ARGS = new Object[0];
+
+    /** True if messages of the given level are logged */
+    default boolean isEnabled(@NotNull NodeLogLevel level) { return true; }
+
+    void log(@NotNull NodeLogLevel level, @NotNull String msg, @NotNull Object... args);
+
+    default void log(@NotNull NodeLogLevel level, @NotNull String msg) {
+        if(isEnabled(level)) log(level, msg, NO_ARGS);
+    }
+
+    default void log(@NotNull NodeLogLevel level, @NotNull String msg, Object arg) {
+        if(isEnabled(level)) log(level, msg, new Object[]{arg});
+    }
+
+    default void log(@NotNull NodeLogLevel level, @NotNull String msg, Object arg1, Object arg2) {
+        if(isEnabled(level)) log(level, msg, new Object[]{arg1, arg2});
+    }
+
+    /** Logs the supplied message, the supplier is only called if the level is enabled */
+    default void log(@NotNull NodeLogLevel level, @NotNull Supplier<String> msg) {
+        if(isEnabled(level)) log(level, msg.get(), NO_ARGS);
+    }
+}
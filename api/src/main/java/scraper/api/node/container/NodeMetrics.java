@@ -0,0 +1,30 @@
+package scraper.api.node.container;
+
+/**
+ * Runtime metrics of a single node, collected while flows are processed.
+ * <p>
+ * Latencies are measured in nanoseconds. Percentiles are estimates with a bounded relative error.
+ */
+public interface NodeMetrics {
+
+    /** Flows processed by the node, including failed flows */
+    long getProcessed();
+
+    /** Flows which terminated with an exception in the node */
+    long getExceptions();
+
+    /** Flows forked by the node */
+    long getForks();
+
+    /** Total processing time of all flows */
+    long getTotalLatency();
+
+    /** Estimated processing latency of the given quantile between 0 and 1, 0 if no flow was processed */
+    long getLatency(double quantile);
+
+    /** Estimated time forked flows waited in the executor queue of the given quantile between 0 and 1 */
+    long getQueueWait(double quantile);
+
+    /** Current limit of concurrent forked flows of the executor of the node, 0 if the limit is not adaptive */
+    int getConcurrencyLimit();
+}
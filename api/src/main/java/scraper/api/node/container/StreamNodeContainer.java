@@ -20,6 +20,11 @@ public interface StreamNodeContainer extends NodeContainer<StreamNode> {
     /** Streams a whole FlowMap match */
     void streamFlowMap(@NotNull FlowMap origin, @NotNull FlowMap result);
 
+    /** Streams whole FlowMap matches, implementations may dispatch the matches in batches */
+    default void streamFlowMaps(@NotNull FlowMap origin, @NotNull Iterable<FlowMap> results) {
+        results.forEach(result -> streamFlowMap(origin, result));
+    }
+
     /**
      * Process a stream which is used by the StreamNode to accept a FlowMap.
      * Wraps around the process accept method to ensure collecting matches or streaming them.
@@ -0,0 +1,37 @@
+package scraper.api.node.type;
+
+import scraper.annotations.NotNull;
+import scraper.api.exceptions.NodeException;
+import scraper.api.flow.FlowMap;
+import scraper.api.node.container.NodeContainer;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Nodes which implement this interface process a FlowMap without blocking the calling thread, e.g. while waiting for IO.
+ * <p>
+ * A flow driven by the engine is suspended until the returned future completes and is then resumed by the executor of the node.
+ * If the node is evaluated synchronously, the calling thread waits for the returned future.
+ */
+public interface AsyncNode extends Node {
+
+    /** Waits for the asynchronous process, unwraps a failure of the process */
+    @Override @NotNull
+    default FlowMap process(@NotNull final NodeContainer<? extends Node> n, @NotNull final FlowMap o) throws NodeException {
+        try {
+            return processAsync(n, o).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof NodeException) throw (NodeException) e.getCause();
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    /**
+     * Starts processing the FlowMap. The returned future completes with the modified map
+     * or exceptionally with a {@link NodeException} if there is a processing error.
+     */
+    @NotNull
+    CompletableFuture<FlowMap> processAsync(@NotNull NodeContainer<? extends Node> n, @NotNull FlowMap o) throws NodeException;
+}
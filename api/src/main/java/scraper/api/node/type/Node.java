@@ -16,6 +16,9 @@ import scraper.api.template.L;
 
 import java.util.Map;
 
+import static scraper.api.plugin.NodeHook.Phase.AFTER_PROCESS;
+import static scraper.api.plugin.NodeHook.Phase.BEFORE_PROCESS;
+
 /**
  * Objects which implement this interface can consume and modify {@link FlowMap}s.
  */
@@ -35,9 +38,9 @@ public interface Node {
     default @NotNull
     FlowMap accept(@NotNull final NodeContainer<? extends Node> n, @NotNull final FlowMap o) throws NodeException {
         try {
-            for (NodeHook hook : n.hooks()) { hook.beforeProcess(n, o); }
+            for (NodeHook hook : n.hooks(BEFORE_PROCESS)) { hook.beforeProcess(n, o); }
             FlowMap fm = process(n, o);
-            for (NodeHook hook : n.hooks()) { hook.afterProcess(n, o); }
+            for (NodeHook hook : n.hooks(AFTER_PROCESS)) { hook.afterProcess(n, o); }
             return n.forward(fm);
         }
         catch (BreakException e) {
@@ -6,6 +6,10 @@ import scraper.api.flow.FlowMap;
 import scraper.api.node.container.NodeContainer;
 import scraper.api.node.type.Node;
 
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
 /**
  * Objects which implement this interface can consume and modify {@link FlowMap}s.
  */
@@ -13,4 +17,13 @@ import scraper.api.node.type.Node;
 public interface NodeHook {
     void beforeProcess(@NotNull NodeContainer<? extends Node> n, @NotNull FlowMap o) throws NodeException;
     default void afterProcess(@NotNull NodeContainer<? extends Node> n, @NotNull FlowMap o) throws NodeException {}
+
+    /** Phases of processing a flow map a hook can be called in */
+    enum Phase { BEFORE_PROCESS, AFTER_PROCESS }
+
+    Set<Phase> ALL_PHASES = Collections.unmodifiableSet(EnumSet.allOf(Phase.class));
+
+    /** Phases this hook is called in, the hook is skipped in all other phases. Defaults to all phases. */
+    @NotNull
+    default Set<Phase> phases() { return ALL_PHASES; }
 }
@@ -2,6 +2,7 @@ package scraper.api.service;
 
 import scraper.annotations.NotNull;
 
+import java.time.Duration;
 import java.util.concurrent.ExecutorService;
 
 /**
@@ -16,4 +17,17 @@ public interface ExecutorsService {
      */
     @NotNull
     ExecutorService getService(@NotNull String jobName, @NotNull String group, @NotNull Integer count);
+
+    /**
+     * Shuts down all executor services of given job and waits until running flows have finished.
+     * Flows which are still running complete their forks in their own thread.
+     * Returns false if the timeout elapsed before all executor services terminated.
+     */
+    boolean shutdown(@NotNull String jobName, @NotNull Duration timeout) throws InterruptedException;
+
+    /**
+     * Shuts down all executor services of given job without waiting.
+     * Queued flows are discarded and running flows are interrupted.
+     */
+    void shutdownNow(@NotNull String jobName);
 }
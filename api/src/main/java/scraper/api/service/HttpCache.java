@@ -0,0 +1,65 @@
+package scraper.api.service;
+
+import scraper.annotations.NotNull;
+import scraper.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+/**
+ * Caches HTTP responses by URL in cache directories.
+ * A cache directory can be shared by several nodes, entries are written atomically.
+ * Recently used responses of all directories are additionally held in memory up to a maximum size.
+ */
+public interface HttpCache {
+
+    /**
+     * Cached response of the URL in the given cache directory.
+     * Responses older than the time to live are removed.
+     *
+     * @param ttlMs Time to live in ms, responses do not expire if null
+     */
+    @NotNull
+    Optional<String> get(@NotNull String directory, @NotNull String url, @Nullable Long ttlMs) throws IOException;
+
+    /**
+     * Cached response like {@link #get(String, String, Long)} which passes the check, a response failing it is removed.
+     * Implementations can remember that a response passed a check with the given key, e.g. the rules it checks,
+     * and skip the check for further lookups with an equal key.
+     */
+    @NotNull
+    default Optional<String> get(@NotNull String directory, @NotNull String url, @Nullable Long ttlMs,
+                                 @NotNull Object checkKey, @NotNull Predicate<String> check) throws IOException {
+        Optional<String> response = get(directory, url, ttlMs);
+        if (response.isPresent() && !check.test(response.get())) {
+            remove(directory, url);
+            return Optional.empty();
+        }
+        return response;
+    }
+
+    /** Caches the response of the URL in the given cache directory */
+    void put(@NotNull String directory, @NotNull String url, @NotNull String response) throws IOException;
+
+    /** Removes the cached response of the URL, e.g. if it turned out to be invalid */
+    void remove(@NotNull String directory, @NotNull String url) throws IOException;
+
+    /** Compresses responses cached in the given directory from now on */
+    void setCompression(@NotNull String directory, boolean compress) throws IOException;
+
+    /** Bounds the size of the cache directory in bytes, the oldest responses are evicted in the background */
+    void setMaxSize(@NotNull String directory, long bytes) throws IOException;
+
+    /** Bounds the estimated size of responses held in memory in bytes, 0 disables the memory tier */
+    void setMemorySize(long bytes);
+
+    /** Lookups answered from memory */
+    long getMemoryHits();
+
+    /** Lookups which were not answered from memory */
+    long getMemoryMisses();
+
+    /** Responses evicted from memory to stay within the memory size */
+    long getMemoryEvictions();
+}
@@ -6,8 +6,13 @@ import scraper.api.service.proxy.ReservationToken;
 import java.io.IOException;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 
 /**
  * Provides communication over HTTP. Needs a {@link ReservationToken} from the {@link ProxyReservation} service.
@@ -36,6 +41,103 @@ public interface HttpService {
                          @NotNull ReservationToken token)
             throws IOException, InterruptedException, TimeoutException, ExecutionException;
 
+    /**
+     * Sends a single HTTP request with a handler and a reservation token without blocking the calling thread.
+     * The returned future completes exceptionally with an {@link IOException} if the request failed
+     * and with a {@link TimeoutException} if the request timed out.
+     *
+     * @param request Http request to be sent
+     * @param handler Response handler for that Http request
+     * @param token Reservation token reserved from the {@link ProxyReservation} service
+     *
+     * @return Future of the HttpResponse
+     *
+     * @see #send(HttpRequest, HttpResponse.BodyHandler, ReservationToken)
+     */
+    @NotNull
+    default <A> CompletableFuture<HttpResponse<A>> sendAsync(@NotNull HttpRequest request,
+                                                            @NotNull HttpResponse.BodyHandler<A> handler,
+                                                            @NotNull ReservationToken token) {
+        try {
+            return CompletableFuture.completedFuture(send(request, handler, token));
+        } catch (ExecutionException e) {
+            return CompletableFuture.failedFuture(e.getCause() != null ? e.getCause() : e);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Sends a single HTTP request without blocking the calling thread, reserving the token only once the request is started.
+     * Requests queued by host limits therefore do not hold a reservation.
+     * The caller keeps the reserved token, e.g. by recording it in <code>reservation</code>, and closes it.
+     *
+     * @param request Http request to be sent
+     * @param handler Response handler for that Http request
+     * @param reservation Reserves the token from the {@link ProxyReservation} service, may wait for a free token
+     * @param executor Runs the reservation, the thread starting the request is not blocked
+     *
+     * @return Future of the HttpResponse, completes exceptionally with the failure of the reservation
+     *
+     * @see #sendAsync(HttpRequest, HttpResponse.BodyHandler, ReservationToken)
+     */
+    @NotNull
+    default <A> CompletableFuture<HttpResponse<A>> sendAsync(@NotNull HttpRequest request,
+                                                            @NotNull HttpResponse.BodyHandler<A> handler,
+                                                            @NotNull Callable<ReservationToken> reservation,
+                                                            @NotNull Executor executor) {
+        return CompletableFuture
+                .supplyAsync(() -> {
+                    try {
+                        return reservation.call();
+                    } catch (Exception e) {
+                        throw new CompletionException(e);
+                    }
+                }, executor)
+                .thenCompose(token -> sendAsync(request, handler, token));
+    }
+
+    /**
+     * Coalesces concurrent identical requests. If a request with an equal key is in flight, its result is shared,
+     * otherwise the request is started and shared with all callers of the same key until it completes.
+     * Work done by the request before it completes, e.g. caching the response, is therefore done once.
+     *
+     * @param key Identifies equal requests, e.g. by method, URL, body and relevant headers.
+     *            Requests with equal keys must have results of the same type
+     * @param request Starts the request, called only if no equal request is in flight
+     *
+     * @return Future of the result of the request, completing it does not affect other callers
+     */
+    @NotNull
+    default <A> CompletableFuture<A> coalesce(@NotNull Object key, @NotNull Supplier<CompletableFuture<A>> request) {
+        return request.get();
+    }
+
+    /**
+     * Limits the requests sent to a target host. Requests which exceed the limit are queued until the limit allows them.
+     * The limit of host <code>*</code> applies to every host without an own limit.
+     * Limiting a host again keeps the stricter value of each setting, so users of the service do not override each other.
+     *
+     * @param host Target host of requests, or <code>*</code>
+     * @param requestsPerSecond Rate of requests sent to the host, not limited if not positive
+     * @param burst Requests which can be sent at once to a host which was idle
+     * @param maxConcurrent Concurrent requests to the host, not limited if not positive
+     */
+    void limitHost(@NotNull String host, double requestsPerSecond, int burst, int maxConcurrent);
+
+    /**
+     * Reads host limits from a file, one limit per line: <code>host rate [burst [maxConcurrent]]</code>.
+     *
+     * @see #limitHost(String, double, int, int)
+     */
+    void addHostLimits(@NotNull String path) throws IOException;
+
+    /**
+     * Limits the concurrent requests over all hosts, queued requests are then sent round-robin over hosts.
+     * Limiting again keeps the lower limit.
+     */
+    void limitConcurrentRequests(int maxConcurrent);
+
     enum RequestType{
         GET, POST, DELETE, PUT
     }
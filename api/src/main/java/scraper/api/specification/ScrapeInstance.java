@@ -12,6 +12,7 @@ import scraper.api.node.type.Node;
 import scraper.api.plugin.NodeHook;
 import scraper.api.service.ExecutorsService;
 import scraper.api.service.FileService;
+import scraper.api.service.HttpCache;
 import scraper.api.service.HttpService;
 import scraper.api.service.ProxyReservation;
 
@@ -91,6 +92,8 @@ public interface ScrapeInstance extends IdentityTemplateEvaluator {
     @NotNull
     HttpService getHttpService();
     @NotNull
+    HttpCache getHttpCache();
+    @NotNull
     ProxyReservation getProxyReservation();
     @NotNull
     FileService getFileService();
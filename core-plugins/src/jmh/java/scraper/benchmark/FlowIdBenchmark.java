@@ -0,0 +1,40 @@
+package scraper.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import scraper.api.flow.FlowMap;
+import scraper.api.flow.impl.FlowIdGenerator;
+import scraper.api.flow.impl.FlowMapImpl;
+import scraper.api.flow.impl.SequentialFlowIdGenerator;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fork rate of concurrent threads creating new flows. Run with -t 1, -t 2, ... to see scaling with core count.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Threads(Threads.MAX)
+@Fork(1)
+public class FlowIdBenchmark {
+
+    /** Flow id generator, random (secure random UUIDs) or sequential */
+    @Param({"random", "sequential"})
+    private String ids;
+
+    private FlowMap origin;
+
+    @Setup
+    public void setup() {
+        FlowIdGenerator generator = ids.equals("random") ? FlowIdGenerator.random() : new SequentialFlowIdGenerator();
+        origin = FlowMapImpl.origin(Map.of("key", "value"), generator);
+    }
+
+    @Benchmark
+    public FlowMap newFlow() {
+        return origin.newFlow();
+    }
+}
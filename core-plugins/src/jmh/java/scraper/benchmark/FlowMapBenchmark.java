@@ -0,0 +1,54 @@
+package scraper.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import scraper.api.flow.FlowMap;
+import scraper.api.flow.impl.FlowMapImpl;
+import scraper.api.template.L;
+import scraper.util.TemplateUtil;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fan-out pattern of Map and MapJoin: copy the flow once per element and write the element into the copy.
+ * Use -prof gc to compare allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FlowMapBenchmark {
+
+    /** Number of keys in the flow map before the fan-out */
+    @Param({"10", "1000"})
+    private int keys;
+
+    /** Flow map implementation, concurrent (full copy) or persistent (shared structure) */
+    @Param({"concurrent", "persistent"})
+    private String map;
+
+    private FlowMap origin;
+    private final L<Integer> putElement = TemplateUtil.locationOf("element");
+
+    @Setup
+    public void setup() {
+        Map<String, Object> args = new HashMap<>();
+        for (int i = 0; i < keys; i++) args.put("key" + i, "value" + i);
+
+        origin = map.equals("persistent") ? FlowMapImpl.persistentOrigin(args) : FlowMapImpl.origin(args);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1000)
+    public void fanOut(Blackhole bh) {
+        for (int i = 0; i < 1000; i++) {
+            FlowMap copy = origin.copy();
+            copy.output(putElement, i);
+            bh.consume(copy);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package scraper.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import scraper.api.flow.FlowMap;
+import scraper.api.flow.impl.FlowMapImpl;
+import scraper.api.node.Address;
+import scraper.api.node.container.NodeContainer;
+import scraper.api.node.type.Node;
+import scraper.api.specification.impl.ScrapeInstaceImpl;
+import scraper.api.specification.impl.ScrapeSpecificationImpl;
+import scraper.core.ForkedFlow;
+import scraper.core.JobFactory;
+import scraper.util.DependencyInjectionUtil;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fork throughput of many threads forking concurrently, e.g. flows of a Map node forking again.
+ * <p>
+ * {@code lookup} resolves the executor of a node as done for every fork,
+ * {@code forkDepend} forks a flow into a single node graph and joins it,
+ * {@code forkDependEach} and {@code forkDependAll} fork and join the flows of a fan-out one by one or as a batch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@Threads(32)
+public class ForkBenchmark {
+
+    /** Threads of the service forked flows run in */
+    @Param({"64"})
+    private int threads;
+
+    /** Flows of a fan-out */
+    @Param({"1000"})
+    private int fanOut;
+
+    private ScrapeInstaceImpl instance;
+    private NodeContainer<? extends Node> entry;
+    private Address target;
+
+    @Setup
+    public void setup() throws Exception {
+        ScrapeSpecificationImpl spec = new ScrapeSpecificationImpl();
+        spec.setName("fork");
+        spec.setScrapeFile(Path.of("fork.jf"));
+        spec.setGraphs(Map.of(
+                "start", List.of(Map.of("type", "Echo", "service", "forks", "threads", threads)),
+                "leaf", List.of(Map.of("type", "Echo"))
+        ));
+
+        instance = DependencyInjectionUtil.getDIContainer().get(JobFactory.class).convertScrapeJob(spec);
+        entry = instance.getEntry().orElseThrow();
+        target = entry.addressOf("leaf");
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        instance.getExecutors().shutdown(instance.getName(), Duration.ofSeconds(10));
+    }
+
+    @Benchmark
+    public ExecutorService lookup() {
+        return entry.getService();
+    }
+
+    @Benchmark
+    public FlowMap forkDepend() {
+        return entry.forkDepend(FlowMapImpl.origin(), target).join();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public List<CompletableFuture<FlowMap>> forkDependEach() {
+        List<CompletableFuture<FlowMap>> futures = new ArrayList<>(fanOut);
+        for (int i = 0; i < fanOut; i++) futures.add(entry.forkDepend(FlowMapImpl.origin(), target));
+        ForkedFlow.joinAll(futures);
+        return futures;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public List<CompletableFuture<FlowMap>> forkDependAll() {
+        List<FlowMap> flows = new ArrayList<>(fanOut);
+        for (int i = 0; i < fanOut; i++) flows.add(FlowMapImpl.origin());
+        List<CompletableFuture<FlowMap>> futures = entry.forkDependAll(flows, target);
+        ForkedFlow.joinAll(futures);
+        return futures;
+    }
+}
@@ -0,0 +1,93 @@
+package scraper.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import scraper.api.service.impl.HttpCacheImpl;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Lookups in a response cache with many entries. Random hits mostly read the response from a segment file,
+ * hits of a small set of hot responses are answered from memory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class HttpCacheBenchmark {
+
+    /** Cached responses */
+    @Param({"1000000"})
+    private int entries;
+
+    /** Size of a cached response */
+    @Param({"512"})
+    private int responseSize;
+
+    /** Estimated size of responses held in memory, 0 reads every response from disk */
+    @Param({"0", "67108864"})
+    private long memorySize;
+
+    /** Responses which fit into the memory tier */
+    private static final int HOT = 1000;
+
+    private HttpCacheImpl cache;
+    private Path directory;
+    private String dir;
+
+    @Setup
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("http-cache-benchmark");
+        dir = directory.toString();
+        cache = new HttpCacheImpl();
+        cache.setMemorySize(memorySize);
+
+        String response = "x".repeat(responseSize);
+        for (int i = 0; i < entries; i++) cache.put(dir, url(i), response);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        cache.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(f -> f.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public Optional<String> hit() throws IOException {
+        return cache.get(dir, url(ThreadLocalRandom.current().nextInt(entries)), null);
+    }
+
+    @Benchmark
+    public Optional<String> hotHit() throws IOException {
+        return cache.get(dir, url(ThreadLocalRandom.current().nextInt(HOT)), null);
+    }
+
+    @Benchmark
+    public Optional<String> hitWithTtl() throws IOException {
+        return cache.get(dir, url(ThreadLocalRandom.current().nextInt(entries)), TimeUnit.DAYS.toMillis(1));
+    }
+
+    @Benchmark
+    public Optional<String> miss() throws IOException {
+        return cache.get(dir, url(entries + ThreadLocalRandom.current().nextInt(entries)), null);
+    }
+
+    @Benchmark
+    public void put() throws IOException {
+        cache.put(dir, url(ThreadLocalRandom.current().nextInt(entries)), "updated");
+    }
+
+    private static String url(int i) {
+        return "https://example.org/items/" + i + "?page=details";
+    }
+}
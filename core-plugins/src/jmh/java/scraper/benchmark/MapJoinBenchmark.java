@@ -0,0 +1,76 @@
+package scraper.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import scraper.api.flow.FlowMap;
+import scraper.api.flow.impl.FlowMapImpl;
+import scraper.api.node.container.NodeContainer;
+import scraper.api.node.type.Node;
+import scraper.api.specification.impl.ScrapeInstaceImpl;
+import scraper.api.specification.impl.ScrapeSpecificationImpl;
+import scraper.core.JobFactory;
+import scraper.util.DependencyInjectionUtil;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A MapJoin over a large list into a single node graph, dominated by forking and joining the results.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MapJoinBenchmark {
+
+    /** Elements of the joined list */
+    @Param({"100000"})
+    private int elements;
+
+    /** Distinct output elements */
+    @Param({"false", "true"})
+    private boolean distinctOutput;
+
+    /** Join in list order or in order of termination */
+    @Param({"true", "false"})
+    private boolean ordered;
+
+    private ScrapeInstaceImpl instance;
+    private NodeContainer<? extends Node> entry;
+    private List<Integer> list;
+
+    @Setup
+    public void setup() throws Exception {
+        ScrapeSpecificationImpl spec = new ScrapeSpecificationImpl();
+        spec.setName("mapjoin");
+        spec.setScrapeFile(Path.of("mapjoin.jf"));
+        spec.setGraphs(Map.of(
+                "start", List.of(Map.of("type", "MapJoin", "list", "{list}", "mapTarget", "leaf",
+                        "keys", Map.of("_", "joined"), "distinctOutput", distinctOutput, "ordered", ordered,
+                        "service", "mapjoin", "threads", 8)),
+                // every element is distinct
+                "leaf", List.of(Map.of("type", "Echo"))
+        ));
+
+        instance = DependencyInjectionUtil.getDIContainer().get(JobFactory.class).convertScrapeJob(spec);
+        entry = instance.getEntry().orElseThrow();
+
+        list = new ArrayList<>(elements);
+        for (int i = 0; i < elements; i++) list.add(i);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        instance.getExecutors().shutdown(instance.getName(), Duration.ofSeconds(10));
+    }
+
+    @Benchmark
+    public FlowMap join() throws Exception {
+        return entry.getC().accept(entry, FlowMapImpl.origin(Map.of("list", list)));
+    }
+}
@@ -0,0 +1,90 @@
+package scraper.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import scraper.api.flow.FlowMap;
+import scraper.api.flow.impl.FlowMapImpl;
+import scraper.api.node.Address;
+import scraper.api.node.container.NodeContainer;
+import scraper.api.node.type.Node;
+import scraper.api.specification.impl.ScrapeInstaceImpl;
+import scraper.api.specification.impl.ScrapeSpecificationImpl;
+import scraper.core.JobFactory;
+import scraper.util.DependencyInjectionUtil;
+import scraper.util.NodeUtil;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hops per second through a linear graph of no-op nodes. Operations per invocation assume the default graph size.
+ * <p>
+ * {@code flow} runs a flow through the graph using pre-resolved routes,
+ * {@code lookup} performs the routing table lookup every hop used to do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RoutingBenchmark {
+
+    /** Number of nodes in the graph */
+    @Param({"100"})
+    private int nodes;
+
+    /** Use explicit labeled goTo targets instead of implicit forwarding */
+    @Param({"false", "true"})
+    private boolean labels;
+
+    private NodeContainer<? extends Node> entry;
+    private List<NodeContainer<? extends Node>> chain;
+    private List<Address> targets;
+
+    @Setup
+    public void setup() throws Exception {
+        List<Map<String, Object>> graph = new ArrayList<>();
+        for (int i = 0; i < nodes; i++) {
+            Map<String, Object> node = new HashMap<>();
+            node.put("type", "Echo");
+            if (labels) {
+                node.put("label", "n" + i);
+                if (i + 1 < nodes) node.put("goTo", "n" + (i + 1));
+            }
+            graph.add(node);
+        }
+
+        ScrapeSpecificationImpl spec = new ScrapeSpecificationImpl();
+        spec.setName("routing");
+        spec.setScrapeFile(Path.of("routing.jf"));
+        spec.setGraphs(Map.of("start", graph));
+
+        ScrapeInstaceImpl instance = DependencyInjectionUtil.getDIContainer().get(JobFactory.class).convertScrapeJob(spec);
+        entry = instance.getEntry().orElseThrow();
+
+        chain = new ArrayList<>();
+        targets = new ArrayList<>();
+        for (int i = 0; i < nodes; i++) {
+            Address address = NodeUtil.addressOf("routing.start." + (labels ? "n" + i : i));
+            chain.add(instance.getNode(address).orElseThrow());
+            targets.add(address);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(100)
+    public FlowMap flow() throws Exception {
+        return entry.getC().accept(entry, new FlowMapImpl());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(100)
+    public void lookup(Blackhole bh) {
+        for (int i = 0; i < nodes; i++) {
+            NodeContainer<? extends Node> origin = chain.get(i);
+            bh.consume(NodeUtil.getTarget(origin.getAddress(), targets.get(i), origin.getJobInstance()));
+        }
+    }
+}
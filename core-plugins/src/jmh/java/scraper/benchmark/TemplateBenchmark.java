@@ -0,0 +1,54 @@
+package scraper.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import scraper.api.flow.FlowMap;
+import scraper.api.flow.impl.FlowMapImpl;
+import scraper.api.template.T;
+import scraper.util.TemplateUtil;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runtime fm lookups as done by stream, join and fold nodes for every element.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TemplateBenchmark {
+
+    /** Key of the lookup, either a plain key or a nested template */
+    @Param({"element", "{pointer}"})
+    private String key;
+
+    private FlowMap o;
+    private T<Object> parsed;
+
+    @Setup
+    public void setup() {
+        o = FlowMapImpl.origin(Map.of("element", "value", "pointer", "element"));
+        parsed = new T<>(){};
+        parsed.setTerm(TemplateUtil.parseTemplate("{" + key + "}", parsed));
+    }
+
+    /** Baseline, a full parse per evaluation */
+    @Benchmark
+    public Object parseAndEval() {
+        T<Object> t = new T<>(){};
+        t.setTerm(TemplateUtil.parseTemplate("{" + key + "}", t));
+        return o.eval(t);
+    }
+
+    @Benchmark
+    public Object templateOfAndEval() {
+        return o.eval(TemplateUtil.templateOf(key));
+    }
+
+    @Benchmark
+    public Object evalOnly() {
+        return o.eval(parsed);
+    }
+}
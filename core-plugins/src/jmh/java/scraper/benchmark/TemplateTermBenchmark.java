@@ -0,0 +1,69 @@
+package scraper.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import scraper.api.flow.FlowMap;
+import scraper.api.flow.impl.FlowMapImpl;
+import scraper.api.template.T;
+import scraper.api.template.Term;
+import scraper.core.template.TemplateCompiler;
+import scraper.util.TemplateUtil;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluation of interpreted and compiled terms per term type.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TemplateTermBenchmark {
+
+    /** Term type to evaluate */
+    @Param({"constant", "mapkey", "mixed", "maplookup", "listlookup", "map", "list"})
+    private String term;
+
+    private FlowMap o;
+    private Term<?> interpreted;
+    private Term<?> compiled;
+
+    @Setup
+    public void setup() throws Exception {
+        o = FlowMapImpl.origin(Map.of(
+                "id", "a1",
+                "count", 3,
+                "list", List.of(1, 2, 3),
+                "map", Map.of("x", "1")
+        ));
+
+        interpreted = parse();
+        compiled = TemplateCompiler.compile(parse());
+    }
+
+    private Term<?> parse() throws Exception {
+        switch (term) {
+            case "constant": return TemplateUtil.parseTemplate("42", new T<Integer>(){});
+            case "mapkey": return TemplateUtil.parseTemplate("{id}", new T<String>(){});
+            case "mixed": return TemplateUtil.parseTemplate("item-{id}-of-{count}", new T<String>(){});
+            case "maplookup": return TemplateUtil.parseTemplate("{{map}@x}", new T<Integer>(){});
+            case "listlookup": return TemplateUtil.parseTemplate("{{list}}[-1]", new T<Integer>(){});
+            case "map": return TemplateUtil.parseTemplate(Map.of("a", "{id}", "b", "42"), new T<Map<String, String>>(){});
+            case "list": return TemplateUtil.parseTemplate(List.of("{id}", "b", "{count}"), new T<List<String>>(){});
+            default: throw new IllegalArgumentException(term);
+        }
+    }
+
+    @Benchmark
+    public Object interpreted() {
+        return interpreted.eval(o);
+    }
+
+    @Benchmark
+    public Object compiled() {
+        return compiled.eval(o);
+    }
+}
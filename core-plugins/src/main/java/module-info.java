@@ -1,7 +1,13 @@
 import scraper.api.node.type.Node;
 import scraper.api.plugin.Hook;
+import scraper.hooks.AdaptiveThreadsHook;
+import scraper.hooks.AsyncLogHook;
+import scraper.hooks.DrainHook;
 import scraper.hooks.ExitHook;
+import scraper.hooks.MetricsHook;
 import scraper.hooks.NodeDependencyGeneratorHook;
+import scraper.hooks.PersistentFlowHook;
+import scraper.hooks.VirtualThreadsHook;
 import scraper.nodes.core.functional.Echo;
 
 open module scraper.core.plugins {
@@ -17,6 +23,6 @@ open module scraper.core.plugins {
 
     requires transitive scraper.core;
 
-    provides Hook with ExitHook, NodeDependencyGeneratorHook;
+    provides Hook with AdaptiveThreadsHook, AsyncLogHook, DrainHook, ExitHook, MetricsHook, NodeDependencyGeneratorHook, PersistentFlowHook, VirtualThreadsHook;
     provides Node with Echo;
 }
@@ -0,0 +1,59 @@
+package scraper.hooks;
+
+
+import scraper.annotations.ArgsCommand;
+import scraper.annotations.NotNull;
+import scraper.api.di.DIContainer;
+import scraper.api.plugin.Hook;
+import scraper.api.service.ExecutorsService;
+import scraper.api.service.impl.ExecutorsServiceImpl;
+import scraper.api.specification.ScrapeInstance;
+import scraper.api.specification.ScrapeSpecification;
+import scraper.utils.StringUtil;
+
+import java.util.Map;
+
+import static java.lang.System.Logger.Level.DEBUG;
+import static java.lang.System.Logger.Level.WARNING;
+
+/**
+ * Adapts the number of concurrent flows of service groups to the latency and errors of their flows.
+ * The thread count of a group is only the initial limit.
+ */
+@ArgsCommand(
+        value = "adaptive-threads",
+        doc = "Adapts concurrent flows of the given comma separated service groups between min and max, defaults to 1 and four times the thread count",
+        example = "scraper app.scrape adaptive-threads:http:2:200,ping"
+)
+public class AdaptiveThreadsHook implements Hook {
+
+    private static final System.Logger log = System.getLogger("AdaptiveThreads");
+
+    @Override
+    public void execute(@NotNull final DIContainer dependencies, @NotNull final String[] args,
+                        @NotNull final Map<ScrapeSpecification, ScrapeInstance> jobs) {
+        String selected = StringUtil.getArgument(args, "adaptive-threads");
+        if (selected == null) return;
+
+        ExecutorsService executors = dependencies.get(ExecutorsService.class);
+        if (!(executors instanceof ExecutorsServiceImpl)) {
+            log.log(WARNING, "Executors service does not support adaptive limits: {0}", executors);
+            return;
+        }
+
+        for (String groupSpec : selected.split(",")) {
+            if (groupSpec.isEmpty()) continue;
+            String[] parts = groupSpec.split(":");
+            try {
+                int min = (parts.length > 1 ? Integer.parseInt(parts[1]) : 1);
+                int max = (parts.length > 2 ? Integer.parseInt(parts[2]) : 0);
+                log.log(DEBUG, "Using adaptive limit for service group {0}", parts[0]);
+                ((ExecutorsServiceImpl) executors).setAdaptive(parts[0], min, max);
+            } catch (IllegalArgumentException e) {
+                log.log(WARNING, "Bad adaptive limit, expected group:min:max: {0}", groupSpec);
+            }
+        }
+    }
+
+    @Override public String toString() { return "AdaptiveThreads"; }
+}
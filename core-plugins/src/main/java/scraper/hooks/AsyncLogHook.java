@@ -0,0 +1,54 @@
+package scraper.hooks;
+
+
+import scraper.annotations.ArgsCommand;
+import scraper.annotations.NotNull;
+import scraper.api.di.DIContainer;
+import scraper.api.plugin.Hook;
+import scraper.api.specification.ScrapeInstance;
+import scraper.api.specification.ScrapeSpecification;
+import scraper.api.specification.impl.ScrapeInstaceImpl;
+import scraper.core.AsyncLogSink;
+import scraper.utils.StringUtil;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static java.lang.System.Logger.Level.DEBUG;
+
+/**
+ * Node log messages of selected jobs are written by a background thread.
+ * Nodes of jobs with many concurrent flows then do not contend for the locks of the logging handlers.
+ */
+@ArgsCommand(
+        value = "async-log",
+        doc = "Writes node log messages of all jobs or only the given comma separated jobs asynchronously in batches",
+        example = "scraper app.scrape async-log:app"
+)
+public class AsyncLogHook implements Hook {
+
+    private static final System.Logger log = System.getLogger("AsyncLog");
+
+    /** Capacity of the message queue, messages are logged synchronously if the queue is full */
+    private static final int CAPACITY = 8192;
+
+    @Override
+    public void execute(@NotNull final DIContainer dependencies, @NotNull final String[] args,
+                        @NotNull final Map<ScrapeSpecification, ScrapeInstance> jobs) {
+        String selected = StringUtil.getArgument(args, "async-log");
+        if (selected == null) return;
+
+        AsyncLogSink sink = new AsyncLogSink(CAPACITY);
+        List<String> names = Arrays.asList(selected.split(","));
+        jobs.forEach((spec, job) -> {
+            if (!(job instanceof ScrapeInstaceImpl)) return;
+            if (selected.isEmpty() || names.contains(job.getName())) {
+                log.log(DEBUG, "Logging asynchronously for {0}", job.getName());
+                ((ScrapeInstaceImpl) job).setLogSink(sink);
+            }
+        });
+    }
+
+    @Override public String toString() { return "AsyncLog"; }
+}
@@ -0,0 +1,55 @@
+package scraper.hooks;
+
+
+import scraper.annotations.ArgsCommand;
+import scraper.annotations.NotNull;
+import scraper.api.di.DIContainer;
+import scraper.api.plugin.Hook;
+import scraper.api.specification.ScrapeInstance;
+import scraper.api.specification.ScrapeSpecification;
+import scraper.api.specification.impl.ScrapeInstaceImpl;
+import scraper.utils.StringUtil;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static java.lang.System.Logger.Level.DEBUG;
+import static java.lang.System.Logger.Level.WARNING;
+
+/**
+ * Drains all jobs when the application is terminated.
+ */
+@ArgsCommand(
+        value = "drain",
+        doc = "On termination, e.g. SIGTERM, nodes stop starting flows on their own and running flows get the given seconds to finish " +
+                "before the executors are shut down",
+        example = "scraper app.scrape drain:60"
+)
+public class DrainHook implements Hook {
+
+    private static final System.Logger log = System.getLogger("Drain");
+
+    @Override
+    public void execute(@NotNull final DIContainer dependencies, @NotNull final String[] args,
+                        @NotNull final Map<ScrapeSpecification, ScrapeInstance> jobs) {
+        String seconds = StringUtil.getArgument(args, "drain");
+        if (seconds == null) return;
+
+        Duration timeout;
+        try {
+            timeout = Duration.ofSeconds(Long.parseLong(seconds));
+            if (timeout.isNegative() || timeout.isZero()) throw new IllegalArgumentException(seconds);
+        } catch (IllegalArgumentException e) {
+            log.log(WARNING, "Bad drain timeout ''{0}'', expected drain:<seconds>", seconds);
+            return;
+        }
+
+        jobs.values().forEach(job -> {
+            if (!(job instanceof ScrapeInstaceImpl)) return;
+            log.log(DEBUG, "Draining {0} within {1} on termination", job.getName(), timeout);
+            ((ScrapeInstaceImpl) job).setDrainTimeout(timeout);
+        });
+    }
+
+    @Override public String toString() { return "Drain"; }
+}
@@ -0,0 +1,66 @@
+package scraper.hooks;
+
+
+import scraper.annotations.ArgsCommand;
+import scraper.annotations.NotNull;
+import scraper.api.di.DIContainer;
+import scraper.api.node.container.NodeContainer;
+import scraper.api.node.type.Node;
+import scraper.api.plugin.Hook;
+import scraper.api.service.FileService;
+import scraper.api.specification.ScrapeInstance;
+import scraper.api.specification.ScrapeSpecification;
+import scraper.api.specification.impl.ScrapeInstaceImpl;
+import scraper.core.AbstractNode;
+import scraper.core.metrics.MetricsDumper;
+import scraper.core.metrics.MetricsRegistry;
+import scraper.utils.StringUtil;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.System.Logger.Level.DEBUG;
+import static java.lang.System.Logger.Level.WARNING;
+
+/**
+ * Collects per node metrics of all jobs and periodically writes a snapshot to a file.
+ */
+@ArgsCommand(
+        value = "metrics",
+        doc = "Collects flows, exceptions, forks, processing latency and executor queue wait per node. " +
+                "Writes a snapshot every 10 seconds and on exit, as JSON if the path ends with .json, otherwise as CSV",
+        example = "scraper app.scrape metrics:metrics.csv"
+)
+public class MetricsHook implements Hook {
+
+    private static final System.Logger log = System.getLogger("Metrics");
+
+    /** Seconds between two snapshots */
+    private static final long PERIOD = 10;
+
+    @Override
+    public void execute(@NotNull final DIContainer dependencies, @NotNull final String[] args,
+                        @NotNull final Map<ScrapeSpecification, ScrapeInstance> jobs) {
+        String path = StringUtil.getArgument(args, "metrics");
+        if (path == null) return;
+        if (path.isEmpty()) {
+            log.log(WARNING, "No metrics path given, expected metrics:<path>");
+            return;
+        }
+
+        MetricsRegistry registry = new MetricsRegistry();
+        jobs.values().forEach(job -> {
+            if (!(job instanceof ScrapeInstaceImpl)) return;
+            log.log(DEBUG, "Collecting metrics for {0}", job.getName());
+            for (NodeContainer<? extends Node> node : ((ScrapeInstaceImpl) job).getAllNodes()) {
+                if (node instanceof AbstractNode)
+                    ((AbstractNode<?>) node).setMetrics(registry.metricsOf(node.getAddress()));
+            }
+        });
+
+        FileService files = dependencies.get(FileService.class);
+        new MetricsDumper(registry, files, path).start(PERIOD, TimeUnit.SECONDS);
+    }
+
+    @Override public String toString() { return "Metrics"; }
+}
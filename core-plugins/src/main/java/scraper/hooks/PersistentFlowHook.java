@@ -0,0 +1,49 @@
+package scraper.hooks;
+
+
+import scraper.annotations.ArgsCommand;
+import scraper.annotations.NotNull;
+import scraper.api.di.DIContainer;
+import scraper.api.plugin.Hook;
+import scraper.api.specification.ScrapeInstance;
+import scraper.api.specification.ScrapeSpecification;
+import scraper.api.specification.impl.ScrapeInstaceImpl;
+import scraper.utils.StringUtil;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static java.lang.System.Logger.Level.DEBUG;
+
+/**
+ * Backs the flows of selected jobs with a persistent map.
+ * Copying a flow (e.g. for every element in Map or MapJoin) is then O(1) instead of a full copy.
+ */
+@ArgsCommand(
+        value = "persistent-flow",
+        doc = "Uses persistent flow maps for all jobs or only the given comma separated jobs. Makes copying flows cheap for large flow maps",
+        example = "scraper app.scrape persistent-flow:app"
+)
+public class PersistentFlowHook implements Hook {
+
+    private static final System.Logger log = System.getLogger("PersistentFlow");
+
+    @Override
+    public void execute(@NotNull final DIContainer dependencies, @NotNull final String[] args,
+                        @NotNull final Map<ScrapeSpecification, ScrapeInstance> jobs) {
+        String selected = StringUtil.getArgument(args, "persistent-flow");
+        if (selected == null) return;
+
+        List<String> names = Arrays.asList(selected.split(","));
+        jobs.forEach((spec, job) -> {
+            if (!(job instanceof ScrapeInstaceImpl)) return;
+            if (selected.isEmpty() || names.contains(job.getName())) {
+                log.log(DEBUG, "Using persistent flow maps for {0}", job.getName());
+                ((ScrapeInstaceImpl) job).setPersistentFlows(true);
+            }
+        });
+    }
+
+    @Override public String toString() { return "PersistentFlow"; }
+}
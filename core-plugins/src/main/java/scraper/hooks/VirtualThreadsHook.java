@@ -0,0 +1,59 @@
+package scraper.hooks;
+
+
+import scraper.annotations.ArgsCommand;
+import scraper.annotations.NotNull;
+import scraper.api.di.DIContainer;
+import scraper.api.plugin.Hook;
+import scraper.api.service.ExecutorsService;
+import scraper.api.service.impl.ExecutorsServiceImpl;
+import scraper.api.specification.ScrapeInstance;
+import scraper.api.specification.ScrapeSpecification;
+import scraper.utils.StringUtil;
+
+import java.util.Map;
+
+import static java.lang.System.Logger.Level.DEBUG;
+import static java.lang.System.Logger.Level.WARNING;
+import static scraper.api.service.impl.ExecutorsServiceImpl.Mode.VIRTUAL;
+
+/**
+ * Executes flows in virtual threads instead of pooled platform threads.
+ * The thread count of a service group then limits the number of concurrent flows of the group.
+ * Blocking nodes, e.g. http requests, do not occupy an OS thread while waiting.
+ */
+@ArgsCommand(
+        value = "virtual-threads",
+        doc = "Executes flows of all service groups or only the given comma separated service groups in virtual threads. Needs Java 21",
+        example = "scraper app.scrape virtual-threads:http,ping"
+)
+public class VirtualThreadsHook implements Hook {
+
+    private static final System.Logger log = System.getLogger("VirtualThreads");
+
+    @Override
+    public void execute(@NotNull final DIContainer dependencies, @NotNull final String[] args,
+                        @NotNull final Map<ScrapeSpecification, ScrapeInstance> jobs) {
+        String selected = StringUtil.getArgument(args, "virtual-threads");
+        if (selected == null) return;
+
+        ExecutorsService executors = dependencies.get(ExecutorsService.class);
+        if (!(executors instanceof ExecutorsServiceImpl)) {
+            log.log(WARNING, "Executors service does not support virtual threads: {0}", executors);
+            return;
+        }
+
+        ExecutorsServiceImpl impl = (ExecutorsServiceImpl) executors;
+        if (selected.isEmpty()) {
+            log.log(DEBUG, "Using virtual threads for all service groups");
+            impl.setDefaultMode(VIRTUAL);
+        } else {
+            for (String group : selected.split(",")) {
+                log.log(DEBUG, "Using virtual threads for service group {0}", group);
+                impl.setMode(group, VIRTUAL);
+            }
+        }
+    }
+
+    @Override public String toString() { return "VirtualThreads"; }
+}
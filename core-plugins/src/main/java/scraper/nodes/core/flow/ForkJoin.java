@@ -12,6 +12,7 @@ import scraper.api.node.container.NodeContainer;
 import scraper.api.node.container.NodeLogLevel;
 import scraper.api.node.type.Node;
 import scraper.api.template.T;
+import scraper.core.ForkedFlow;
 import scraper.util.TemplateUtil;
 
 import java.util.HashMap;
@@ -63,9 +64,8 @@ public final class ForkJoin implements Node {
                         n.log(NodeLogLevel.DEBUG, "Fork complete")
         ));
 
-        CompletableFuture
-                .allOf(forkedProcesses.values().toArray(new CompletableFuture[0]))
-                .join();
+        // forked flows which have not started yet are run by this thread
+        ForkedFlow.joinAll(forkedProcesses.values());
 
         forkedProcesses.forEach((target, future) ->{
             try {
@@ -12,6 +12,7 @@ import scraper.api.node.type.Node;
 import scraper.api.template.L;
 import scraper.api.template.T;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -48,11 +49,13 @@ public final class Map <K> implements Node {
     @NotNull
     @Override
     public FlowMap process(@NotNull NodeContainer<? extends Node> n, @NotNull FlowMap o) {
+        List<FlowMap> forks = new ArrayList<>();
+
         Optional<List<K>> targetList = o.evalMaybe(list);
         targetList.ifPresent(ks -> ks.forEach(t -> {
             FlowMap finalCopy = o.copy();
             finalCopy.output(putElement, t);
-            n.forkDispatch(finalCopy, mapTarget);
+            forks.add(finalCopy);
         }));
 
         Optional<java.util.Map<String, K>> targetMap = o.evalMaybe(map);
@@ -60,9 +63,11 @@ public final class Map <K> implements Node {
             FlowMap finalCopy = o.copy();
             finalCopy.output(putElement, v);
             finalCopy.output(putElementKey, k);
-            n.forkDispatch(finalCopy, mapTarget);
+            forks.add(finalCopy);
         }));
 
+        n.forkDispatchAll(forks, mapTarget);
+
         return o;
     }
 }
@@ -12,11 +12,13 @@ import scraper.api.node.container.NodeLogLevel;
 import scraper.api.node.type.Node;
 import scraper.api.template.L;
 import scraper.api.template.T;
+import scraper.core.ForkedFlow;
 import scraper.util.TemplateUtil;
 
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * Applies a map to every element of a given list and joins the result keys into a list.
@@ -32,7 +34,7 @@ import java.util.concurrent.ExecutionException;
  * ignoreMissingJoinKey: true
  * </pre>
  */
-@NodePlugin(value = "0.13.0", customFlowAfter = true)
+@NodePlugin(value = "0.14.0", customFlowAfter = true)
 public final class MapJoin <A> implements Node {
 
     /** Expected join for each key defined in this map after a forked flow terminates */
@@ -52,7 +54,7 @@ public final class MapJoin <A> implements Node {
     @FlowKey(defaultValue = "\"_\"")
     private final L<A> putElement = new L<>(){};
 
-    /** Only distinct input elements */
+    /** Only distinct input elements, the first occurrence of an element is kept */
     @FlowKey(defaultValue = "false")
     private Boolean distinct;
 
@@ -60,6 +62,10 @@ public final class MapJoin <A> implements Node {
     @FlowKey(defaultValue = "false")
     private Boolean distinctOutput;
 
+    /** Join results in list order, otherwise in order of termination of the forked flows */
+    @FlowKey(defaultValue = "true")
+    private Boolean ordered;
+
     /** Skip missing join key elements */
     @FlowKey(defaultValue = "false")
     private Boolean ignoreMissingJoinKey;
@@ -68,59 +74,120 @@ public final class MapJoin <A> implements Node {
     @Override
     public FlowMap process(@NotNull NodeContainer<? extends Node> n, @NotNull FlowMap o) {
         List<A> list = o.eval(this.list);
-        if(distinct) list = new ArrayList<>(new HashSet<>(list));
+        if(distinct) list = new ArrayList<>(new LinkedHashSet<>(list));
+
+        java.util.Map<String, String> keys = o.evalIdentity(this.keys);
+        List<JoinCollector> collectors = new ArrayList<>(keys.size());
+        int size = list.size();
+        keys.forEach((joinKeyForked, joinKey) -> collectors.add(ordered
+                ? new OrderedCollector(joinKeyForked, joinKey, distinctOutput, size)
+                : new UnorderedCollector(joinKeyForked, joinKey, distinctOutput)));
 
-        List<CompletableFuture<FlowMap>> forkedProcesses = new ArrayList<>();
+        List<FlowMap> copies = new ArrayList<>(list.size());
         list.forEach(element -> {
             FlowMap copy = o.copy();
             copy.output(putElement, element);
-            // dispatch new flow, expect future to return the modified flow map
-            CompletableFuture<FlowMap> t = n.forkDepend(copy, mapTarget);
-            forkedProcesses.add(t);
+            copies.add(copy);
         });
 
-        forkedProcesses.forEach(future ->
-                future.whenComplete(
-                (result, throwable) -> n.log(NodeLogLevel.DEBUG, "Map fork complete")
-        ));
+        // dispatch new flows, expect futures to return the modified flow maps
+        List<CompletableFuture<FlowMap>> forkedProcesses = n.forkDependAll(copies, mapTarget);
 
-        CompletableFuture
-                .allOf(forkedProcesses.toArray(new CompletableFuture[0]))
-                .join();
+        // results are collected as soon as a forked flow terminates
+        CompletableFuture<?>[] collected = new CompletableFuture<?>[forkedProcesses.size()];
+        for (int i = 0; i < forkedProcesses.size(); i++) {
+            int index = i;
+            collected[i] = forkedProcesses.get(i).thenAccept(fm -> {
+                n.log(NodeLogLevel.DEBUG, "Map fork complete");
+                collectors.forEach(collector -> collector.collect(n, index, fm));
+            });
+        }
 
-        java.util.Map<String, String> keys = o.evalIdentity(this.keys);
+        // forked flows which have not started yet are run by this thread
+        ForkedFlow.joinAll(forkedProcesses);
+        CompletableFuture.allOf(collected).join();
 
-        keys.forEach((joinKeyForked, joinKey) -> {
-            n.log(NodeLogLevel.TRACE, "Joining {0} -> {1}", joinKeyForked, joinKey);
-
-            List<Object> joinResults = o.evalMaybe(new T<List<Object>>() {}).orElse(new ArrayList<>());
-
-            forkedProcesses.forEach(future -> {
-                try {
-                    FlowMap fm = future.get();
-                    Optional<?> forkedElement = fm.evalMaybe(TemplateUtil.templateOf(joinKeyForked));
-                    if(forkedElement.isEmpty()) {
-                        if(!ignoreMissingJoinKey)
-                            throw new IllegalStateException(n.getAddress()+ ": Missing value at join key: " + joinKeyForked);
-                    } else {
-                        if (!joinResults.contains(forkedElement.get()) || !distinctOutput) {
-                            joinResults.add(forkedElement.get());
-                            o.output(TemplateUtil.locationOf(joinKey), joinResults);
-                        }
-                    }
-                } catch (InterruptedException | ExecutionException e) {
-                    e.printStackTrace();
-                    n.log(NodeLogLevel.ERROR, "Bad join", e);
-                }
-            });
+        for (JoinCollector collector : collectors) {
+            n.log(NodeLogLevel.TRACE, "Joining {0} -> {1}", collector.joinKeyForked, collector.joinKey);
+            if(collector.missing && !ignoreMissingJoinKey)
+                throw new IllegalStateException(n.getAddress()+ ": Missing value at join key: " + collector.joinKeyForked);
 
-        });
-        // default output for empty collection
-        keys.forEach((joinKeyForked, joinKey) -> { if(o.evalMaybe(TemplateUtil.templateOf(joinKey)).isEmpty()) {
-            o.output(TemplateUtil.locationOf(joinKey), new ArrayList<>());
-        } });
+            List<Object> joinResults = collector.results();
+            // an existing value is kept for empty collections
+            if(!joinResults.isEmpty() || o.evalMaybe(TemplateUtil.templateOf(collector.joinKey)).isEmpty())
+                o.output(TemplateUtil.locationOf(collector.joinKey), joinResults);
+        }
 
         // continue
         return o;
     }
+
+    /** Collects the values of a join key of the forked flows while they terminate */
+    private abstract static class JoinCollector {
+        final String joinKeyForked;
+        final String joinKey;
+        final boolean distinct;
+        private final T<Object> forkedKey;
+        volatile boolean missing = false;
+
+        JoinCollector(@NotNull String joinKeyForked, @NotNull String joinKey, boolean distinct) {
+            this.joinKeyForked = joinKeyForked;
+            this.joinKey = joinKey;
+            this.distinct = distinct;
+            this.forkedKey = TemplateUtil.templateOf(joinKeyForked);
+        }
+
+        void collect(@NotNull NodeContainer<? extends Node> n, int index, @NotNull FlowMap fm) {
+            Optional<?> forkedElement = fm.evalMaybe(forkedKey);
+            if(forkedElement.isEmpty()) {
+                n.log(NodeLogLevel.TRACE, "Missing value at join key {0}", joinKeyForked);
+                missing = true;
+            } else {
+                add(index, forkedElement.get());
+            }
+        }
+
+        abstract void add(int index, @NotNull Object value);
+
+        /** Collected values, called once after all forked flows terminated */
+        @NotNull
+        abstract List<Object> results();
+    }
+
+    /** Values by list index, joined in list order */
+    private static final class OrderedCollector extends JoinCollector {
+        // every index is written by a single forked flow, read after all collecting stages completed
+        private final Object[] values;
+
+        OrderedCollector(@NotNull String joinKeyForked, @NotNull String joinKey, boolean distinct, int size) {
+            super(joinKeyForked, joinKey, distinct);
+            values = new Object[size];
+        }
+
+        @Override void add(int index, @NotNull Object value) { values[index] = value; }
+
+        @NotNull @Override
+        List<Object> results() {
+            List<Object> results = new ArrayList<>(values.length);
+            for (Object value : values) if(value != null) results.add(value);
+            return (distinct ? new ArrayList<>(new LinkedHashSet<>(results)) : results);
+        }
+    }
+
+    /** Values in order of termination, distinct values are filtered while collecting */
+    private static final class UnorderedCollector extends JoinCollector {
+        private final Queue<Object> values = new ConcurrentLinkedQueue<>();
+        private final Set<Object> seen = ConcurrentHashMap.newKeySet();
+
+        UnorderedCollector(@NotNull String joinKeyForked, @NotNull String joinKey, boolean distinct) {
+            super(joinKeyForked, joinKey, distinct);
+        }
+
+        @Override void add(int index, @NotNull Object value) {
+            if(!distinct || seen.add(value)) values.add(value);
+        }
+
+        @NotNull @Override
+        List<Object> results() { return new ArrayList<>(values); }
+    }
 }
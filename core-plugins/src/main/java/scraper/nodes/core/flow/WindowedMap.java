@@ -0,0 +1,190 @@
+package scraper.nodes.core.flow;
+
+
+import scraper.annotations.NotNull;
+import scraper.annotations.node.Flow;
+import scraper.annotations.node.FlowKey;
+import scraper.annotations.node.NodePlugin;
+import scraper.api.exceptions.NodeException;
+import scraper.api.flow.FlowMap;
+import scraper.api.node.Address;
+import scraper.api.node.container.NodeContainer;
+import scraper.api.node.container.NodeLogLevel;
+import scraper.api.node.type.Node;
+import scraper.api.template.L;
+import scraper.api.template.T;
+import scraper.core.ForkedFlow;
+import scraper.util.TemplateUtil;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Applies a map to every element of a given list with at most <var>maxInFlight</var> forked flows at a time
+ * and joins the result keys into lists as forked flows terminate.
+ * <p>
+ * Only the flows of the window are kept in memory, so lists much larger than the window can be mapped.
+ * Results are joined in list order like MapJoin, or in order of termination if <var>ordered</var> is false.
+ * If a forked flow has <var>stopOn</var> set to true, no further elements are dispatched,
+ * flows of the window which have not started yet are cancelled and flows which are still running are not joined.
+ * A failed forked flow fails the map the same way, unless <var>skipFailed</var> is true.
+ * Example:
+ * <pre>
+ *
+ * type: WindowedMap
+ * list: "{pages}"
+ * putElement: page
+ * mapTarget: download-page
+ * maxInFlight: 8
+ * stopOn: last-page
+ * keys:
+ *   content: contents
+ * </pre>
+ */
+@NodePlugin(value = "0.1.0", customFlowAfter = true)
+public final class WindowedMap <A> implements Node {
+
+    /** List to apply map to */
+    @FlowKey(mandatory = true)
+    private final T<List<A>> list = new T<>(){};
+
+    /** Label of goTo */
+    @FlowKey(mandatory = true)
+    @Flow(dependent = true, crossed = true, label = "map")
+    private Address mapTarget;
+
+    /** At which key to put the element of the list into. */
+    @FlowKey(defaultValue = "\"_\"")
+    private final L<A> putElement = new L<>(){};
+
+    /** Expected join for each key defined in this map after a forked flow terminates */
+    @FlowKey(defaultValue = "{}")
+    private final T<java.util.Map<String, String>> keys = new T<>(){};
+
+    /** Maximum number of forked flows which are running or queued at a time */
+    @FlowKey(defaultValue = "16")
+    private Integer maxInFlight;
+
+    /** Join results in list order, otherwise in order of termination of the forked flows */
+    @FlowKey(defaultValue = "true")
+    private Boolean ordered;
+
+    /** Key of a forked flow which stops the map if true */
+    @FlowKey
+    private String stopOn;
+
+    /** Skip forked flows which terminated exceptionally instead of failing the map */
+    @FlowKey(defaultValue = "false")
+    private Boolean skipFailed;
+
+    /** Skip missing join key elements */
+    @FlowKey(defaultValue = "false")
+    private Boolean ignoreMissingJoinKey;
+
+    @NotNull
+    @Override
+    public FlowMap process(@NotNull NodeContainer<? extends Node> n, @NotNull FlowMap o) throws NodeException {
+        java.util.Map<String, String> keys = o.evalIdentity(this.keys);
+        java.util.Map<String, List<Object>> joinResults = new LinkedHashMap<>();
+        keys.values().forEach(joinKey -> joinResults.put(joinKey, new ArrayList<>()));
+
+        Iterator<A> elements = o.eval(this.list).iterator();
+        int window = Math.max(1, maxInFlight);
+        // insertion ordered, the first pending flow is the oldest one
+        Set<CompletableFuture<FlowMap>> pending = new LinkedHashSet<>();
+        BlockingQueue<CompletableFuture<FlowMap>> terminated = new LinkedBlockingQueue<>();
+        long joined = 0;
+
+        while (!pending.isEmpty() || elements.hasNext()) {
+            while (elements.hasNext() && pending.size() < window) {
+                FlowMap copy = o.copy();
+                copy.output(putElement, elements.next());
+                CompletableFuture<FlowMap> future = n.forkDepend(copy, mapTarget);
+                if (!ordered) future.whenComplete((result, throwable) -> terminated.add(future));
+                pending.add(future);
+            }
+
+            CompletableFuture<FlowMap> next = (ordered ? pending.iterator().next() : nextTerminated(n, pending, terminated));
+            pending.remove(next);
+
+            FlowMap result;
+            try {
+                // a forked flow which has not started yet is run by this thread
+                result = next.join();
+            } catch (CompletionException e) {
+                if (!skipFailed) {
+                    discard(n, pending);
+                    throw e;
+                }
+
+                n.log(NodeLogLevel.WARN, "Skipping failed flow: {0}", e.getMessage());
+                continue;
+            }
+
+            join(n, result, keys, joinResults);
+            joined++;
+
+            if (stopOn != null && Boolean.TRUE.equals(result.evalMaybe(TemplateUtil.templateOf(stopOn)).orElse(false))) {
+                n.log(NodeLogLevel.DEBUG, "Stopping map after {0} joined flows", joined);
+                discard(n, pending);
+                break;
+            }
+        }
+
+        joinResults.forEach((joinKey, results) -> o.output(TemplateUtil.locationOf(joinKey), results));
+
+        // continue
+        return o;
+    }
+
+    /** Waits for the next terminated flow, pending flows which have not started yet are run by this thread */
+    private CompletableFuture<FlowMap> nextTerminated(@NotNull NodeContainer<? extends Node> n,
+                                                     @NotNull Set<CompletableFuture<FlowMap>> pending,
+                                                     @NotNull BlockingQueue<CompletableFuture<FlowMap>> terminated) throws NodeException {
+        CompletableFuture<FlowMap> next = terminated.poll();
+        try {
+            while (next == null) {
+                boolean ranInline = false;
+                for (CompletableFuture<FlowMap> future : pending) {
+                    if (future instanceof ForkedFlow && ((ForkedFlow) future).tryRunInline()) {
+                        ranInline = true;
+                        break;
+                    }
+                }
+
+                next = (ranInline ? terminated.poll() : terminated.take());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NodeException(e, n.getAddress() + ": Interrupted while waiting for forked flows");
+        }
+
+        return next;
+    }
+
+    /** Cancels the pending flows which have not started yet and waits for the running ones without joining them */
+    private void discard(@NotNull NodeContainer<? extends Node> n, @NotNull Set<CompletableFuture<FlowMap>> pending) {
+        List<CompletableFuture<FlowMap>> running = new ArrayList<>();
+        for (CompletableFuture<FlowMap> future : pending) {
+            if (!(future instanceof ForkedFlow && future.cancel(false))) running.add(future);
+        }
+        n.log(NodeLogLevel.DEBUG, "Cancelled {0} pending flows, waiting for {1} running flows", pending.size() - running.size(), running.size());
+        pending.clear();
+
+        // results and failures of discarded flows are ignored
+        CompletableFuture.allOf(running.toArray(new CompletableFuture<?>[0])).exceptionally(e -> null).join();
+    }
+
+    private void join(@NotNull NodeContainer<? extends Node> n, @NotNull FlowMap result,
+                      @NotNull java.util.Map<String, String> keys, @NotNull java.util.Map<String, List<Object>> joinResults) {
+        keys.forEach((joinKeyForked, joinKey) -> {
+            Optional<?> forkedElement = result.evalMaybe(TemplateUtil.templateOf(joinKeyForked));
+            if (forkedElement.isEmpty()) {
+                if (!ignoreMissingJoinKey)
+                    throw new IllegalStateException(n.getAddress() + ": Missing value at join key: " + joinKeyForked);
+            } else {
+                joinResults.get(joinKey).add(forkedElement.get());
+            }
+        });
+    }
+}
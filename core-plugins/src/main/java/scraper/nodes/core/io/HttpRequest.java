@@ -7,15 +7,18 @@ import scraper.api.exceptions.NodeException;
 import scraper.api.exceptions.ValidationException;
 import scraper.api.flow.FlowMap;
 import scraper.api.node.container.NodeContainer;
+import scraper.api.node.type.AsyncNode;
 import scraper.api.node.type.Node;
+import scraper.api.service.HttpCache;
 import scraper.api.service.HttpService;
 import scraper.api.service.HttpService.RequestType;
+import scraper.api.service.impl.ExecutorsServiceImpl;
 import scraper.api.service.proxy.ProxyMode;
 import scraper.api.service.proxy.ReservationToken;
 import scraper.api.specification.ScrapeInstance;
 import scraper.api.template.L;
 import scraper.api.template.T;
-import scraper.utils.StringUtil;
+import scraper.util.SchedulerUtil;
 
 import java.io.File;
 import java.io.IOException;
@@ -24,12 +27,16 @@ import java.net.http.HttpResponse;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Duration;
-import java.util.Base64;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static java.time.temporal.ChronoUnit.MILLIS;
 import static scraper.api.node.container.NodeLogLevel.*;
@@ -58,13 +65,19 @@ import static scraper.api.node.container.NodeLogLevel.*;
  * timeout: 50000
  * holdOnReservation: 30000
  * holdOnForward: 4000
+ * hostRate: 2
+ * hostConcurrency: 4
  * </pre>
  *
  * If multiple HttpRequestNodes are used with a similar configuration, globalNodeConfigurations can be used.
+ * <p>
+ * Requests are sent asynchronously, a forked flow is suspended while waiting for the response and during <var>holdOnForward</var>.
+ * Host limits are shared by all requests to the same target host, requests exceeding them are queued.
+ * Concurrent identical string requests of all nodes are coalesced into one request, see <var>coalesceRequests</var>.
  */
-@NodePlugin("2.0.3")
+@NodePlugin("2.1.0")
 @Io
-public final class HttpRequest implements Node {
+public final class HttpRequest implements AsyncNode {
 
     private final ObjectMapper mapper = new ObjectMapper();
 
@@ -117,6 +130,25 @@ public final class HttpRequest implements Node {
     @FlowKey(defaultValue = "[]")
     private final T<List<String>> exceptionContaining = new T<>(){};
 
+    // --------------
+    // HOST LIMITS
+    // --------------
+    /** Requests per second sent to each target host, shared by all nodes, the lowest configured rate applies. Not limited by default */
+    @FlowKey @Argument
+    private Double hostRate;
+    /** Requests which can be sent at once to an idle target host if <var>hostRate</var> is set */
+    @FlowKey(defaultValue = "1") @Argument
+    private Integer hostBurst;
+    /** Concurrent requests to each target host, shared by all nodes, the lowest configured limit applies. Not limited by default */
+    @FlowKey @Argument
+    private Integer hostConcurrency;
+    /** Path to a file with limits of single hosts, one per line: <code>host rate [burst [maxConcurrent]]</code> */
+    @FlowKey @Argument
+    private String hostLimits;
+    /** Concurrent requests over all hosts, queued requests are sent round-robin over hosts. Not limited by default */
+    @FlowKey @Argument
+    private Integer maxConcurrentRequests;
+
     // --------------
     // COOKIES
     // --------------
@@ -131,7 +163,7 @@ public final class HttpRequest implements Node {
     // CACHING
     // --------------
     /** Caching of results to specified folder on a best-effort basis ignoring IO errors with a TTL of cacheTTLms.
-     * Needs to end with a folder separator */
+     * Needs to end with a folder separator. Responses are stored in sharded segment files indexed by URL */
     @FlowKey
     @Argument
     @EnsureFile
@@ -140,6 +172,22 @@ public final class HttpRequest implements Node {
     @FlowKey
     @Argument
     private Long cacheTTLms;
+    /** Compress cached responses */
+    @FlowKey(defaultValue = "false")
+    @Argument
+    private Boolean cacheCompression;
+    /** Maximum size of the cache in bytes, the oldest responses are evicted. Null means no limit. */
+    @FlowKey
+    @Argument
+    private Long cacheMaxSize;
+    /** Estimated size in bytes of recently used cached responses held in memory, shared by all caches. Null keeps the current size. */
+    @FlowKey
+    @Argument
+    private Long cacheMemorySize;
+    /** Concurrent requests with the same method, URL, payload, headers, proxy, timeouts, bad phrases and cache share one request and its response */
+    @FlowKey(defaultValue = "true")
+    @Argument
+    private Boolean coalesceRequests;
     /** Path to a proxy file */
     @FlowKey
     @Argument
@@ -169,10 +217,35 @@ public final class HttpRequest implements Node {
                 throw new ValidationException("Could not read file at "+proxyFile+". "+e);
             }
         }
+
+        if (cache != null) {
+            try {
+                HttpCache httpCache = n.getJobInstance().getHttpCache();
+                if (cacheCompression) httpCache.setCompression(cache, true);
+                if (cacheMaxSize != null) httpCache.setMaxSize(cache, cacheMaxSize);
+                if (cacheMemorySize != null) httpCache.setMemorySize(cacheMemorySize);
+            } catch (IOException e) {
+                n.log(ERROR,"IO cache open error: {0}", cache);
+                throw new ValidationException("Could not open cache at "+cache+". "+e);
+            }
+        }
+
+        HttpService service = n.getJobInstance().getHttpService();
+        if (hostRate != null || hostConcurrency != null)
+            service.limitHost("*", hostRate == null ? 0 : hostRate, hostBurst, hostConcurrency == null ? 0 : hostConcurrency);
+        if (maxConcurrentRequests != null) service.limitConcurrentRequests(maxConcurrentRequests);
+        if (hostLimits != null) {
+            try {
+                service.addHostLimits(hostLimits);
+            } catch (IOException e) {
+                n.log(ERROR,"IO host limits read error: {0}", hostLimits);
+                throw new ValidationException("Could not read file at "+hostLimits+". "+e);
+            }
+        }
     }
 
     @Override @NotNull
-    public FlowMap process(@NotNull NodeContainer<? extends Node> n, @NotNull final FlowMap o) throws NodeException {
+    public CompletableFuture<FlowMap> processAsync(@NotNull NodeContainer<? extends Node> n, @NotNull final FlowMap o) throws NodeException {
         // evaluate Ts
         String url = o.eval(this.url);
         List<String> exceptionContaining = o.evalIdentity(this.exceptionContaining);
@@ -180,46 +253,114 @@ public final class HttpRequest implements Node {
         // check if file already downloaded
         if(checkFileDownloaded(n, o)) {
             n.log(TRACE, "File already downloaded: {0}", url);
-            return o;
+            return CompletableFuture.completedFuture(o);
         }
 
         // check if response is cached
         if(cached(n, o, url, exceptionContaining)) {
             n.log(TRACE, "Request cached: {0}", url);
-            return o;
+            return CompletableFuture.completedFuture(o);
         }
 
-        ReservationToken token;
-        try {
-            token = n.getJobInstance().getProxyReservation().reserveToken(proxyGroup, proxyMode,0, holdOnReservation);
-        } catch (InterruptedException | TimeoutException e) {
-            e.printStackTrace();
-            n.log(ERROR, "Interrupted while waiting for proxy");
-            throw new NodeException(e, "Interrupted while waiting for proxy");
+        java.net.http.HttpRequest request = buildRequest(n, o, url);
+        HttpService service = n.getJobInstance().getHttpService();
+
+        CompletableFuture<HttpResponse<Object>> response;
+        if (coalesceRequests && expectedResponse.equals(ResponseType.STRING_BODY)) {
+            // the shared request is sent, validated and cached with the settings of the first caller
+            response = service.coalesce(coalescingKey(o, request, exceptionContaining),
+                    () -> send(n, o, url, request, exceptionContaining));
+        } else {
+            response = send(n, o, url, request, exceptionContaining);
         }
 
-        try {
-            // build request
-            java.net.http.HttpRequest request = buildRequest(n, o, url);
-            @SuppressWarnings({"rawtypes"}) // choose bodyhandler by config
-            HttpResponse.BodyHandler handler = null;
-
-            switch (expectedResponse) {
-                case STRING_BODY:
-                    handler = HttpResponse.BodyHandlers.ofString();
-                    break;
+        return response
+                .handle((r, e) -> {
+                    try {
+                        return output(n, o, url, r, e);
+                    } catch (NodeException ex) {
+                        throw new CompletionException(ex);
+                    }
+                })
+                // hold without blocking a thread
+                .thenCompose(fm -> SchedulerUtil.delay(holdOnForward).thenApply(v -> fm));
+    }
 
-                case FILE:
-                    Path download = Paths.get(o.eval(path));
-                    handler = HttpResponse.BodyHandlers.ofFile(download);
-                    break;
+    /**
+     * Requests are equal if they are sent, validated and cached equally.
+     * Headers include cookies and the user agent.
+     */
+    @NotNull
+    private Object coalescingKey(@NotNull FlowMap o, @NotNull java.net.http.HttpRequest request, @NotNull List<String> exceptionContaining) {
+        return Arrays.asList(
+                request.method(), request.uri(), o.evalMaybe(payload).orElse(null), request.headers().map(),
+                proxyGroup, proxyMode, timeout, holdOnReservation,
+                exceptionContaining, cache
+        );
+    }
+
+    /** Sends the request with a token reserved once host limits allow it, a valid response is cached. Shared by coalesced requests */
+    private CompletableFuture<HttpResponse<Object>> send(@NotNull NodeContainer<? extends Node> n, @NotNull FlowMap o,
+                                                        @NotNull String url, @NotNull java.net.http.HttpRequest request,
+                                                        @NotNull List<String> exceptionContaining) {
+        @SuppressWarnings({"rawtypes"}) // choose bodyhandler by config
+        HttpResponse.BodyHandler handler = null;
+
+        switch (expectedResponse) {
+            case STRING_BODY:
+                handler = HttpResponse.BodyHandlers.ofString();
+                break;
+
+            case FILE:
+                Path download = Paths.get(o.eval(path));
+                handler = HttpResponse.BodyHandlers.ofFile(download);
+                break;
+        }
+
+        AtomicReference<ReservationToken> reserved = new AtomicReference<>();
+        Callable<ReservationToken> reservation = () -> {
+            ReservationToken token = n.getJobInstance().getProxyReservation().reserveToken(proxyGroup, proxyMode,0, holdOnReservation);
+            reserved.set(token);
+            return token;
+        };
+        // reserving continues the suspended flow and may wait for a free token
+        Executor continuation = task -> ExecutorsServiceImpl.resume(n.getService(), task);
+
+        HttpService service = n.getJobInstance().getHttpService();
+
+        // TODO use generics
+        @SuppressWarnings({"unchecked"}) // choose bodyhandler by config
+        CompletableFuture<HttpResponse<Object>> response = service.sendAsync(request, handler, reservation, continuation);
+
+        return response.handle((r, e) -> {
+            ReservationToken token = reserved.get();
+            try {
+                if (token == null) throw reservationFailed(n, e);
+                return handle(n, url, exceptionContaining, token, r, e);
+            } catch (NodeException ex) {
+                throw new CompletionException(ex);
+            } finally {
+                if (token != null) token.close();
             }
+        });
+    }
 
-            HttpService service = n.getJobInstance().getHttpService();
+    private NodeException reservationFailed(@NotNull NodeContainer<? extends Node> n, Throwable failure) {
+        Throwable cause = (failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure);
+        if (cause instanceof Error) throw (Error) cause;
+        n.log(ERROR, "Interrupted while waiting for proxy");
+        return new NodeException((Exception) cause, "Interrupted while waiting for proxy");
+    }
 
-            // TODO use generics
-            @SuppressWarnings({"rawtypes", "unchecked"}) // choose bodyhandler by config
-            HttpResponse response = service.send(request, handler, token);
+    private HttpResponse<Object> handle(@NotNull NodeContainer<? extends Node> n, @NotNull String url,
+                                        @NotNull List<String> exceptionContaining, @NotNull ReservationToken token,
+                                        HttpResponse<Object> response, Throwable failure) throws NodeException {
+        try {
+            if (failure != null) {
+                Throwable cause = (failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure);
+                if (cause instanceof Error) throw (Error) cause;
+                throw (Exception) cause;
+            }
 
             Object body = response.body();
 
@@ -228,46 +369,46 @@ public final class HttpRequest implements Node {
             // cache if content not empty
             if(cache != null && body instanceof String)
                 cacheResponse(n, cache, url, (String) body);
-
-            if(expectedResponse.equals(ResponseType.STRING_BODY)) o.output(put, (String) body);
-
-        } catch (InterruptedException e) {
-            n.log(WARN, "Interrupted while waiting for token: {0}", url);
-            throw new NodeException(e, "Interrupted while waiting for token");
         } catch (IOException e) {
             token.bad();
             n.log(INFO, "IOException for request {0}: {1}", url, e.getMessage());
             throw new NodeException(e, "IOException");
-        } catch (ExecutionException e) {
-            n.log(WARN, "Execution exception: {0} | {1}", e.getMessage(), url);
-            token.bad();
-            throw new NodeException(e, "Bad Execution");
         } catch (TimeoutException e) {
             token.bad();
             n.log(INFO, "Token timeout bad: {0} | {1}", token, url);
             throw new NodeException(e, "Timeout");
-        } finally {
-            token.close();
+        } catch (Exception e) {
+            n.log(WARN, "Execution exception: {0} | {1}", e.getMessage(), url);
+            token.bad();
+            throw new NodeException(e, "Bad Execution");
         }
 
-        n.log(INFO,"[✔] {0}", url);
+        return response;
+    }
 
-        try {
-            Thread.sleep(holdOnForward);
-        } catch (InterruptedException e) {
-            n.log(ERROR, "Hold on forward interrupted");
-            throw new NodeException(e, "Hold on forward interrupted");
+    /** Outputs the validated response, which can be shared by coalesced requests */
+    private FlowMap output(@NotNull NodeContainer<? extends Node> n, @NotNull FlowMap o, @NotNull String url,
+                           HttpResponse<Object> response, Throwable failure) throws NodeException {
+        if (failure != null) {
+            Throwable cause = (failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure);
+            if (cause instanceof NodeException) throw (NodeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new NodeException((Exception) cause, "Bad Execution");
         }
 
+        Object body = response.body();
+        if(expectedResponse.equals(ResponseType.STRING_BODY)) o.output(put, (String) body);
+
+        n.log(DEBUG,"[✔] {0}", url);
         return o;
     }
 
     private void validateBody(Object body, List<String> exceptionContaining) throws IOException {
         if(body == null) throw new IOException("Null body");
-        if(body instanceof String) {
-            String content = (String) body;
+        if(body instanceof String && !exceptionContaining.isEmpty()) {
+            String content = ((String) body).toLowerCase();
             for (String badPhrase : exceptionContaining) {
-                if(content.toLowerCase().contains(badPhrase.toLowerCase())) {
+                if(content.contains(badPhrase.toLowerCase())) {
                     throw new IOException("Request contains bad phrase: "+ badPhrase);
                 }
             }
@@ -347,10 +488,9 @@ public final class HttpRequest implements Node {
     }
 
     private void cacheResponse(NodeContainer<? extends Node> n, String cache, String url, String content) {
-        String file = urlToCachedFilename(url);
+        if(content.isEmpty()) return;
         try {
-            n.getJobInstance().getFileService().ensureFile(cache+file);
-            n.getJobInstance().getFileService().replaceFile(cache+file, content);
+            n.getJobInstance().getHttpCache().put(cache, url, content);
         } catch (IOException e) {
             n.log(ERROR,"Could not cache content: {0}", e.getMessage());
         }
@@ -397,48 +537,21 @@ public final class HttpRequest implements Node {
     }
 
     private String getCached(NodeContainer<? extends Node> n, String cache, String url, List<String> exceptionContaining) {
-        String filename = urlToCachedFilename(url);
-        File f = Paths.get(cache, filename).toFile();
-        if(!f.exists()) return null;
-
-        // get cache TTL, delete if exceeded
-        if(cacheTTLms != null) {
-            long lstModifiedMs = f.lastModified();
-            long currentMs = System.currentTimeMillis();
-            long diff = currentMs - lstModifiedMs;
-            long cacheMs = cacheTTLms;
-            if ((cacheMs - diff) <= 0) {
-                // TTL exceeded
-                boolean delete = f.delete();
-                if(!delete) n.log(WARN,"Could not delete cached file: {0}", url);
-                return null;
-            }
-        }
-
-        // try to read
+        HttpCache httpCache = n.getJobInstance().getHttpCache();
         try {
-            String cached = StringUtil.readBody(f);
-            if(cached.isEmpty()) {
-                n.log(INFO,"Found empty cache file, deleting cache for {0}", url);
-                if(!f.delete()) n.log(WARN,"Could not delete empty cache file: {0}", f.getPath());
-                return null;
-            }
-
-            try {
-                validateBody(cached, exceptionContaining);
-            } catch (Exception e) {
-                n.log(WARN,"Invalidating cache file with invalid content: {0}", e.getMessage());
-                if(!f.delete()) n.log(WARN,"Could not delete invalid cache file: {0}", f.getPath());
-                return null;
-            }
-            return cached;
+            // a response held in memory is validated once per list of bad phrases
+            return httpCache.get(cache, url, cacheTTLms, exceptionContaining, cached -> {
+                try {
+                    validateBody(cached, exceptionContaining);
+                    return true;
+                } catch (IOException e) {
+                    n.log(WARN,"Invalidating cached response with invalid content: {0}", e.getMessage());
+                    return false;
+                }
+            }).orElse(null);
         } catch (IOException e) {
-            n.log(WARN,"Could not read cached file content: {0}", e);
+            n.log(WARN,"Could not read cached response: {0}", e);
             return null;
         }
     }
-
-    private String urlToCachedFilename(String url) {
-        return Base64.getUrlEncoder().encodeToString(url.getBytes());
-    }
 }
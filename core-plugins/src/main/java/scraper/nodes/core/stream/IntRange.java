@@ -39,10 +39,10 @@ public final class IntRange implements StreamNode {
 
     @Override
     public void process(@NotNull final StreamNodeContainer n, @NotNull final FlowMap o) {
-        IntStream.rangeClosed(from, to).forEach(i ->{
+        n.streamFlowMaps(o, () -> IntStream.rangeClosed(from, to).mapToObj(i -> {
             FlowMap copy = o.copy();
             copy.output(output, i);
-            n.streamFlowMap(o, copy);
-        });
+            return copy;
+        }).iterator());
     }
 }
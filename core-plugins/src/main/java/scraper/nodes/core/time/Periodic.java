@@ -12,7 +12,9 @@ import scraper.api.node.container.NodeContainer;
 import scraper.api.node.type.FunctionalNode;
 import scraper.api.node.type.Node;
 import scraper.api.specification.ScrapeInstance;
+import scraper.api.specification.impl.ScrapeInstaceImpl;
 import scraper.api.template.T;
+import scraper.core.FlowTracker;
 
 import java.util.Timer;
 import java.util.TimerTask;
@@ -24,6 +26,7 @@ import static scraper.api.node.container.NodeLogLevel.DEBUG;
 /**
  * Executes a given node periodically.
  * Periodic execution can start at initialization or on first accept call, controlled via the flag.
+ * While dispatch is enabled, the job is not complete. Dispatch stops if the job is drained.
  */
 @NodePlugin(value = "1.1.0")
 @Stateful
@@ -42,17 +45,33 @@ public final class Periodic implements FunctionalNode {
     @FlowKey(defaultValue = "true")
     private final T<Boolean> flag = new T<>(){};
 
+    /** Flows of jobs which do not track their flows */
+    private static final FlowTracker UNTRACKED = new FlowTracker();
+
     private final AtomicBoolean started = new AtomicBoolean(false);
     private final AtomicBoolean dispatch = new AtomicBoolean(false);
+    /** True while this node counts as a running flow of its job */
+    private final AtomicBoolean holding = new AtomicBoolean(false);
+    private ScrapeInstance job;
     private FlowMap o;
     private Timer timer;
     private TimerTask timerTask;
 
     @Override
     public void init(@NotNull NodeContainer<? extends Node> n, @NotNull final ScrapeInstance job) {
+        this.job = job;
         timerTask = new TimerTask() {
             @Override
             public void run() {
+                if(flows().isDraining()) {
+                    n.log(DEBUG,"Job is draining, stopping periodic dispatch of {0}", onPeriod);
+                    dispatch.set(false);
+                    release();
+                    cancel();
+                    timer.cancel();
+                    return;
+                }
+
                 if(started.get() && dispatch.get()) {
                     n.log(DEBUG,"Dispatching {0}", onPeriod);
                     final FlowMap oCopy = o.copy();
@@ -65,8 +84,9 @@ public final class Periodic implements FunctionalNode {
     @Override
     public void modify(@NotNull FunctionalNodeContainer n, @NotNull final FlowMap o) {
         boolean flag = o.eval(this.flag);
-        dispatch.set(flag);
         this.o = o.copy();
+        dispatch.set(flag);
+        if (flag) hold(); else release();
 
         if (!started.getAndSet(true)) {
             timer = new Timer(false);
@@ -74,4 +94,16 @@ public final class Periodic implements FunctionalNode {
         }
     }
 
+    private void hold() {
+        if (!holding.getAndSet(true)) flows().started();
+    }
+
+    private void release() {
+        if (holding.getAndSet(false)) flows().finished();
+    }
+
+    /** Resolved on use, imported jobs share the flows of the importing job after init */
+    private FlowTracker flows() {
+        return (job instanceof ScrapeInstaceImpl ? ((ScrapeInstaceImpl) job).getFlows() : UNTRACKED);
+    }
 }
@@ -1,6 +1,7 @@
 package scraper.core;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import scraper.api.exceptions.NodeException;
 import scraper.api.exceptions.ValidationException;
 import scraper.api.flow.FlowMap;
@@ -13,13 +14,24 @@ import scraper.api.specification.impl.ScrapeInstaceImpl;
 import scraper.util.TemplateUtil;
 import scraper.utils.ClassUtil;
 
+import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.ReflectPermission;
 import java.net.URL;
+import java.nio.file.Path;
 import java.security.Permission;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static scraper.util.NodeUtil.addressOf;
@@ -27,6 +39,9 @@ import static scraper.util.NodeUtil.addressOf;
 @SuppressWarnings("rawtypes") // testing abstract node
 public class AbstractNodeTest {
 
+    @TempDir
+    Path files;
+
     private ScrapeInstaceImpl getInstance(String base, String file) throws IOException, ValidationException {
         URL baseurl = getClass().getResource(base);
         return InstanceHelper.getInstance(baseurl, file);
@@ -135,6 +150,90 @@ public class AbstractNodeTest {
 
     }
 
+    @Test
+    public void disabledLevelsAreNotEvaluatedTest() throws Exception {
+        ScrapeInstaceImpl instance = getInstance("abstract", "job2.jf");
+        NodeContainer<? extends Node> node = opt(instance);
+
+        // INFO threshold resolved at init
+        assertFalse(node.isEnabled(NodeLogLevel.TRACE));
+        assertFalse(node.isEnabled(NodeLogLevel.DEBUG));
+        assertTrue(node.isEnabled(NodeLogLevel.ERROR));
+
+        AtomicBoolean supplied = new AtomicBoolean(false);
+        node.log(NodeLogLevel.TRACE, () -> { supplied.set(true); return "not logged"; });
+        assertFalse(supplied.get());
+
+        node.log(NodeLogLevel.ERROR, () -> { supplied.set(true); return "logged"; });
+        assertTrue(supplied.get());
+    }
+
+    @Test
+    public void asyncLogSinkTest() throws Exception {
+        ScrapeInstaceImpl instance = getInstance("abstract", "job2.jf");
+        AsyncLogSink sink = new AsyncLogSink(1);
+        instance.setLogSink(sink);
+        NodeContainer<? extends Node> node = opt(instance);
+
+        Thread caller = Thread.currentThread();
+        AtomicInteger byCaller = new AtomicInteger();
+        CountDownLatch writerBusy = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch delivered = new CountDownLatch(10);
+        ((AbstractNode) node).l = new System.Logger() {
+            @Override public String getName() { return "counting"; }
+            @Override public boolean isLoggable(Level level) { return true; }
+            @Override public void log(Level level, ResourceBundle bundle, String msg, Throwable thrown) { delivered.countDown(); }
+            @Override public void log(Level level, ResourceBundle bundle, String format, Object... params) {
+                if (Thread.currentThread() == caller) byCaller.incrementAndGet();
+                else if (writerBusy.getCount() > 0) {
+                    writerBusy.countDown();
+                    try { release.await(); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+                }
+                delivered.countDown();
+            }
+        };
+
+        // the writer is busy with the first message and the second one fills the queue
+        node.log(NodeLogLevel.WARN, "message {0} of {1}", 0, node);
+        assertTrue(writerBusy.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i < 10; i++) node.log(NodeLogLevel.WARN, "message {0} of {1}", i, node);
+
+        // a full queue is logged by the caller
+        assertEquals(8, byCaller.get());
+        sink.flush();
+        assertEquals(9, byCaller.get());
+
+        release.countDown();
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+
+        FlowMap o = FlowMapImpl.origin();
+        node.getC().accept(node, o);
+    }
+
+    @Test
+    public void asyncLogSinkSurvivesFailingHandlersTest() throws Exception {
+        AsyncLogSink sink = new AsyncLogSink(16);
+        AtomicInteger written = new AtomicInteger();
+        System.Logger failing = new System.Logger() {
+            @Override public String getName() { return "failing"; }
+            @Override public boolean isLoggable(Level level) { return true; }
+            @Override public void log(Level level, ResourceBundle bundle, String msg, Throwable thrown) { throw new IllegalStateException("closed"); }
+            @Override public void log(Level level, ResourceBundle bundle, String format, Object... params) {
+                written.incrementAndGet();
+                throw new IllegalStateException("closed");
+            }
+        };
+
+        for (int i = 0; i < 3; i++) sink.log(failing, System.Logger.Level.INFO, "message {0}", i);
+        sink.flush();
+
+        // messages after a failing one are still written
+        sink.log(failing, System.Logger.Level.INFO, "last");
+        for (int i = 0; i < 100 && written.get() < 4; i++) Thread.sleep(10);
+        assertEquals(4, written.get());
+    }
+
 
     @Test
     public void goodListGoToTest() throws Exception {
@@ -203,20 +302,19 @@ public class AbstractNodeTest {
     }
 
     // inject IllegalAccessException on reflection access to get code coverage
+    // ensure file fields are accessed once during init, not on start
     @Test
     public void reflectionCodeCoverageTestStart() throws Exception {
-        assertThrows(RuntimeException.class, () -> {
+        assertThrows(ValidationException.class, () -> {
             SecurityManager sm = System.getSecurityManager();
 
             try {
-                ScrapeInstaceImpl instance = getInstance("abstract", "file-node.jf");
-
                 System.setSecurityManager(new SecurityManager() {
                     @Override
                     public void checkPermission(Permission perm) {
                         if (perm instanceof ReflectPermission && "suppressAccessChecks".equals(perm.getName())) {
                             for (StackTraceElement elem : Thread.currentThread().getStackTrace()) {
-                                if ("scraper.core.AbstractNode".equals(elem.getClassName()) && "start".equals(elem.getMethodName())) {
+                                if ("scraper.core.EnsureFilePlan".equals(elem.getClassName()) && "of".equals(elem.getMethodName())) {
                                     ClassUtil.sneakyThrow(new IllegalAccessException("Illegal Access!"));
                                 }
                             }
@@ -224,9 +322,7 @@ public class AbstractNodeTest {
                     }
                 });
 
-                NodeContainer<? extends Node> node = opt(instance);
-                FlowMap o = FlowMapImpl.origin();
-                ((AbstractNode<?>) node).start(node, o);
+                getInstance("abstract", "file-node.jf");
             } finally {
                 System.setSecurityManager(sm);
             }
@@ -253,6 +349,35 @@ public class AbstractNodeTest {
         node.getC().accept(node, o);
     }
 
+    @Test
+    public void ensureFilesOnceTest() throws Exception {
+        File staticFile = files.resolve("static").toFile();
+        File templatedFile = files.resolve("templated").toFile();
+
+        // static paths are ensured during init
+        ScrapeInstaceImpl instance = InstanceHelper.job("once", List.of(
+                Map.of("type", "File", "file", staticFile.getPath(), "filet", files.resolve("{name}").toString())
+        ), Set.of());
+        assertTrue(staticFile.exists());
+        assertFalse(templatedFile.exists());
+
+        NodeContainer<? extends Node> node = opt(instance);
+        node.getC().accept(node, FlowMapImpl.origin(Map.of("name", "templated")));
+        assertTrue(templatedFile.exists());
+
+        // ensured paths are remembered
+        assertTrue(staticFile.delete());
+        assertTrue(templatedFile.delete());
+        node.getC().accept(node, FlowMapImpl.origin(Map.of("name", "templated")));
+        assertFalse(staticFile.exists());
+        assertFalse(templatedFile.exists());
+
+        ((AbstractNode) node).invalidateEnsuredFiles();
+        node.getC().accept(node, FlowMapImpl.origin(Map.of("name", "templated")));
+        assertTrue(staticFile.exists());
+        assertTrue(templatedFile.exists());
+    }
+
     @Test
     public void badNodeTest() throws Exception {
         assertThrows(ValidationException.class, () -> {
@@ -351,6 +476,45 @@ public class AbstractNodeTest {
                         });
     }
 
+    @Test
+    public void forkedFlowsAreTrackedUntilTerminatedTest() throws Exception {
+        ScrapeInstaceImpl instance = InstanceHelper.linearJob(3);
+        NodeContainer<? extends Node> entry = opt(instance);
+        FlowTracker flows = instance.getFlows();
+
+        for (int i = 0; i < 10; i++) entry.forkDispatch(FlowMapImpl.origin(), entry.getAddress());
+
+        assertTrue(flows.awaitQuiescence(Duration.ofSeconds(5)));
+        assertEquals(0L, flows.getInFlight());
+        assertEquals(10L, flows.getTotal());
+        assertNotNull(flows.getLastQuiescent());
+    }
+
+    @Test
+    public void forkDependAllReturnsFlowsInOrderTest() throws Exception {
+        ScrapeInstaceImpl instance = InstanceHelper.linearJob(2);
+        NodeContainer<? extends Node> entry = opt(instance);
+
+        List<FlowMap> flows = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) flows.add(FlowMapImpl.origin(Map.of("i", i)));
+
+        List<CompletableFuture<FlowMap>> futures = entry.forkDependAll(flows, entry.getAddress());
+        ForkedFlow.joinAll(futures);
+        for (int i = 0; i < futures.size(); i++)
+            assertEquals(i, ((FlowMapImpl) futures.get(i).get()).getPrivateMap().get("i"));
+
+        assertTrue(instance.getFlows().awaitQuiescence(Duration.ofSeconds(5)));
+        assertEquals(2000L, instance.getFlows().getTotal());
+    }
+
+    @Test
+    public void batchSizeTest() {
+        assertEquals(1, AbstractNode.batchSize(10, 100));
+        assertEquals(2, AbstractNode.batchSize(10, 0));
+        assertEquals(5, AbstractNode.batchSize(2000, 100));
+        assertEquals(AbstractNode.MAX_BATCH, AbstractNode.batchSize(1_000_000, 4));
+    }
+
     private NodeContainer<? extends Node> opt(ScrapeInstance i) {
         Optional<NodeContainer<? extends Node>> e = i.getEntry();
         assertTrue(e.isPresent());
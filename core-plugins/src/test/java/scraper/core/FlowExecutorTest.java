@@ -0,0 +1,116 @@
+package scraper.core;
+
+import org.junit.jupiter.api.Test;
+import scraper.annotations.NotNull;
+import scraper.api.flow.FlowMap;
+import scraper.api.flow.impl.FlowMapImpl;
+import scraper.api.node.container.NodeContainer;
+import scraper.api.node.type.Node;
+import scraper.api.plugin.NodeHook;
+import scraper.api.specification.impl.ScrapeInstaceImpl;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FlowExecutorTest {
+
+    @Test
+    public void deepGraphRunsInConstantStackDepthTest() throws Exception {
+        ScrapeInstaceImpl instance = InstanceHelper.linearJob(1000);
+        NodeContainer<? extends Node> entry = instance.getEntry().orElseThrow();
+
+        AtomicReference<Object> result = new AtomicReference<>();
+        // a small stack overflows if every hop nests accept and forward calls
+        Thread t = new Thread(null, () -> {
+            try {
+                FlowMap o = entry.getC().accept(entry, FlowMapImpl.origin());
+                result.set(((FlowMapImpl) o).getPrivateMap().get("last"));
+            } catch (Throwable e) {
+                result.set(e);
+            }
+        }, "deep-flow", 256 * 1024);
+        t.start();
+        t.join();
+
+        assertEquals(999, result.get());
+    }
+
+    @Test
+    public void hopHooksAreCalledBetweenNodesTest() throws Exception {
+        ScrapeInstaceImpl instance = InstanceHelper.linearJob(10);
+        NodeContainer<? extends Node> entry = instance.getEntry().orElseThrow();
+
+        AtomicInteger hops = new AtomicInteger();
+        FlowExecutor executor = ((AbstractNode<?>) entry).getFlowExecutor();
+        executor.addHopHook((origin, target, o) -> {
+            assertEquals(origin.getAddress().getIndex() + 1, (int) target.getAddress().getIndex());
+            hops.incrementAndGet();
+        });
+
+        executor.run(entry, FlowMapImpl.origin());
+        assertEquals(9, hops.get());
+    }
+
+    @Test
+    public void basicHookIsOnlyBoundIfNeededTest() throws Exception {
+        NodeContainer<? extends Node> entry = InstanceHelper.linearJob(1).getEntry().orElseThrow();
+        assertTrue(entry.hooks().isEmpty());
+
+        NodeContainer<? extends Node> logging = InstanceHelper.getInstance(getClass().getResource("executor"), "logging.yf")
+                .getEntry().orElseThrow();
+        assertEquals(1, logging.hooks().size());
+    }
+
+    @Test
+    public void hooksAreOnlyCalledInDeclaredPhasesTest() throws Exception {
+        AtomicInteger before = new AtomicInteger();
+        AtomicInteger after = new AtomicInteger();
+        NodeHook afterOnly = new NodeHook() {
+            @Override public void beforeProcess(@NotNull NodeContainer<? extends Node> n, @NotNull FlowMap o) { before.incrementAndGet(); }
+            @Override public void afterProcess(@NotNull NodeContainer<? extends Node> n, @NotNull FlowMap o) { after.incrementAndGet(); }
+            @NotNull @Override public Set<Phase> phases() { return EnumSet.of(Phase.AFTER_PROCESS); }
+        };
+
+        ScrapeInstaceImpl instance = InstanceHelper.linearJob(10, Set.of(afterOnly));
+        NodeContainer<? extends Node> entry = instance.getEntry().orElseThrow();
+        assertTrue(entry.hooks(NodeHook.Phase.BEFORE_PROCESS).isEmpty());
+        assertEquals(List.of(afterOnly), List.copyOf(entry.hooks(NodeHook.Phase.AFTER_PROCESS)));
+
+        entry.getC().accept(entry, FlowMapImpl.origin());
+        assertEquals(0, before.get());
+        assertEquals(10, after.get());
+    }
+
+    @Test
+    public void asyncNodesSuspendForkedFlowsTest() throws Exception {
+        ScrapeInstaceImpl instance = InstanceHelper.getInstance(getClass().getResource("executor"), "async.yf");
+        NodeContainer<? extends Node> entry = instance.getEntry().orElseThrow();
+
+        List<FlowMap> flows = new ArrayList<>();
+        for (int i = 0; i < 50; i++) flows.add(FlowMapImpl.origin(Map.of("i", i)));
+
+        // a single thread would need 10 seconds if the sleeping flows blocked it
+        long start = System.nanoTime();
+        List<CompletableFuture<FlowMap>> futures = entry.forkDependAll(flows, entry.getAddress());
+        ForkedFlow.joinAll(futures);
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofSeconds(5)) < 0);
+
+        for (int i = 0; i < futures.size(); i++)
+            assertEquals(i, ((FlowMapImpl) futures.get(i).get()).getPrivateMap().get("last"));
+        assertTrue(instance.getFlows().awaitQuiescence(Duration.ofSeconds(5)));
+        assertEquals(50L, instance.getFlows().getTotal());
+
+        // evaluated synchronously, the calling thread waits
+        FlowMap o = entry.getC().accept(entry, FlowMapImpl.origin(Map.of("i", 42)));
+        assertEquals(42, ((FlowMapImpl) o).getPrivateMap().get("last"));
+    }
+}
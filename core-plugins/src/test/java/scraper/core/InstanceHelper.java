@@ -2,21 +2,26 @@ package scraper.core;
 
 import scraper.api.di.DIContainer;
 import scraper.api.exceptions.ValidationException;
+import scraper.api.plugin.NodeHook;
 import scraper.api.plugin.ScrapeSpecificationParser;
 import scraper.api.specification.ScrapeSpecification;
 import scraper.api.specification.impl.ScrapeInstaceImpl;
+import scraper.api.specification.impl.ScrapeSpecificationImpl;
 import scraper.util.DependencyInjectionUtil;
 
 import java.io.IOException;
 import java.net.URL;
 import java.nio.file.Path;
-import java.util.Collection;
-import java.util.Objects;
+import java.util.*;
 
 public class InstanceHelper {
     private static final DIContainer deps = DependencyInjectionUtil.getDIContainer();
 
-    static ScrapeInstaceImpl getInstance(URL base, String scrapeFile, String... args) throws IOException, ValidationException {
+    public static ScrapeInstaceImpl getInstance(URL base, String scrapeFile, String... args) throws IOException, ValidationException {
+        return getInstance(base, scrapeFile, Set.of(), args);
+    }
+
+    public static ScrapeInstaceImpl getInstance(URL base, String scrapeFile, Collection<NodeHook> hooks, String... args) throws IOException, ValidationException {
         ScrapeSpecification spec = null;
 
         Collection<ScrapeSpecificationParser> parsers = deps.getCollection(ScrapeSpecificationParser.class);
@@ -29,6 +34,28 @@ public class InstanceHelper {
         }
 
 
-        return Objects.requireNonNull(deps.get(JobFactory.class)).convertScrapeJob(spec);
+        return Objects.requireNonNull(deps.get(JobFactory.class)).convertScrapeJob(spec, hooks);
+    }
+
+    /** Job of one graph with the given number of Echo nodes, each puts its index into <var>last</var> */
+    public static ScrapeInstaceImpl linearJob(int nodes) throws IOException, ValidationException {
+        return linearJob(nodes, Set.of());
+    }
+
+    public static ScrapeInstaceImpl linearJob(int nodes, Collection<NodeHook> hooks) throws IOException, ValidationException {
+        List<Map<String, Object>> graph = new ArrayList<>();
+        for (int i = 0; i < nodes; i++) graph.add(Map.of("type", "Echo", "put", "last", "value", i));
+
+        return job("linear", graph, hooks);
+    }
+
+    /** Job of a single graph, for nodes configured at runtime */
+    public static ScrapeInstaceImpl job(String name, List<Map<String, Object>> graph, Collection<NodeHook> hooks) throws IOException, ValidationException {
+        ScrapeSpecificationImpl spec = new ScrapeSpecificationImpl();
+        spec.setName(name);
+        spec.setScrapeFile(Path.of(name + ".jf"));
+        spec.setGraphs(Map.of("start", graph));
+
+        return Objects.requireNonNull(deps.get(JobFactory.class)).convertScrapeJob(spec, hooks);
     }
 }
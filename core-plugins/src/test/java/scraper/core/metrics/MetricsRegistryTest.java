@@ -0,0 +1,41 @@
+package scraper.core.metrics;
+
+import org.junit.jupiter.api.Test;
+import scraper.api.flow.impl.FlowMapImpl;
+import scraper.api.node.container.NodeContainer;
+import scraper.api.node.container.NodeMetrics;
+import scraper.api.node.type.Node;
+import scraper.api.specification.impl.ScrapeInstaceImpl;
+import scraper.core.AbstractNode;
+import scraper.core.FlowExecutor;
+import scraper.core.InstanceHelper;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsRegistryTest {
+
+    @Test
+    public void metricsAreRecordedPerNodeTest() throws Exception {
+        ScrapeInstaceImpl instance = InstanceHelper.linearJob(3);
+        NodeContainer<? extends Node> entry = instance.getEntry().orElseThrow();
+        assertTrue(entry.getMetrics().isEmpty());
+
+        MetricsRegistry registry = new MetricsRegistry();
+        for (NodeContainer<? extends Node> node : instance.getAllNodes())
+            ((AbstractNode<?>) node).setMetrics(registry.metricsOf(node.getAddress()));
+
+        FlowExecutor executor = ((AbstractNode<?>) entry).getFlowExecutor();
+        for (int i = 0; i < 5; i++) executor.run(entry, FlowMapImpl.origin());
+        entry.forkDepend(FlowMapImpl.origin(), entry.getAddress()).get();
+
+        NodeMetrics metrics = entry.getMetrics().orElseThrow();
+        assertEquals(6L, metrics.getProcessed());
+        assertEquals(0L, metrics.getExceptions());
+        assertEquals(1L, metrics.getForks());
+        assertTrue(metrics.getLatency(0.5) <= metrics.getLatency(0.99));
+
+        assertEquals(3, registry.getMetrics().size());
+        assertEquals(4, registry.toCsv().split("\n").length);
+        assertTrue(registry.toJson().contains("\"processed\" : 6"));
+    }
+}
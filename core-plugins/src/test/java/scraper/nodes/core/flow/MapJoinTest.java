@@ -2,6 +2,9 @@ package scraper.nodes.core.flow;
 
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 import static scraper.test.WorkflowTest.resource;
 import static scraper.test.WorkflowTest.runWith;
 
@@ -12,5 +15,16 @@ public class MapJoinTest {
     public void simpleMapJoin() {
         runWith(resource(MapJoinTest.class, "mapjoin/simple.yf"));
     }
-}
 
+    @Test
+    public void distinctMapJoin() {
+        runWith(resource(MapJoinTest.class, "mapjoin/distinct.yf"));
+    }
+
+    @Test
+    public void nestedMapJoinInSameServiceDoesNotStarve() {
+        // all threads of the service join flows which are queued in the same service
+        assertTimeoutPreemptively(Duration.ofSeconds(20), () ->
+                runWith(resource(MapJoinTest.class, "mapjoin/nested-same-service.yf")));
+    }
+}
@@ -0,0 +1,58 @@
+package scraper.nodes.core.flow;
+
+import org.junit.jupiter.api.Test;
+import scraper.annotations.NotNull;
+import scraper.api.flow.FlowMap;
+import scraper.api.flow.impl.FlowMapImpl;
+import scraper.api.node.container.NodeContainer;
+import scraper.api.node.type.Node;
+import scraper.api.plugin.NodeHook;
+import scraper.api.specification.impl.ScrapeInstaceImpl;
+import scraper.core.InstanceHelper;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static scraper.test.WorkflowTest.resource;
+import static scraper.test.WorkflowTest.runWith;
+
+
+public class WindowedMapTest {
+
+    @Test
+    public void orderedJoin() {
+        runWith(resource(WindowedMapTest.class, "windowedmap/ordered.yf"));
+    }
+
+    @Test
+    public void stopsDispatchOnStopKey() {
+        runWith(resource(WindowedMapTest.class, "windowedmap/stop.yf"));
+    }
+
+    @Test
+    public void stopCancelsFlowsWhichHaveNotStarted() throws Exception {
+        AtomicInteger mapped = new AtomicInteger();
+        NodeHook counting = new NodeHook() {
+            @Override public void beforeProcess(@NotNull NodeContainer<? extends Node> n, @NotNull FlowMap o) {
+                if(n.getAddress().toString().contains("target") && n.getAddress().getIndex() == 0) mapped.incrementAndGet();
+            }
+        };
+
+        ScrapeInstaceImpl instance = InstanceHelper.getInstance(resource(WindowedMapTest.class, "windowedmap"), "stop.yf", Set.of(counting));
+        NodeContainer<? extends Node> entry = instance.getEntry().orElseThrow();
+        entry.getC().accept(entry, FlowMapImpl.origin());
+
+        // both threads of the map service are busy with slow flows when the first flow stops the map
+        assertTrue(mapped.get() <= 3, "At most 3 of 4 dispatched flows run, were " + mapped.get());
+        assertTrue(instance.getFlows().awaitQuiescence(Duration.ofSeconds(5)));
+    }
+
+    @Test
+    public void nestedWindowedMapInSameServiceDoesNotStarve() {
+        assertTimeoutPreemptively(Duration.ofSeconds(20), () ->
+                runWith(resource(WindowedMapTest.class, "windowedmap/nested-same-service.yf")));
+    }
+}
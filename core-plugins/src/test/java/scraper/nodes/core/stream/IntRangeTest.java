@@ -0,0 +1,59 @@
+package scraper.nodes.core.stream;
+
+import org.junit.jupiter.api.Test;
+import scraper.annotations.NotNull;
+import scraper.api.exceptions.NodeException;
+import scraper.api.flow.FlowMap;
+import scraper.api.flow.impl.FlowMapImpl;
+import scraper.api.node.container.NodeContainer;
+import scraper.api.node.type.Node;
+import scraper.api.plugin.NodeHook;
+import scraper.api.specification.impl.ScrapeInstaceImpl;
+import scraper.core.InstanceHelper;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static scraper.test.WorkflowTest.resource;
+import static scraper.test.WorkflowTest.runWith;
+
+
+public class IntRangeTest {
+
+    @Test
+    public void collectRange() {
+        runWith(resource(IntRangeTest.class, "intrange-collect.yf"));
+    }
+
+    @Test
+    public void streamWindowBoundsStreamedFlowsTest() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        AtomicInteger processed = new AtomicInteger();
+        NodeHook concurrency = new NodeHook() {
+            @Override public void beforeProcess(@NotNull NodeContainer<? extends Node> n, @NotNull FlowMap o) throws NodeException {
+                if(!n.getAddress().toString().contains("leaf")) return;
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try { Thread.sleep(1); } catch (InterruptedException e) { throw new NodeException(e, "interrupted"); }
+            }
+            @Override public void afterProcess(@NotNull NodeContainer<? extends Node> n, @NotNull FlowMap o) {
+                if(!n.getAddress().toString().contains("leaf")) return;
+                running.decrementAndGet();
+                processed.incrementAndGet();
+            }
+        };
+
+        ScrapeInstaceImpl instance = InstanceHelper.getInstance(resource(IntRangeTest.class, "window"), "intrange-window.yf", Set.of(concurrency));
+        NodeContainer<? extends Node> entry = instance.getEntry().orElseThrow();
+
+        entry.getC().accept(entry, FlowMapImpl.origin());
+        assertTrue(instance.getFlows().awaitQuiescence(Duration.ofSeconds(10)));
+
+        assertEquals(100, processed.get());
+        assertTrue(maxRunning.get() <= 3, "At most 3 streamed flows at a time, was " + maxRunning.get());
+    }
+
+}
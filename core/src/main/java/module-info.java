@@ -10,6 +10,7 @@ open module scraper.core {
 
     exports scraper.core;
     exports scraper.core.template;
+    exports scraper.core.metrics;
     exports scraper.util;
     exports scraper.api.flow.impl;
     exports scraper.api.specification.impl;
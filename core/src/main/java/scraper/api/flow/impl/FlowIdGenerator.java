@@ -0,0 +1,19 @@
+package scraper.api.flow.impl;
+
+import scraper.annotations.NotNull;
+
+import java.util.UUID;
+
+/**
+ * Generates the ids of new flows.
+ */
+@FunctionalInterface
+public interface FlowIdGenerator {
+    /** Returns a new id which is unique for the lifetime of the JVM */
+    @NotNull
+    UUID newId();
+
+    /** Random ids, every id is generated with a secure random number generator */
+    @NotNull
+    static FlowIdGenerator random() { return UUID::randomUUID; }
+}
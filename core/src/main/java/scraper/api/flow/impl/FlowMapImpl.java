@@ -33,32 +33,52 @@ public class FlowMapImpl extends IdentityEvaluator implements FlowMap {
     private int sequence = 0;
     private UUID uuid;
 
+    /** Id generator of this flow, inherited by new flows */
+    private final FlowIdGenerator ids;
+
+    /** Id generator used for flows which are not created by another flow */
+    private static volatile FlowIdGenerator defaultIds = new SequentialFlowIdGenerator();
+
     public FlowMapImpl(
             @NotNull ConcurrentMap<String, Object> privateMap,
             UUID parentId,
             UUID uuid,
             Integer parentSequence,
             int sequence
+    ) {
+        this(privateMap, parentId, uuid, parentSequence, sequence, defaultIds);
+    }
+
+    public FlowMapImpl(
+            @NotNull ConcurrentMap<String, Object> privateMap,
+            UUID parentId,
+            UUID uuid,
+            Integer parentSequence,
+            int sequence,
+            @NotNull FlowIdGenerator ids
     ) {
         this.privateMap = privateMap;
         this.parentId = parentId;
         this.parentSequence = parentSequence;
         this.uuid = uuid;
         this.sequence = sequence;
+        this.ids = ids;
     }
 
     public FlowMapImpl(@NotNull UUID parentId, Integer parentSequence) {
         privateMap = new ConcurrentHashMap<>();
         this.parentId = parentId;
         this.parentSequence = parentSequence;
-        uuid = UUID.randomUUID();
+        ids = defaultIds;
+        uuid = ids.newId();
     }
 
     public FlowMapImpl() {
         privateMap = new ConcurrentHashMap<>();
         parentId = null;
         parentSequence = null;
-        uuid = UUID.randomUUID();
+        ids = defaultIds;
+        uuid = ids.newId();
     }
 
 
@@ -67,9 +87,25 @@ public class FlowMapImpl extends IdentityEvaluator implements FlowMap {
     }
 
     public static FlowMap origin(Map<String, Object> args) {
-        FlowMapImpl o = new FlowMapImpl();
-        args.forEach((k,v) -> o.getPrivateMap().putAll(args));
-        return o;
+        return origin(args, defaultIds);
+    }
+
+    public static FlowMap origin(Map<String, Object> args, @NotNull FlowIdGenerator ids) {
+        return new FlowMapImpl(new ConcurrentHashMap<>(args), null, ids.newId(), null, 0, ids);
+    }
+
+    /** Origin flow backed by a persistent map, copies of this flow share structure and are O(1) */
+    public static FlowMap persistentOrigin(Map<String, Object> args) {
+        return persistentOrigin(args, defaultIds);
+    }
+
+    public static FlowMap persistentOrigin(Map<String, Object> args, @NotNull FlowIdGenerator ids) {
+        return new FlowMapImpl(new PersistentConcurrentMap<>(args), null, ids.newId(), null, 0, ids);
+    }
+
+    /** Sets the id generator for flows which are not created by another flow */
+    public static void setDefaultIdGenerator(@NotNull FlowIdGenerator ids) {
+        defaultIds = ids;
     }
 
     @NotNull
@@ -222,7 +258,7 @@ public class FlowMapImpl extends IdentityEvaluator implements FlowMap {
     @NotNull
     @Override
     public FlowMap newFlow() {
-        return new FlowMapImpl(privateMap, uuid, UUID.randomUUID(), sequence, 0);
+        return new FlowMapImpl(privateMap, uuid, ids.newId(), sequence, 0, ids);
     }
 
     private boolean descendMap(@NotNull final Map<?,?> currentMap, @NotNull final Map<?,?> otherMap) {
@@ -277,13 +313,17 @@ public class FlowMapImpl extends IdentityEvaluator implements FlowMap {
 //        return new FlowMapImpl(new ConcurrentHashMap<>(Objects.requireNonNullElseGet(initialArguments, Map::of)));
 //    }
 
-    public static synchronized @NotNull FlowMapImpl copy(final @NotNull FlowMap o) {
+    public static @NotNull FlowMapImpl copy(final @NotNull FlowMap o) {
+        ConcurrentMap<String, Object> map = ((FlowMapImpl) o).privateMap;
         return new FlowMapImpl(
-                new ConcurrentHashMap<>(((FlowMapImpl) o).privateMap),
+                (map instanceof PersistentConcurrentMap
+                        ? ((PersistentConcurrentMap<String, Object>) map).snapshot()
+                        : new ConcurrentHashMap<>(map)),
                 ((FlowMapImpl) o).parentId,
                 ((FlowMapImpl) o).uuid,
                 ((FlowMapImpl) o).parentSequence,
-                ((FlowMapImpl) o).sequence
+                ((FlowMapImpl) o).sequence,
+                ((FlowMapImpl) o).ids
         );
     }
 
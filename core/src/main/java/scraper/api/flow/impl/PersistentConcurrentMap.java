@@ -0,0 +1,376 @@
+package scraper.api.flow.impl;
+
+import scraper.annotations.NotNull;
+import scraper.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Concurrent map backed by a persistent hash array mapped trie.
+ * <p>
+ * A {@link #snapshot()} is O(1) and shares its structure with this map.
+ * Writes only copy the path to the changed entry and are published with a compare-and-set of the root.
+ * Iteration is done on a consistent snapshot of the map. Like {@link java.util.concurrent.ConcurrentHashMap},
+ * neither keys nor values can be null.
+ */
+public final class PersistentConcurrentMap<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V> {
+
+    private final AtomicReference<Trie> root;
+
+    public PersistentConcurrentMap() {
+        root = new AtomicReference<>(Trie.EMPTY);
+    }
+
+    public PersistentConcurrentMap(@NotNull Map<? extends K, ? extends V> map) {
+        this();
+        putAll(map);
+    }
+
+    private PersistentConcurrentMap(@NotNull Trie trie) {
+        root = new AtomicReference<>(trie);
+    }
+
+    /** Copy of this map which shares its structure with this map */
+    @NotNull
+    public PersistentConcurrentMap<K, V> snapshot() {
+        return new PersistentConcurrentMap<>(root.get());
+    }
+
+    @Override
+    public int size() { return root.get().size; }
+
+    @Override
+    public boolean containsKey(@NotNull Object key) { return get(key) != null; }
+
+    @Override @Nullable @SuppressWarnings("unchecked")
+    public V get(@NotNull Object key) {
+        return (V) root.get().node.find(0, hash(key), key);
+    }
+
+    @Override @Nullable
+    public V put(@NotNull K key, @NotNull V value) {
+        return update(key, value, false);
+    }
+
+    @Override @Nullable
+    public V putIfAbsent(@NotNull K key, @NotNull V value) {
+        return update(key, value, true);
+    }
+
+    @Override @Nullable @SuppressWarnings("unchecked")
+    public V remove(@NotNull Object key) {
+        int hash = hash(key);
+        while (true) {
+            Trie t = root.get();
+            Object old = t.node.find(0, hash, key);
+            if (old == null) return null;
+            if (root.compareAndSet(t, t.without(hash, key))) return (V) old;
+        }
+    }
+
+    @Override
+    public boolean remove(@NotNull Object key, @Nullable Object value) {
+        if (value == null) return false;
+        int hash = hash(key);
+        while (true) {
+            Trie t = root.get();
+            Object old = t.node.find(0, hash, key);
+            if (!value.equals(old)) return false;
+            if (root.compareAndSet(t, t.without(hash, key))) return true;
+        }
+    }
+
+    @Override
+    public boolean replace(@NotNull K key, @NotNull V oldValue, @NotNull V newValue) {
+        Objects.requireNonNull(oldValue);
+        Objects.requireNonNull(newValue);
+        int hash = hash(key);
+        while (true) {
+            Trie t = root.get();
+            Object old = t.node.find(0, hash, key);
+            if (!oldValue.equals(old)) return false;
+            if (root.compareAndSet(t, t.assoc(hash, key, newValue))) return true;
+        }
+    }
+
+    @Override @Nullable @SuppressWarnings("unchecked")
+    public V replace(@NotNull K key, @NotNull V value) {
+        Objects.requireNonNull(value);
+        int hash = hash(key);
+        while (true) {
+            Trie t = root.get();
+            Object old = t.node.find(0, hash, key);
+            if (old == null) return null;
+            if (root.compareAndSet(t, t.assoc(hash, key, value))) return (V) old;
+        }
+    }
+
+    @Override
+    public void clear() { root.set(Trie.EMPTY); }
+
+    @NotNull @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<>() {
+            @NotNull @Override
+            public Iterator<Entry<K, V>> iterator() {
+                List<Entry<K, V>> entries = new ArrayList<>();
+                root.get().node.collect(entries, PersistentConcurrentMap.this);
+                Iterator<Entry<K, V>> snapshot = entries.iterator();
+
+                return new Iterator<>() {
+                    private Entry<K, V> current;
+                    @Override public boolean hasNext() { return snapshot.hasNext(); }
+                    @Override public Entry<K, V> next() { current = snapshot.next(); return current; }
+                    @Override public void remove() {
+                        if (current == null) throw new IllegalStateException();
+                        PersistentConcurrentMap.this.remove(current.getKey(), current.getValue());
+                        current = null;
+                    }
+                };
+            }
+
+            @Override
+            public int size() { return PersistentConcurrentMap.this.size(); }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private V update(@NotNull K key, @NotNull V value, boolean onlyIfAbsent) {
+        Objects.requireNonNull(value);
+        int hash = hash(key);
+        while (true) {
+            Trie t = root.get();
+            Object old = t.node.find(0, hash, key);
+            if (old != null && (onlyIfAbsent || old == value)) return (V) old;
+            if (root.compareAndSet(t, t.assoc(hash, key, value))) return (V) old;
+        }
+    }
+
+    private static int hash(@NotNull Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /** Immutable root with the size of the map */
+    private static final class Trie {
+        static final Trie EMPTY = new Trie(BitmapNode.EMPTY, 0);
+
+        final Node node;
+        final int size;
+
+        Trie(Node node, int size) {
+            this.node = node;
+            this.size = size;
+        }
+
+        Trie assoc(int hash, Object key, Object value) {
+            boolean[] added = new boolean[1];
+            Node n = node.assoc(0, hash, key, value, added);
+            return new Trie(n, added[0] ? size + 1 : size);
+        }
+
+        Trie without(int hash, Object key) {
+            Node n = node.without(0, hash, key);
+            return new Trie(n == null ? BitmapNode.EMPTY : n, size - 1);
+        }
+    }
+
+    private interface Node {
+        Object find(int shift, int hash, Object key);
+        Node assoc(int shift, int hash, Object key, Object value, boolean[] added);
+        /** Returns null if the node is empty after removal */
+        Node without(int shift, int hash, Object key);
+        <K, V> void collect(List<Entry<K, V>> entries, Map<K, V> owner);
+    }
+
+    /**
+     * Node with up to 32 slots, a slot either holds a key and its value or, if the key is null, a sub node
+     */
+    private static final class BitmapNode implements Node {
+        static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+        final int bitmap;
+        final Object[] array;
+
+        BitmapNode(int bitmap, Object[] array) {
+            this.bitmap = bitmap;
+            this.array = array;
+        }
+
+        private static int bit(int hash, int shift) { return 1 << ((hash >>> shift) & 31); }
+        private int index(int bit) { return Integer.bitCount(bitmap & (bit - 1)); }
+
+        @Override
+        public Object find(int shift, int hash, Object key) {
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) return null;
+            int i = index(bit);
+            Object k = array[2 * i];
+            Object v = array[2 * i + 1];
+            if (k == null) return ((Node) v).find(shift + 5, hash, key);
+            return key.equals(k) ? v : null;
+        }
+
+        @Override
+        public Node assoc(int shift, int hash, Object key, Object value, boolean[] added) {
+            int bit = bit(hash, shift);
+            int i = index(bit);
+
+            if ((bitmap & bit) == 0) {
+                Object[] newArray = new Object[array.length + 2];
+                System.arraycopy(array, 0, newArray, 0, 2 * i);
+                newArray[2 * i] = key;
+                newArray[2 * i + 1] = value;
+                System.arraycopy(array, 2 * i, newArray, 2 * i + 2, array.length - 2 * i);
+                added[0] = true;
+                return new BitmapNode(bitmap | bit, newArray);
+            }
+
+            Object k = array[2 * i];
+            Object v = array[2 * i + 1];
+            if (k == null) {
+                Node sub = ((Node) v).assoc(shift + 5, hash, key, value, added);
+                return sub == v ? this : with(2 * i + 1, sub);
+            }
+            if (key.equals(k)) {
+                return value == v ? this : with(2 * i + 1, value);
+            }
+
+            added[0] = true;
+            Object[] newArray = array.clone();
+            newArray[2 * i] = null;
+            newArray[2 * i + 1] = pair(shift + 5, k, v, hash, key, value);
+            return new BitmapNode(bitmap, newArray);
+        }
+
+        @Override
+        public Node without(int shift, int hash, Object key) {
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) return this;
+            int i = index(bit);
+            Object k = array[2 * i];
+            Object v = array[2 * i + 1];
+
+            if (k == null) {
+                Node sub = ((Node) v).without(shift + 5, hash, key);
+                if (sub == v) return this;
+                if (sub != null) return with(2 * i + 1, sub);
+            } else if (!key.equals(k)) {
+                return this;
+            }
+
+            if (bitmap == bit) return null;
+            Object[] newArray = new Object[array.length - 2];
+            System.arraycopy(array, 0, newArray, 0, 2 * i);
+            System.arraycopy(array, 2 * i + 2, newArray, 2 * i, newArray.length - 2 * i);
+            return new BitmapNode(bitmap ^ bit, newArray);
+        }
+
+        @Override @SuppressWarnings("unchecked")
+        public <K, V> void collect(List<Entry<K, V>> entries, Map<K, V> owner) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (array[i] == null) ((Node) array[i + 1]).collect(entries, owner);
+                else entries.add(new MapEntry<>((K) array[i], (V) array[i + 1], owner));
+            }
+        }
+
+        private BitmapNode with(int i, Object o) {
+            Object[] newArray = array.clone();
+            newArray[i] = o;
+            return new BitmapNode(bitmap, newArray);
+        }
+
+        private static Node pair(int shift, Object k1, Object v1, int hash2, Object k2, Object v2) {
+            int hash1 = hash(k1);
+            if (hash1 == hash2) return new CollisionNode(hash1, new Object[]{k1, v1, k2, v2});
+
+            boolean[] added = new boolean[1];
+            return EMPTY
+                    .assoc(shift, hash1, k1, v1, added)
+                    .assoc(shift, hash2, k2, v2, added);
+        }
+    }
+
+    /** Keys with the same full hash */
+    private static final class CollisionNode implements Node {
+        final int hash;
+        final Object[] array;
+
+        CollisionNode(int hash, Object[] array) {
+            this.hash = hash;
+            this.array = array;
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < array.length; i += 2) if (key.equals(array[i])) return i;
+            return -1;
+        }
+
+        @Override
+        public Object find(int shift, int hash, Object key) {
+            if (hash != this.hash) return null;
+            int i = indexOf(key);
+            return i < 0 ? null : array[i + 1];
+        }
+
+        @Override
+        public Node assoc(int shift, int hash, Object key, Object value, boolean[] added) {
+            if (hash != this.hash) {
+                // nest this node into a bitmap node at the current level
+                return new BitmapNode(1 << ((this.hash >>> shift) & 31), new Object[]{null, this})
+                        .assoc(shift, hash, key, value, added);
+            }
+
+            int i = indexOf(key);
+            if (i >= 0) {
+                if (array[i + 1] == value) return this;
+                Object[] newArray = array.clone();
+                newArray[i + 1] = value;
+                return new CollisionNode(hash, newArray);
+            }
+
+            Object[] newArray = Arrays.copyOf(array, array.length + 2);
+            newArray[array.length] = key;
+            newArray[array.length + 1] = value;
+            added[0] = true;
+            return new CollisionNode(hash, newArray);
+        }
+
+        @Override
+        public Node without(int shift, int hash, Object key) {
+            int i = (hash == this.hash ? indexOf(key) : -1);
+            if (i < 0) return this;
+            if (array.length == 2) return null;
+
+            Object[] newArray = new Object[array.length - 2];
+            System.arraycopy(array, 0, newArray, 0, i);
+            System.arraycopy(array, i + 2, newArray, i, newArray.length - i);
+            return new CollisionNode(hash, newArray);
+        }
+
+        @Override @SuppressWarnings("unchecked")
+        public <K, V> void collect(List<Entry<K, V>> entries, Map<K, V> owner) {
+            for (int i = 0; i < array.length; i += 2) entries.add(new MapEntry<>((K) array[i], (V) array[i + 1], owner));
+        }
+    }
+
+    /** Entry of a snapshot, setting a value writes through to the owning map */
+    private static final class MapEntry<K, V> extends SimpleEntry<K, V> {
+        private static final long serialVersionUID = 1L;
+
+        private final Map<K, V> owner;
+
+        MapEntry(K key, V value, Map<K, V> owner) {
+            super(key, value);
+            this.owner = owner;
+        }
+
+        @Override
+        public V setValue(V value) {
+            owner.put(getKey(), value);
+            return super.setValue(value);
+        }
+    }
+}
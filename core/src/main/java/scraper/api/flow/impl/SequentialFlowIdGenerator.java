@@ -0,0 +1,35 @@
+package scraper.api.flow.impl;
+
+import scraper.annotations.NotNull;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cheap flow ids: a random 64-bit prefix per generator and a 64-bit counter.
+ * <p>
+ * Threads reserve blocks of the counter, so generating an id is
+ * a thread local increment and threads do not contend on every id.
+ */
+public final class SequentialFlowIdGenerator implements FlowIdGenerator {
+
+    /** Number of ids a thread reserves at once */
+    private static final int BLOCK = 1024;
+
+    private final long prefix = new SecureRandom().nextLong();
+    private final AtomicLong counter = new AtomicLong();
+    private final ThreadLocal<long[]> reserved = ThreadLocal.withInitial(() -> new long[2]);
+
+    @NotNull
+    @Override
+    public UUID newId() {
+        // [next, end)
+        long[] block = reserved.get();
+        if (block[0] == block[1]) {
+            block[0] = counter.getAndAdd(BLOCK);
+            block[1] = block[0] + BLOCK;
+        }
+        return new UUID(prefix, block[0]++);
+    }
+}
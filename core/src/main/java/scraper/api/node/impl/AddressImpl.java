@@ -27,7 +27,7 @@ public class AddressImpl implements Address {
     @NotNull
     @Override
     public String getRepresentation() {
-        return toString().substring(1,toString().length()-1);
+        return label;
     }
 
     @Override
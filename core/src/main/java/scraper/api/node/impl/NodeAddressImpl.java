@@ -14,12 +14,17 @@ public class NodeAddressImpl implements NodeAddress {
     private final String label;
     /** Implementation detail of current workflows, used for debugging purposes and only available for NodeAddress of nodes, not for targeting */
     @NotNull private final Integer index;
+    /** Address is immutable, representation and hash are computed once */
+    @NotNull private final String representation;
+    private final int hash;
 
     public NodeAddressImpl(@NotNull String instance, @NotNull String graph, @Nullable String label, @NotNull Integer stageIndex) {
         this.instance = instance;
         this.graph = graph;
         this.label = label;
         index = stageIndex;
+        representation = instance +"." + graph+"."+ getNode();
+        hash = NodeUtil.representationHashCode(representation);
     }
 
     @Override
@@ -30,7 +35,7 @@ public class NodeAddressImpl implements NodeAddress {
     @NotNull
     @Override
     public String getRepresentation() {
-        return instance +"." + graph+"."+ getNode();
+        return representation;
     }
 
     @Override
@@ -47,7 +52,7 @@ public class NodeAddressImpl implements NodeAddress {
 
     @Override
     public int hashCode() {
-        return NodeUtil.representationHashCode(getRepresentation());
+        return hash;
     }
 
     @NotNull
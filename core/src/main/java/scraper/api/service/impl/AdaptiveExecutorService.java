@@ -0,0 +1,179 @@
+package scraper.api.service.impl;
+
+import scraper.annotations.NotNull;
+
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits the number of concurrently running tasks of an executor by an {@link AdaptiveLimit}.
+ * <p>
+ * The latency and failure of every task adapts the limit. Failed tasks are tasks which throw
+ * or futures which are completed exceptionally after running.
+ * A {@link FlowTask} holds its slot until its flow completed, also if the flow was suspended,
+ * and its latency and failure are those of the flow.
+ * Submitting a task blocks while the limit is reached, tasks submitted by a running task are run by the submitting task instead.
+ */
+public final class AdaptiveExecutorService extends AbstractExecutorService implements LimitingExecutorService {
+
+    private final ExecutorService executor;
+    private final AdaptiveLimit limit;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private volatile int waiting = 0;
+
+    public AdaptiveExecutorService(@NotNull ExecutorService executor, @NotNull AdaptiveLimit limit) {
+        this.executor = executor;
+        this.limit = limit;
+    }
+
+    @Override
+    public void execute(@NotNull Runnable task) {
+        if(!tryAcquire()) {
+            // a blocked flow could hold the slot its forked flow waits for
+            if(ExecutorsServiceImpl.isFlowWorker()) {
+                runMeasured(task, false);
+                return;
+            }
+            acquire();
+        }
+
+        try {
+            executor.execute(new Admitted(task));
+        } catch (RejectedExecutionException e) {
+            release();
+            if(!executor.isShutdown()) throw e;
+            // flows of a shut down job still complete their forks
+            task.run();
+        }
+    }
+
+    /** Current limit of concurrently running tasks */
+    public int getLimit() { return limit.getLimit(); }
+
+    /** Number of running tasks, including suspended flows */
+    public int getInFlight() { return inFlight.get(); }
+
+    @Override
+    public boolean remove(@NotNull Runnable task) {
+        if(!(executor instanceof ThreadPoolExecutor)) return false;
+
+        ThreadPoolExecutor pool = (ThreadPoolExecutor) executor;
+        for (Runnable queued : pool.getQueue()) {
+            if(queued instanceof Admitted && ((Admitted) queued).task == task) {
+                if(!pool.remove(queued)) return false;
+
+                // a flow run by the caller keeps its slot until it completed
+                if(task instanceof FlowTask) measured((FlowTask) task, true);
+                else release();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Runs the task and samples it when it completed, releases the slot of the task if it holds one */
+    private void runMeasured(@NotNull Runnable task, boolean holdsSlot) {
+        if(task instanceof FlowTask) {
+            // registered before running, the flow can complete while it runs
+            measured((FlowTask) task, holdsSlot);
+            task.run();
+            return;
+        }
+
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            task.run();
+            failed = (task instanceof Future && ((Future<?>) task).isDone() && isExceptional((Future<?>) task));
+        } finally {
+            limit.onSample(System.nanoTime() - start, failed, inFlight.get());
+            if(holdsSlot) release();
+        }
+    }
+
+    /** Samples the flow and releases its slot when it completed */
+    private void measured(@NotNull FlowTask flow, boolean holdsSlot) {
+        flow.getCompletion().whenComplete((result, e) -> {
+            // a flow cancelled before it was started is no sample
+            long started = flow.getStarted();
+            if(started != 0) limit.onSample(System.nanoTime() - started, e != null, inFlight.get());
+            if(holdsSlot) release();
+        });
+    }
+
+    private static boolean isExceptional(@NotNull Future<?> future) {
+        if(future instanceof CompletableFuture) return ((CompletableFuture<?>) future).isCompletedExceptionally();
+        return future.isCancelled();
+    }
+
+    private boolean tryAcquire() {
+        while (true) {
+            int running = inFlight.get();
+            if(running >= limit.getLimit()) return false;
+            if(inFlight.compareAndSet(running, running + 1)) return true;
+        }
+    }
+
+    private void acquire() {
+        lock.lock();
+        try {
+            waiting++;
+            // timed, the limit can grow without a release
+            while (!tryAcquire()) released.await(10, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Producer thread interrupted", e);
+        } finally {
+            waiting--;
+            lock.unlock();
+        }
+    }
+
+    private void release() {
+        inFlight.decrementAndGet();
+        if(waiting == 0) return;
+
+        lock.lock();
+        try {
+            released.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void resume(@NotNull Runnable continuation) {
+        // the flow holds its slot already
+        executor.execute(() -> {
+            ExecutorsServiceImpl.markFlowWorker();
+            continuation.run();
+        });
+    }
+
+    /** Task which holds a slot */
+    private final class Admitted implements Runnable {
+        final Runnable task;
+
+        Admitted(@NotNull Runnable task) { this.task = task; }
+
+        @Override
+        public void run() {
+            ExecutorsServiceImpl.markFlowWorker();
+            runMeasured(task, true);
+        }
+    }
+
+    @Override public void shutdown() { executor.shutdown(); }
+    @NotNull @Override public List<Runnable> shutdownNow() { return executor.shutdownNow(); }
+    @Override public boolean isShutdown() { return executor.isShutdown(); }
+    @Override public boolean isTerminated() { return executor.isTerminated(); }
+    @Override public boolean awaitTermination(long timeout, @NotNull TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+}
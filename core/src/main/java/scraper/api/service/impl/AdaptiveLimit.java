@@ -0,0 +1,65 @@
+package scraper.api.service.impl;
+
+/**
+ * Concurrency limit which adapts to the latency and errors of the flows it admits (AIMD).
+ * <p>
+ * The limit grows by one per limit many fast flows while the limit is used,
+ * and shrinks multiplicatively, at most once per limit many flows, if a flow fails or is much slower than usual.
+ * Usual latency is a moving average of fast flows which slowly follows slow flows,
+ * so a permanently slower target is accepted eventually.
+ */
+public final class AdaptiveLimit {
+
+    /** Factor the limit is multiplied with on overload */
+    private static final double BACKOFF = 0.9;
+    /** Flows slower than this factor of the usual latency indicate overload */
+    private static final double TOLERANCE = 2.0;
+    /** Weight of a fast flow in the usual latency */
+    private static final double SMOOTHING = 0.05;
+    /** Weight of a slow flow in the usual latency */
+    private static final double DRIFT = 0.005;
+
+    private final int min;
+    private final int max;
+
+    private double limit;
+    private double usualLatency = -1;
+    private int cooldown = 0;
+
+    public AdaptiveLimit(int min, int max, int initial) {
+        if(min < 1 || max < min) throw new IllegalArgumentException("Bad limit bounds: " + min + " - " + max);
+        this.min = min;
+        this.max = max;
+        this.limit = Math.max(min, Math.min(max, initial));
+    }
+
+    /** Current limit of concurrent flows */
+    public synchronized int getLimit() { return (int) limit; }
+
+    public int getMin() { return min; }
+    public int getMax() { return max; }
+
+    /**
+     * Adapts the limit to a finished flow.
+     *
+     * @param latency Time the flow took in nanoseconds
+     * @param failed True if the flow terminated exceptionally
+     * @param inFlight Flows running when the flow finished
+     */
+    public synchronized void onSample(long latency, boolean failed, int inFlight) {
+        if(usualLatency < 0) usualLatency = latency;
+
+        boolean overload = failed || latency > usualLatency * TOLERANCE;
+        usualLatency += (latency - usualLatency) * (overload ? DRIFT : SMOOTHING);
+        if(cooldown > 0) cooldown--;
+
+        if(overload) {
+            if(cooldown == 0) {
+                limit = Math.max(min, limit * BACKOFF);
+                cooldown = (int) Math.ceil(limit);
+            }
+        } else if(inFlight * 2 >= limit) {
+            limit = Math.min(max, limit + 1 / limit);
+        }
+    }
+}
@@ -3,34 +3,163 @@ package scraper.api.service.impl;
 import scraper.annotations.NotNull;
 import scraper.api.service.ExecutorsService;
 
+import java.time.Duration;
 import java.util.Map;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static java.lang.System.Logger.Level.DEBUG;
 import static java.lang.System.Logger.Level.ERROR;
+import static java.lang.System.Logger.Level.WARNING;
 
 public class ExecutorsServiceImpl implements ExecutorsService {
     private @NotNull static final System.Logger log = System.getLogger("ExecutorsService");
-    private @NotNull final Map<String, ExecutorService> executorServiceMap = new ConcurrentHashMap<>();
+    /** Executors by job name and group */
+    private @NotNull final ConcurrentMap<String, ConcurrentMap<String, ExecutorService>> executors = new ConcurrentHashMap<>();
+
+    /** Kind of threads flows of a group are executed in */
+    public enum Mode {
+        /** Pool of platform threads, the count limits the number of threads */
+        PLATFORM,
+        /** A virtual thread per flow, the count limits the number of concurrent flows. Needs Java 21 */
+        VIRTUAL
+    }
+
+    /** True in threads which execute flows, these threads run a flow themselves instead of blocking on a full executor */
+    private static final ThreadLocal<Boolean> flowWorker = ThreadLocal.withInitial(() -> false);
+
+    /** True if the calling thread executes flows of an executor service */
+    public static boolean isFlowWorker() { return flowWorker.get(); }
+    static void markFlowWorker() { flowWorker.set(true); }
+
+    /** True while a continuation is handed off, a full executor rejects it instead of blocking */
+    private static final ThreadLocal<Boolean> handingOff = ThreadLocal.withInitial(() -> false);
+
+    /** Runs continuations of resumed flows whose executor is saturated or shut down */
+    private static final @NotNull ExecutorService resumePool = Executors.newCachedThreadPool(new ThreadFactory() {
+        private final AtomicInteger number = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(@NotNull Runnable r) {
+            Thread t = new Thread(() -> {
+                markFlowWorker();
+                r.run();
+            }, "flow-resume-" + number.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
+    /**
+     * Runs the continuation of a suspended flow with the given executor without blocking the calling thread.
+     * If the executor is saturated or shut down, the continuation runs in a shared unbounded pool instead.
+     * The calling thread is usually a thread which completed asynchronous work, e.g. the scheduler or a HTTP client thread,
+     * which must neither block nor run the flow.
+     */
+    public static void resume(@NotNull ExecutorService executor, @NotNull Runnable continuation) {
+        try {
+            if (executor instanceof LimitingExecutorService) {
+                ((LimitingExecutorService) executor).resume(continuation);
+                return;
+            }
+            if (executor instanceof ThreadPoolExecutor) {
+                handingOff.set(true);
+                try {
+                    executor.execute(continuation);
+                    return;
+                } finally {
+                    handingOff.set(false);
+                }
+            }
+        } catch (RejectedExecutionException saturated) {
+            // run by the resume pool
+        }
+
+        resumePool.execute(continuation);
+    }
+
+    private volatile @NotNull Mode defaultMode = Mode.PLATFORM;
+    private @NotNull final Map<String, Mode> groupModes = new ConcurrentHashMap<>();
+
+    /** Mode of all groups without an own mode. Only affects services created afterwards */
+    public void setDefaultMode(@NotNull Mode mode) { defaultMode = mode; }
+
+    /** Mode of a group, either the group name or job name and group name separated by '-'. Only affects services created afterwards */
+    public void setMode(@NotNull String group, @NotNull Mode mode) { groupModes.put(group, mode); }
+
+    /** Bounds of adaptive concurrency limits by group, a max of 0 is derived from the thread count */
+    private @NotNull final Map<String, int[]> adaptiveGroups = new ConcurrentHashMap<>();
+
+    /**
+     * Adapts the number of concurrent flows of a group between min and max to the latency and errors of its flows.
+     * A max of 0 allows four times the thread count of the group. Only affects services created afterwards
+     */
+    public void setAdaptive(@NotNull String group, int min, int max) {
+        if(min < 1 || (max > 0 && max < min)) throw new IllegalArgumentException("Bad limit bounds: " + min + " - " + max);
+        adaptiveGroups.put(group, new int[]{min, max});
+    }
+
+    @Override
+    public @NotNull ExecutorService getService(@NotNull String jobName, @NotNull String group, @NotNull Integer count) {
+        ConcurrentMap<String, ExecutorService> groups = executors.get(jobName);
+        if(groups == null) groups = executors.computeIfAbsent(jobName, job -> new ConcurrentHashMap<>());
+
+        ExecutorService pool = groups.get(group);
+        if(pool != null) return pool;
+
+        return groups.computeIfAbsent(group, g -> createExecutorService(count, g, jobName));
+    }
+
+    @Override
+    public boolean shutdown(@NotNull String jobName, @NotNull Duration timeout) throws InterruptedException {
+        ConcurrentMap<String, ExecutorService> groups = executors.remove(jobName);
+        if(groups == null) return true;
+
+        groups.values().forEach(ExecutorService::shutdown);
+        log.log(DEBUG,"Shutting down {0} executor services of job {1}", groups.size(), jobName);
+
+        long deadline = System.nanoTime() + timeout.toNanos();
+        for (ExecutorService pool : groups.values()) {
+            if(!pool.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) return false;
+        }
+        return true;
+    }
 
     @Override
-    public synchronized @NotNull ExecutorService getService(@NotNull String jobName, @NotNull String group, @NotNull Integer count) {
-        return getService(count, group, jobName);
+    public void shutdownNow(@NotNull String jobName) {
+        ConcurrentMap<String, ExecutorService> groups = executors.remove(jobName);
+        if(groups == null) return;
+
+        groups.values().forEach(ExecutorService::shutdownNow);
+        log.log(DEBUG,"Stopped {0} executor services of job {1}", groups.size(), jobName);
     }
 
-    private synchronized @NotNull ExecutorService getService(int count, @NotNull final String group, String jobName){
+    private @NotNull ExecutorService createExecutorService(int count, @NotNull final String group, @NotNull final String jobName) {
         String id = jobName+"-"+group;
+        Mode mode = groupModes.getOrDefault(id, groupModes.getOrDefault(group, defaultMode));
+        int[] adaptive = adaptiveGroups.getOrDefault(id, adaptiveGroups.get(group));
+        if(adaptive != null) return createAdaptiveExecutorService(count, id, mode, adaptive[0], adaptive[1]);
+
+        return (mode == Mode.VIRTUAL ? createVirtualExecutorService(count, id) : createPlatformExecutorService(count, id));
+    }
 
-        ExecutorService pool = executorServiceMap.get(id);
-        if(pool == null) {
-            pool = createExecutorService(count, id);
+    private @NotNull ExecutorService createAdaptiveExecutorService(int count, @NotNull final String group, @NotNull Mode mode, int min, int max) {
+        AdaptiveLimit limit = new AdaptiveLimit(min, (max > 0 ? max : Math.max(min, 4 * count)), count);
+
+        ExecutorService executor = (mode == Mode.VIRTUAL ? newVirtualThreadPerTaskExecutor(group) : null);
+        if(executor == null) {
+            // the limit bounds the tasks in the queue
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(limit.getMax(), limit.getMax(), 100, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(), new DefaultThreadFactory(group, true, limit.getMax()));
+            pool.allowCoreThreadTimeOut(true);
+            executor = pool;
         }
 
-        return pool;
+        log.log(DEBUG,"Created adaptive executor service for group {0} with {1} to {2} concurrent flows", group, limit.getMin(), limit.getMax());
+        return new AdaptiveExecutorService(executor, limit);
     }
 
-    private synchronized @NotNull ExecutorService createExecutorService(int count, @NotNull final String group) {
+    private @NotNull ExecutorService createPlatformExecutorService(int count, @NotNull final String group) {
         BlockingQueue<Runnable> arrayBlockingQueue = new ArrayBlockingQueue<>(count);
         ThreadPoolExecutor executorService =
                 new ThreadPoolExecutor(count, count, 100, TimeUnit.MILLISECONDS, arrayBlockingQueue, new DefaultThreadFactory(group, true, count));
@@ -38,6 +167,16 @@ public class ExecutorsServiceImpl implements ExecutorsService {
 
         // when the blocking queue is full, this tries to put into the queue which blocks
         executorService.setRejectedExecutionHandler((r, executor) -> {
+            // continuations are handed off elsewhere, completing threads never block
+            if(handingOff.get()) throw new RejectedExecutionException("Executor saturated");
+
+            // a blocked flow thread could wait for a queued flow which waits for a thread
+            // flows of a shut down job still complete their forks
+            if(isFlowWorker() || executor.isShutdown()) {
+                r.run();
+                return;
+            }
+
             try {
                 // block until there's room
                 executor.getQueue().put(r);
@@ -49,11 +188,35 @@ public class ExecutorsServiceImpl implements ExecutorsService {
         });
 
         log.log(DEBUG,"Created executor service for group {0} and capacity {1}", group, count);
-        executorServiceMap.put(group, executorService);
         return executorService;
     }
 
+    private @NotNull ExecutorService createVirtualExecutorService(int count, @NotNull final String group) {
+        ExecutorService perTask = newVirtualThreadPerTaskExecutor(group);
+        if(perTask == null) {
+            log.log(WARNING,"Virtual threads are not supported by this runtime, using platform threads for group {0}", group);
+            return createPlatformExecutorService(count, group);
+        }
 
+        ExecutorService executorService = new LimitedExecutorService(perTask, count);
+        log.log(DEBUG,"Created virtual thread executor service for group {0} and {1} concurrent flows", group, count);
+        return executorService;
+    }
+
+    /** Executor which starts a named virtual thread per task, null if virtual threads are not available */
+    static ExecutorService newVirtualThreadPerTaskExecutor(@NotNull final String group) {
+        // compiled against Java 11, resolved at runtime
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, group + "-", 1L);
+            ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class).invoke(null, factory);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.log(DEBUG,"Virtual threads not available: {0}", e.toString());
+            return null;
+        }
+    }
 
     public static class DefaultThreadFactory implements ThreadFactory {
         private static final AtomicInteger poolNumber = new AtomicInteger(1);
@@ -78,13 +241,18 @@ public class ExecutorsServiceImpl implements ExecutorsService {
         public synchronized Thread newThread(@NotNull final Runnable r) {
             int number = (threadNumber.getAndIncrement() % maxCount) + 1;
 
+            Runnable worker = () -> {
+                markFlowWorker();
+                r.run();
+            };
+
             Thread t;
             if(!show) {
-                t = new Thread(group, r,
+                t = new Thread(group, worker,
                         namePrefix,
                         0);
             } else {
-                t = new Thread(group, r,
+                t = new Thread(group, worker,
                         namePrefix+ "-" + number,
                         0);
             }
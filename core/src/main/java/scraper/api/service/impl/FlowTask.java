@@ -0,0 +1,19 @@
+package scraper.api.service.impl;
+
+import scraper.annotations.NotNull;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Task which runs a flow. The flow can complete after the task returned, e.g. if it is suspended at an asynchronous node.
+ * Limiting executors count such a flow until it completes.
+ */
+public interface FlowTask extends Runnable {
+
+    /** Completes when the flow completed */
+    @NotNull
+    CompletionStage<?> getCompletion();
+
+    /** {@link System#nanoTime()} at which the flow was started, 0 if it was not started yet */
+    long getStarted();
+}
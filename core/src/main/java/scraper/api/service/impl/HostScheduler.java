@@ -0,0 +1,241 @@
+package scraper.api.service.impl;
+
+import scraper.annotations.NotNull;
+import scraper.util.SchedulerUtil;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Schedules requests per target host with a token bucket rate limit and a concurrency limit per host.
+ * <p>
+ * Requests which exceed the limits of their host are queued per host. Queued requests are started round-robin
+ * over hosts, one request per host and round, so a host with many queued requests does not delay other hosts
+ * if the number of concurrent requests over all hosts is limited.
+ * Waiting for tokens does not block a thread, the queues are drained again by the shared scheduler.
+ * Without limits, requests are started immediately.
+ */
+public final class HostScheduler {
+
+    /** Host name of the limit which applies to every host without an own limit */
+    public static final String ALL_HOSTS = "*";
+
+    /** Idle hosts are forgotten if more hosts are known */
+    static final int MAX_IDLE_HOSTS = 4096;
+
+    private final Map<String, Limit> limits = new HashMap<>();
+    private final Map<String, Host> hosts = new HashMap<>();
+    /** Hosts with queued requests in round-robin order */
+    private final Deque<Host> queued = new ArrayDeque<>();
+
+    private int maxConcurrent = Integer.MAX_VALUE;
+    private int running = 0;
+    /** Time of the next scheduled drain, 0 if none is scheduled */
+    private long wakeup = 0;
+
+    /** True if any limit is set, requests bypass the scheduler otherwise */
+    private volatile boolean limited = false;
+
+    /**
+     * Limits the requests to a host, the limit of {@link #ALL_HOSTS} applies to each host without an own limit.
+     * If the host is limited already, the stricter value of each setting is kept.
+     *
+     * @param requestsPerSecond Rate of started requests, not limited if not positive
+     * @param burst Requests which can be started at once after the host was idle
+     * @param maxConcurrent Concurrent requests, not limited if not positive
+     */
+    public synchronized void limit(@NotNull String host, double requestsPerSecond, int burst, int maxConcurrent) {
+        limits.merge(host.toLowerCase(), new Limit(requestsPerSecond, burst, maxConcurrent), Limit::stricter);
+        // buckets are created with the new limit on the next request
+        hosts.values().removeIf(h -> h.waiting.isEmpty() && h.running == 0);
+        limited = true;
+    }
+
+    /** Limits the concurrent requests over all hosts, not limited if not positive. The lower limit is kept */
+    public synchronized void limitConcurrent(int maxConcurrent) {
+        if (maxConcurrent > 0) this.maxConcurrent = Math.min(this.maxConcurrent, maxConcurrent);
+        limited = true;
+    }
+
+    /** Starts the request when the limits of the host allow it */
+    @NotNull
+    public <A> CompletableFuture<A> submit(@NotNull String host, @NotNull Supplier<CompletableFuture<A>> request) {
+        if (!limited) return request.get();
+
+        Pending<A> pending = new Pending<>(request);
+        synchronized (this) {
+            if (hosts.size() > MAX_IDLE_HOSTS) forgetIdle();
+            Host h = hosts.computeIfAbsent(host.toLowerCase(), name -> new Host(limits.getOrDefault(name, limits.get(ALL_HOSTS))));
+            if (h.waiting.isEmpty()) queued.add(h);
+            h.waiting.add(pending);
+        }
+
+        drain();
+        return pending.result;
+    }
+
+    /** Number of queued requests */
+    public synchronized int getQueued() {
+        int count = 0;
+        for (Host h : queued) count += h.waiting.size();
+        return count;
+    }
+
+    /** Starts queued requests round-robin over hosts until no more limits allow a request */
+    private void drain() {
+        List<Pending<?>> started = new ArrayList<>();
+        synchronized (this) {
+            long now = System.nanoTime();
+            long nextToken = Long.MAX_VALUE;
+
+            boolean progress = true;
+            while (progress && running < maxConcurrent && !queued.isEmpty()) {
+                progress = false;
+                for (int i = queued.size(); i > 0 && running < maxConcurrent; i--) {
+                    Host h = queued.poll();
+                    if (h == null) break;
+
+                    if (h.running < h.maxConcurrent) {
+                        long wait = h.acquire(now);
+                        if (wait == 0) {
+                            Pending<?> pending = h.waiting.poll();
+                            pending.host = h;
+                            started.add(pending);
+                            h.running++;
+                            running++;
+                            progress = true;
+                        } else {
+                            nextToken = Math.min(nextToken, wait);
+                        }
+                    }
+
+                    if (!h.waiting.isEmpty()) queued.add(h);
+                }
+            }
+
+            if (nextToken != Long.MAX_VALUE) scheduleDrain(now, nextToken);
+        }
+
+        for (Pending<?> pending : started) pending.start();
+    }
+
+    /** Forgets hosts without requests and with a full bucket */
+    private void forgetIdle() {
+        long now = System.nanoTime();
+        hosts.values().removeIf(h -> h.waiting.isEmpty() && h.running == 0 && h.isIdle(now));
+    }
+
+    /** Drains again when the next token is available, hosts waiting for a running request are drained on completion */
+    private void scheduleDrain(long now, long nanos) {
+        long at = now + nanos;
+        if (wakeup != 0 && wakeup - at <= 0) return;
+
+        wakeup = at;
+        SchedulerUtil.schedule(() -> {
+            synchronized (this) { if (wakeup == at) wakeup = 0; }
+            drain();
+        }, Math.max(1, TimeUnit.NANOSECONDS.toMillis(nanos)));
+    }
+
+    private void finished(@NotNull Host h) {
+        synchronized (this) {
+            h.running--;
+            running--;
+        }
+        drain();
+    }
+
+    private static final class Limit {
+        final double tokensPerNano;
+        final double burst;
+        final int maxConcurrent;
+
+        Limit(double requestsPerSecond, int burst, int maxConcurrent) {
+            this.tokensPerNano = (requestsPerSecond > 0 ? requestsPerSecond / TimeUnit.SECONDS.toNanos(1) : 0);
+            this.burst = Math.max(1, burst);
+            this.maxConcurrent = (maxConcurrent > 0 ? maxConcurrent : Integer.MAX_VALUE);
+        }
+
+        private Limit(double tokensPerNano, double burst, int maxConcurrent) {
+            this.tokensPerNano = tokensPerNano;
+            this.burst = burst;
+            this.maxConcurrent = maxConcurrent;
+        }
+
+        /** Stricter value of each setting, the burst belongs to the stricter rate and a rate of 0 is not limited */
+        Limit stricter(@NotNull Limit other) {
+            Limit rate;
+            if (tokensPerNano == other.tokensPerNano) rate = (burst <= other.burst ? this : other);
+            else if (tokensPerNano == 0 || other.tokensPerNano == 0) rate = (tokensPerNano == 0 ? other : this);
+            else rate = (tokensPerNano < other.tokensPerNano ? this : other);
+
+            return new Limit(rate.tokensPerNano, rate.burst, Math.min(maxConcurrent, other.maxConcurrent));
+        }
+    }
+
+    /** Token bucket and queue of a host, guarded by the scheduler */
+    private static final class Host {
+        final double tokensPerNano;
+        final double burst;
+        final int maxConcurrent;
+        final Queue<Pending<?>> waiting = new ArrayDeque<>();
+        int running = 0;
+
+        double tokens;
+        long refilled = System.nanoTime();
+
+        Host(Limit limit) {
+            this.tokensPerNano = (limit == null ? 0 : limit.tokensPerNano);
+            this.burst = (limit == null ? 1 : limit.burst);
+            this.maxConcurrent = (limit == null ? Integer.MAX_VALUE : limit.maxConcurrent);
+            this.tokens = burst;
+        }
+
+        /** Takes a token, returns 0 if successful and the nanos until the next token otherwise */
+        long acquire(long now) {
+            if (tokensPerNano == 0) return 0;
+
+            tokens = Math.min(burst, tokens + (now - refilled) * tokensPerNano);
+            refilled = now;
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return Math.max(1, (long) Math.ceil((1 - tokens) / tokensPerNano));
+        }
+
+        /** True if the bucket is full, a new bucket for the host is equivalent */
+        boolean isIdle(long now) {
+            return tokensPerNano == 0 || tokens + (now - refilled) * tokensPerNano >= burst;
+        }
+    }
+
+    private final class Pending<A> {
+        final Supplier<CompletableFuture<A>> request;
+        final CompletableFuture<A> result = new CompletableFuture<>();
+        Host host;
+
+        Pending(Supplier<CompletableFuture<A>> request) {
+            this.request = request;
+        }
+
+        void start() {
+            CompletableFuture<A> sent;
+            try {
+                sent = request.get();
+            } catch (Throwable e) {
+                finished(host);
+                result.completeExceptionally(e);
+                return;
+            }
+
+            sent.whenComplete((response, e) -> {
+                finished(host);
+                if (e == null) result.complete(response);
+                else result.completeExceptionally(e);
+            });
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package scraper.api.service.impl;
+
+import scraper.annotations.NotNull;
+import scraper.annotations.Nullable;
+import scraper.api.service.HttpCache;
+import scraper.api.service.impl.cache.MemoryCache;
+import scraper.api.service.impl.cache.SegmentStore;
+import scraper.api.service.impl.cache.Timestamped;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static java.lang.System.Logger.Level.*;
+
+/**
+ * Caches responses in a {@link SegmentStore} per cache directory with a {@link MemoryCache} in front of all stores.
+ * Responses are written through to the store, responses read from a store are held in memory.
+ * <p>
+ * Responses cached in the previous format, one file per URL, are moved into the store on first access.
+ * <p>
+ * Caches which are not closed are flushed on exit.
+ */
+public class HttpCacheImpl implements HttpCache, Closeable {
+
+    private static final @NotNull System.Logger log = System.getLogger("HttpCache");
+
+    /** Default estimated size of responses held in memory */
+    public static final long DEFAULT_MEMORY_SIZE = 64L << 20;
+
+    private final @NotNull MemoryCache<Key> memory = new MemoryCache<>(DEFAULT_MEMORY_SIZE);
+
+    private final @NotNull ConcurrentHashMap<Path, SegmentStore> stores = new ConcurrentHashMap<>();
+    /** Stores by directory as given, saves resolving the path on every access */
+    private final @NotNull ConcurrentHashMap<String, SegmentStore> storesByName = new ConcurrentHashMap<>();
+
+    /** Compaction and eviction of all stores */
+    private final @NotNull ExecutorService maintenance = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "http-cache-maintenance");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /** Caches which are not closed yet, flushed by a single shutdown hook */
+    private static final @NotNull Set<HttpCacheImpl> open = ConcurrentHashMap.newKeySet();
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> open.forEach(HttpCacheImpl::flush), "http-cache-flush"));
+    }
+
+    {
+        open.add(this);
+    }
+
+    @NotNull
+    @Override
+    public Optional<String> get(@NotNull String directory, @NotNull String url, @Nullable Long ttlMs) throws IOException {
+        SegmentStore store = store(directory);
+        Key key = new Key(store, url);
+        String inMemory = memory.get(key, ttlMs);
+        if (inMemory != null) return Optional.of(inMemory);
+
+        Timestamped cached = store.getTimestamped(url, ttlMs);
+        if (cached != null) {
+            memory.put(key, cached.value, cached.timestamp);
+            return Optional.of(cached.value);
+        }
+
+        return importLegacy(store, directory, url, ttlMs);
+    }
+
+    /** A response held in memory is checked once per check key, until it is replaced or evicted */
+    @NotNull
+    @Override
+    public Optional<String> get(@NotNull String directory, @NotNull String url, @Nullable Long ttlMs,
+                                @NotNull Object checkKey, @NotNull Predicate<String> check) throws IOException {
+        Optional<String> response = get(directory, url, ttlMs);
+        if (response.isEmpty()) return response;
+
+        Key key = new Key(store(directory), url);
+        if (memory.isChecked(key, response.get(), checkKey)) return response;
+
+        if (!check.test(response.get())) {
+            remove(directory, url);
+            return Optional.empty();
+        }
+
+        memory.setChecked(key, response.get(), checkKey);
+        return response;
+    }
+
+    @Override
+    public void put(@NotNull String directory, @NotNull String url, @NotNull String response) throws IOException {
+        SegmentStore store = store(directory);
+        long timestamp = System.currentTimeMillis();
+        store.put(url, response, timestamp);
+        memory.put(new Key(store, url), response, timestamp);
+    }
+
+    @Override
+    public void remove(@NotNull String directory, @NotNull String url) throws IOException {
+        SegmentStore store = store(directory);
+        memory.remove(new Key(store, url));
+        store.remove(url);
+    }
+
+    @Override
+    public void setCompression(@NotNull String directory, boolean compress) throws IOException {
+        store(directory).setCompression(compress);
+    }
+
+    @Override
+    public void setMaxSize(@NotNull String directory, long bytes) throws IOException {
+        store(directory).setMaxSize(bytes);
+    }
+
+    @Override
+    public void setMemorySize(long bytes) {
+        memory.setMaxSize(bytes);
+    }
+
+    @Override
+    public long getMemoryHits() { return memory.getHits(); }
+
+    @Override
+    public long getMemoryMisses() { return memory.getMisses(); }
+
+    @Override
+    public long getMemoryEvictions() { return memory.getEvictions(); }
+
+    /** Estimated size of responses held in memory in bytes */
+    public long getMemorySize() { return memory.getSize(); }
+
+    /** Writes all cached responses to the storage device */
+    public void flush() {
+        stores.values().forEach(store -> {
+            try {
+                store.flush();
+            } catch (IOException e) {
+                log.log(WARNING, "Could not flush {0}: {1}", store, e.getMessage());
+            }
+        });
+    }
+
+    /** Stops the maintenance and closes all stores, the cache cannot be used afterwards */
+    @Override
+    public void close() throws IOException {
+        if (!open.remove(this)) return;
+
+        // running compactions finish before their stores are closed
+        maintenance.shutdown();
+        try {
+            if (!maintenance.awaitTermination(10, TimeUnit.SECONDS))
+                log.log(WARNING, "Http cache maintenance did not finish");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        IOException failure = null;
+        for (SegmentStore store : stores.values()) {
+            try {
+                store.close();
+            } catch (IOException e) {
+                if (failure == null) failure = e;
+                else failure.addSuppressed(e);
+            }
+        }
+        if (failure != null) throw failure;
+    }
+
+    @NotNull
+    private SegmentStore store(@NotNull String directory) throws IOException {
+        SegmentStore store = storesByName.get(directory);
+        if (store != null) return store;
+
+        Path path = Paths.get(directory).toAbsolutePath().normalize();
+        try {
+            store = stores.computeIfAbsent(path, p -> {
+                try {
+                    log.log(DEBUG, "Opening http cache at {0}", p);
+                    return SegmentStore.open(p, SegmentStore.DEFAULT_SEGMENT_SIZE, maintenance);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        storesByName.put(directory, store);
+        return store;
+    }
+
+    /** Moves a response cached as a single file into the store */
+    @NotNull
+    private Optional<String> importLegacy(@NotNull SegmentStore store, @NotNull String directory, @NotNull String url,
+                                          @Nullable Long ttlMs) throws IOException {
+        Path file = Paths.get(directory, Base64.getUrlEncoder().encodeToString(url.getBytes()));
+        if (!Files.isRegularFile(file)) return Optional.empty();
+
+        long modified = Files.getLastModifiedTime(file).toMillis();
+        String content = Files.readString(file, StandardCharsets.UTF_8);
+        Files.deleteIfExists(file);
+
+        if (content.isEmpty() || (ttlMs != null && System.currentTimeMillis() - modified > ttlMs)) return Optional.empty();
+
+        log.log(TRACE, "Moving cached file into store: {0}", url);
+        store.put(url, content, modified);
+        memory.put(new Key(store, url), content, modified);
+        return Optional.of(content);
+    }
+
+    /** URL in a store, stores are compared by identity */
+    private static final class Key {
+        final SegmentStore store;
+        final String url;
+
+        Key(@NotNull SegmentStore store, @NotNull String url) {
+            this.store = store;
+            this.url = url;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return store == key.store && url.equals(key.url);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(store) + url.hashCode();
+        }
+    }
+}
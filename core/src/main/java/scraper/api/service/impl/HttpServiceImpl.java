@@ -3,19 +3,27 @@ package scraper.api.service.impl;
 import scraper.annotations.NotNull;
 import scraper.api.service.HttpService;
 import scraper.api.service.proxy.ReservationToken;
+import scraper.utils.StringUtil;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.ProxySelector;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 
 import static java.lang.System.Logger.Level.DEBUG;
+import static java.lang.System.Logger.Level.ERROR;
 
 public class HttpServiceImpl implements HttpService {
 
@@ -33,38 +41,137 @@ public class HttpServiceImpl implements HttpService {
 
     private @NotNull final ConcurrentHashMap<InetSocketAddress, HttpClient> clients = new ConcurrentHashMap<>();
 
+    /** Rate and concurrency limits per target host */
+    private @NotNull final HostScheduler hosts = new HostScheduler();
+
+    /** Concurrent identical requests */
+    private @NotNull final SingleFlight inFlight = new SingleFlight();
+
     @Override
     public @NotNull <A> HttpResponse<A> send(
             @NotNull final HttpRequest request,
             @NotNull final HttpResponse.BodyHandler<A> handler,
             @NotNull final ReservationToken token
     ) throws IOException, InterruptedException, TimeoutException, ExecutionException {
-        InetSocketAddress address = token.get();
+        try {
+            return sendAsync(request, handler, token).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            if (e.getCause() instanceof TimeoutException) throw (TimeoutException) e.getCause();
+            throw e;
+        }
+    }
+
+    @Override
+    public @NotNull <A> CompletableFuture<HttpResponse<A>> sendAsync(
+            @NotNull final HttpRequest request,
+            @NotNull final HttpResponse.BodyHandler<A> handler,
+            @NotNull final ReservationToken token
+    ) {
+        // queued requests time out after they have been sent
+        return hosts.submit(host(request), () -> sendNow(request, handler, token));
+    }
+
+    @Override
+    public @NotNull <A> CompletableFuture<HttpResponse<A>> sendAsync(
+            @NotNull final HttpRequest request,
+            @NotNull final HttpResponse.BodyHandler<A> handler,
+            @NotNull final Callable<ReservationToken> reservation,
+            @NotNull final Executor executor
+    ) {
+        // the token is reserved when the host limits allow the request, the thread starting it may be the scheduler
+        return hosts.submit(host(request), () -> CompletableFuture
+                .supplyAsync(() -> {
+                    try {
+                        return reservation.call();
+                    } catch (Exception e) {
+                        throw new CompletionException(e);
+                    }
+                }, executor)
+                .thenCompose(token -> sendNow(request, handler, token)));
+    }
+
+    /** Sends the request regardless of host limits */
+    private @NotNull <A> CompletableFuture<HttpResponse<A>> sendNow(
+            @NotNull final HttpRequest request,
+            @NotNull final HttpResponse.BodyHandler<A> handler,
+            @NotNull final ReservationToken token
+    ) {
         HttpClient client;
-        if(address == null) {
-            client = localClient;
-        } else {
-            client = clients.get(address);
-            if(client == null) {
-                log.log(DEBUG, "Building new http client for address {0}", address);
-                try {
-                    client = HttpClient
-                            .newBuilder()
-                            .version(HttpClient.Version.HTTP_1_1)
-                            .followRedirects(HttpClient.Redirect.ALWAYS)
-                            .proxy(ProxySelector.of(address))
-                            .build();
-                } catch (Exception e) {
-                    throw new IOException("Failed to build httpclient", e);
-                }
-                clients.put(address, client);
+        try {
+            client = client(token);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return client.sendAsync(request, handler).orTimeout(timeoutSeconds(request), TimeUnit.SECONDS);
+    }
+
+    private static @NotNull String host(@NotNull final HttpRequest request) {
+        return (request.uri().getHost() == null ? "" : request.uri().getHost());
+    }
+
+    @Override
+    public @NotNull <A> CompletableFuture<A> coalesce(@NotNull Object key, @NotNull Supplier<CompletableFuture<A>> request) {
+        return inFlight.run(key, request);
+    }
+
+    @Override
+    public void limitHost(@NotNull String host, double requestsPerSecond, int burst, int maxConcurrent) {
+        log.log(DEBUG, "Limiting requests to {0}: {1}/s, burst {2}, concurrent {3}", host, requestsPerSecond, burst, maxConcurrent);
+        hosts.limit(host, requestsPerSecond, burst, maxConcurrent);
+    }
+
+    @Override
+    public void addHostLimits(@NotNull String path) throws IOException {
+        StringUtil.readBody(new File(path), line -> {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) return;
+
+            String[] parts = trimmed.split("\\s+");
+            try {
+                double rate = Double.parseDouble(parts[1]);
+                int burst = (parts.length > 2 ? Integer.parseInt(parts[2]) : 1);
+                int maxConcurrent = (parts.length > 3 ? Integer.parseInt(parts[3]) : 0);
+                limitHost(parts[0], rate, burst, maxConcurrent);
+            } catch (RuntimeException e) {
+                log.log(ERROR, "Bad host limit format in {0}: {1}", path, line);
             }
+        });
+    }
+
+    @Override
+    public void limitConcurrentRequests(int maxConcurrent) {
+        log.log(DEBUG, "Limiting concurrent requests to {0}", maxConcurrent);
+        hosts.limitConcurrent(maxConcurrent);
+    }
+
+    private @NotNull HttpClient client(@NotNull final ReservationToken token) throws IOException {
+        InetSocketAddress address = token.get();
+        if(address == null) return localClient;
+
+        HttpClient client = clients.get(address);
+        if(client == null) {
+            log.log(DEBUG, "Building new http client for address {0}", address);
+            try {
+                client = HttpClient
+                        .newBuilder()
+                        .version(HttpClient.Version.HTTP_1_1)
+                        .followRedirects(HttpClient.Redirect.ALWAYS)
+                        .proxy(ProxySelector.of(address))
+                        .build();
+            } catch (Exception e) {
+                throw new IOException("Failed to build httpclient", e);
+            }
+            clients.put(address, client);
         }
+        return client;
+    }
 
+    private long timeoutSeconds(@NotNull final HttpRequest request) {
         long seconds = 10;
         if (request.timeout().isPresent()) seconds = request.timeout().get().getSeconds();
-
-        return client.sendAsync(request, handler).get(seconds, TimeUnit.SECONDS);
+        return seconds;
     }
 
 }
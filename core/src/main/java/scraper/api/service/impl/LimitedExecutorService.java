@@ -0,0 +1,113 @@
+package scraper.api.service.impl;
+
+import scraper.annotations.NotNull;
+
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Limits the number of concurrently running tasks of an executor which starts a thread per task.
+ * <p>
+ * Submitting a task blocks while the limit is reached, like submitting to a full thread pool.
+ * Tasks submitted by a running task are run by the submitting task instead.
+ * A {@link FlowTask} holds its permit until its flow completed, also if the flow was suspended.
+ */
+public final class LimitedExecutorService extends AbstractExecutorService implements LimitingExecutorService {
+
+    private final ExecutorService perTask;
+    private final Semaphore permits;
+
+    public LimitedExecutorService(@NotNull ExecutorService perTask, int limit) {
+        this.perTask = perTask;
+        this.permits = new Semaphore(limit);
+    }
+
+    @Override
+    public void execute(@NotNull Runnable task) {
+        if(ExecutorsServiceImpl.isFlowWorker()) {
+            // a blocked flow could hold the permit its forked flow waits for
+            if(!permits.tryAcquire()) {
+                task.run();
+                return;
+            }
+        } else {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException("Producer thread interrupted", e);
+            }
+        }
+
+        try {
+            perTask.execute(new Permitted(task));
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            if(!perTask.isShutdown()) throw e;
+            // flows of a shut down job still complete their forks
+            task.run();
+        }
+    }
+
+    @Override
+    public boolean remove(@NotNull Runnable task) {
+        // an executor which starts a thread per task queues no tasks
+        if(!(perTask instanceof ThreadPoolExecutor)) return false;
+
+        ThreadPoolExecutor pool = (ThreadPoolExecutor) perTask;
+        for (Runnable queued : pool.getQueue()) {
+            if(queued instanceof Permitted && ((Permitted) queued).task == task) {
+                if(!pool.remove(queued)) return false;
+
+                // a flow run by the caller keeps its permit until it completed
+                if(task instanceof FlowTask) ((FlowTask) task).getCompletion().whenComplete((result, e) -> permits.release());
+                else permits.release();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Number of tasks which can be started without blocking */
+    public int getAvailablePermits() { return permits.availablePermits(); }
+
+    @Override
+    public void resume(@NotNull Runnable continuation) {
+        // the flow holds its permit already
+        perTask.execute(() -> {
+            ExecutorsServiceImpl.markFlowWorker();
+            continuation.run();
+        });
+    }
+
+    /** Task which holds a permit */
+    private final class Permitted implements Runnable {
+        final Runnable task;
+
+        Permitted(@NotNull Runnable task) { this.task = task; }
+
+        @Override
+        public void run() {
+            ExecutorsServiceImpl.markFlowWorker();
+            if(task instanceof FlowTask) {
+                ((FlowTask) task).getCompletion().whenComplete((result, e) -> permits.release());
+                task.run();
+                return;
+            }
+
+            try {
+                task.run();
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+    @Override public void shutdown() { perTask.shutdown(); }
+    @NotNull @Override public List<Runnable> shutdownNow() { return perTask.shutdownNow(); }
+    @Override public boolean isShutdown() { return perTask.isShutdown(); }
+    @Override public boolean isTerminated() { return perTask.isTerminated(); }
+    @Override public boolean awaitTermination(long timeout, @NotNull TimeUnit unit) throws InterruptedException {
+        return perTask.awaitTermination(timeout, unit);
+    }
+}
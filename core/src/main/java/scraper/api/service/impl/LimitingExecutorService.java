@@ -0,0 +1,28 @@
+package scraper.api.service.impl;
+
+import scraper.annotations.NotNull;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Executor service which limits the number of concurrent flows of a group.
+ */
+public interface LimitingExecutorService extends ExecutorService {
+
+    /**
+     * Runs the continuation of a suspended flow which was admitted by this executor before.
+     * The continuation does not count against the limit, the calling thread never blocks.
+     *
+     * @throws RejectedExecutionException if the executor is shut down
+     */
+    void resume(@NotNull Runnable continuation);
+
+    /**
+     * Removes a queued task which was not started yet, e.g. a forked flow run by a joining thread instead.
+     * A removed flow keeps counting against the limit until it completed, other removed tasks are released.
+     *
+     * @return true if the task was removed, the caller then runs it
+     */
+    boolean remove(@NotNull Runnable task);
+}
@@ -9,6 +9,7 @@ import scraper.api.service.impl.proxy.ReservationTokenImpl;
 import scraper.api.service.proxy.GroupInfo;
 import scraper.api.service.proxy.ProxyMode;
 import scraper.api.service.proxy.ReservationToken;
+import scraper.util.SchedulerUtil;
 import scraper.utils.StringUtil;
 
 import java.io.File;
@@ -143,29 +144,23 @@ public class ProxyReservationImpl implements ProxyReservation {
         return reserved;
     }
 
+    /** Returns the proxy to its group after the hold of the reservation, does not block the releasing thread */
     private void releaseProxy(@NotNull final ProxyInfoImpl info) {
-        try {
-            Thread.sleep(info.hold);
-        } catch (InterruptedException e) {
-            log.log(ERROR, "Interrupted while hold on release");
-            throw new RuntimeException(e);
-        }
+        SchedulerUtil.schedule(() -> freeProxy(info), info.hold);
+    }
 
+    private void freeProxy(@NotNull final ProxyInfoImpl info) {
         synchronized (allProxies.get(info.group)) {
             GroupInfoImpl group = allProxies.get(info.group);
             if (!group.usedProxies.remove(info)) log.log(ERROR, "Released proxy which was not in use: {0}", info);
 
             if(info.score < 2L) {
-                Timer timer = new Timer(false);
                 int randomMinute = new Random().nextInt(30);
                 log.log(INFO, "Proxy too low score, releasing in {0} minutes: {1}", randomMinute, info);
-                timer.schedule(new TimerTask() {
-                    @Override
-                    public void run() {
-                        log.log(INFO, "Score reset for {0}", info.address);
-                        info.score = 50L;
-                    }
-                }, randomMinute*60*1000); // 15 minutes
+                SchedulerUtil.schedule(() -> {
+                    log.log(INFO, "Score reset for {0}", info.address);
+                    info.score = 50L;
+                }, randomMinute*60*1000L);
             }
             else if(!group.freeProxies.contains(info)) group.freeProxies.offer(info);
         }
@@ -254,18 +249,12 @@ public class ProxyReservationImpl implements ProxyReservation {
     private @NotNull ReservationTokenImpl createLocalToken(@NotNull final String proxyGroup,
                                                            int holdOnReservation, LocalChannelInfo info) {
         return new ReservationTokenImpl(info.id, 0L, 0L, null,
-                () -> {
-                    // sleep in another thread other than the tokens local thread
-                    Thread sleepThread = new Thread(() -> {
-                        try { Thread.sleep(holdOnReservation); } catch (InterruptedException e) { throw new RuntimeException(e); }
-                        info.inUse.set(false);
-                        synchronized (allLocalChannels.get(proxyGroup)) {
-                            allLocalChannels.get(proxyGroup).notify();
-                        }
-                    });
-                    sleepThread.setDaemon(true);
-                    sleepThread.start();
-                },
+                () -> SchedulerUtil.schedule(() -> {
+                    info.inUse.set(false);
+                    synchronized (allLocalChannels.get(proxyGroup)) {
+                        allLocalChannels.get(proxyGroup).notify();
+                    }
+                }, holdOnReservation),
                 () -> {}
         );
     }
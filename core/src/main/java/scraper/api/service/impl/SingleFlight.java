@@ -0,0 +1,58 @@
+package scraper.api.service.impl;
+
+import scraper.annotations.NotNull;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Shares one in-flight call between concurrent callers with the same key.
+ * <p>
+ * The first caller of a key starts the call, later callers get the result of that call until it completes.
+ * A completed call is forgotten, the next caller of its key starts a new call.
+ * Every caller gets an own future, so completing or cancelling it does not affect other callers.
+ */
+public final class SingleFlight {
+
+    private final ConcurrentMap<Object, CompletableFuture<?>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder coalesced = new LongAdder();
+
+    /** Result of the in-flight call of the key, starts the call if there is none */
+    @NotNull
+    public <A> CompletableFuture<A> run(@NotNull Object key, @NotNull Supplier<CompletableFuture<A>> call) {
+        CompletableFuture<A> shared = new CompletableFuture<>();
+
+        @SuppressWarnings("unchecked") // calls with equal keys have equal result types
+        CompletableFuture<A> running = (CompletableFuture<A>) inFlight.putIfAbsent(key, shared);
+        if (running != null) {
+            coalesced.increment();
+            return running.copy();
+        }
+
+        CompletableFuture<A> started;
+        try {
+            started = call.get();
+        } catch (Throwable e) {
+            inFlight.remove(key, shared);
+            shared.completeExceptionally(e);
+            return shared.copy();
+        }
+
+        started.whenComplete((result, e) -> {
+            // forgotten before callers see the result, later callers start a new call
+            inFlight.remove(key, shared);
+            if (e == null) shared.complete(result);
+            else shared.completeExceptionally(e);
+        });
+        return shared.copy();
+    }
+
+    /** Calls in flight */
+    public int getInFlight() { return inFlight.size(); }
+
+    /** Callers which got the result of a call started by another caller */
+    public long getCoalesced() { return coalesced.sum(); }
+}
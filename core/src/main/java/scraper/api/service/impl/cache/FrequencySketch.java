@@ -0,0 +1,69 @@
+package scraper.api.service.impl.cache;
+
+/**
+ * Approximate access frequencies of keys in a count-min sketch of small counters, one row of counters per hash function.
+ * Counters are halved after a number of accesses, so frequencies reflect recent accesses.
+ * Updates are not synchronized, a lost update only makes a frequency slightly lower.
+ */
+final class FrequencySketch {
+
+    /** Maximum value of a counter */
+    static final int MAX = 15;
+    /** Counters per key */
+    private static final int DEPTH = 4;
+    private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+    private final byte[] counters;
+    /** Mask of an index within a row */
+    private final int mask;
+    private final int resetAt;
+    private int additions = 0;
+
+    /** @param size Number of counters, rounded up to a power of two */
+    FrequencySketch(int size) {
+        int length = Integer.highestOneBit(Math.max(16, size - 1) << 1);
+        this.counters = new byte[length];
+        this.mask = length / DEPTH - 1;
+        this.resetAt = 10 * length / DEPTH;
+    }
+
+    /** Estimated recent accesses of the key */
+    int frequency(Object key) {
+        int h = spread(key.hashCode());
+        int frequency = MAX;
+        for (int i = 0; i < DEPTH; i++) frequency = Math.min(frequency, counters[index(h, i)]);
+        return frequency;
+    }
+
+    /** Records an access of the key */
+    void increment(Object key) {
+        int h = spread(key.hashCode());
+        boolean added = false;
+        for (int i = 0; i < DEPTH; i++) {
+            int index = index(h, i);
+            if (counters[index] < MAX) {
+                counters[index]++;
+                added = true;
+            }
+        }
+
+        if (added && ++additions >= resetAt) reset();
+    }
+
+    /** Halves all counters */
+    private void reset() {
+        additions = 0;
+        for (int i = 0; i < counters.length; i++) counters[i] >>= 1;
+    }
+
+    private int index(int h, int i) {
+        int x = (h + SEEDS[i]) * SEEDS[i];
+        return i * (mask + 1) + ((x ^ (x >>> 16)) & mask);
+    }
+
+    private static int spread(int h) {
+        h ^= h >>> 16;
+        h *= 0x45D9F3B;
+        return h ^ (h >>> 16);
+    }
+}
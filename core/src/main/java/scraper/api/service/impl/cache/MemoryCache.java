@@ -0,0 +1,208 @@
+package scraper.api.service.impl.cache;
+
+import scraper.annotations.NotNull;
+import scraper.annotations.Nullable;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Least recently used cache of strings bounded by their estimated size in bytes.
+ * <p>
+ * If a new value does not fit, it is only admitted if its key was accessed more often recently
+ * than the least recently used key it would evict (TinyLFU), so values which are read once
+ * do not displace frequently read values.
+ * Keys are hashed into stripes, each with an own lock and an equal share of the maximum size.
+ * Values expire by the time to live given on lookup, counted from the timestamp given when the value was put.
+ * Values larger than the share of a stripe are not cached.
+ * A value can be marked as checked, e.g. by a validation which does not need to be repeated for the same value.
+ */
+public final class MemoryCache<K> {
+
+    /** Number of stripes, a power of two */
+    static final int STRIPES = 16;
+    /** Estimated bytes of an entry without its value, including a typical key */
+    static final int ENTRY_OVERHEAD = 256;
+    /** Counters of the frequency sketch */
+    static final int SKETCH_SIZE = 1 << 20;
+
+    private final Stripe<K>[] stripes;
+    private final FrequencySketch sketch = new FrequencySketch(SKETCH_SIZE);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    private volatile long maxSize;
+
+    @SuppressWarnings("unchecked") // generic array, stripes only hold keys of type K
+    public MemoryCache(long maxSize) {
+        this.stripes = new Stripe[STRIPES];
+        for (int i = 0; i < STRIPES; i++) stripes[i] = new Stripe<>();
+        this.maxSize = Math.max(0, maxSize);
+    }
+
+    /** Bounds the estimated size of all values in bytes, evicts least recently used values if necessary */
+    public void setMaxSize(long maxSize) {
+        this.maxSize = Math.max(0, maxSize);
+        for (Stripe<K> stripe : stripes) {
+            synchronized (stripe) { evict(stripe); }
+        }
+    }
+
+    /**
+     * Value of the key if present and not older than the given time to live.
+     *
+     * @param ttlMs Time to live in ms, values do not expire if null
+     */
+    @Nullable
+    public String get(@NotNull K key, @Nullable Long ttlMs) {
+        Stripe<K> stripe = stripeOf(key);
+        synchronized (stripe) {
+            sketch.increment(key);
+            Cached cached = stripe.entries.get(key);
+            if (cached != null && ttlMs != null && System.currentTimeMillis() - cached.timestamp > ttlMs) {
+                remove(stripe, key);
+                cached = null;
+            }
+
+            if (cached == null) {
+                misses.increment();
+                return null;
+            }
+
+            hits.increment();
+            return cached.value;
+        }
+    }
+
+    /**
+     * Puts the value of the key which was cached at the given time.
+     * A value which replaces a value of the same key is always admitted.
+     */
+    public void put(@NotNull K key, @NotNull String value, long timestamp) {
+        Stripe<K> stripe = stripeOf(key);
+        long size = sizeOf(value);
+
+        synchronized (stripe) {
+            boolean replaced = remove(stripe, key);
+            if (size > maxSize / STRIPES || (!replaced && !admit(stripe, key, size))) {
+                rejections.increment();
+                return;
+            }
+
+            stripe.entries.put(key, new Cached(value, timestamp, size));
+            stripe.size += size;
+            evict(stripe);
+        }
+    }
+
+    /** True if the value of the key is the given one and was marked as checked with an equal check key */
+    public boolean isChecked(@NotNull K key, @NotNull String value, @NotNull Object checkKey) {
+        Stripe<K> stripe = stripeOf(key);
+        synchronized (stripe) {
+            Cached cached = stripe.entries.get(key);
+            return cached != null && cached.value == value && checkKey.equals(cached.checked);
+        }
+    }
+
+    /** Marks the value of the key as checked with the given check key if the key still has this value */
+    public void setChecked(@NotNull K key, @NotNull String value, @NotNull Object checkKey) {
+        Stripe<K> stripe = stripeOf(key);
+        synchronized (stripe) {
+            Cached cached = stripe.entries.get(key);
+            if (cached != null && cached.value == value) cached.checked = checkKey;
+        }
+    }
+
+    /** Removes the value of the key */
+    public void remove(@NotNull K key) {
+        Stripe<K> stripe = stripeOf(key);
+        synchronized (stripe) { remove(stripe, key); }
+    }
+
+    /** Lookups which found a value */
+    public long getHits() { return hits.sum(); }
+
+    /** Lookups which found no value or an expired value */
+    public long getMisses() { return misses.sum(); }
+
+    /** Values removed to stay within the maximum size */
+    public long getEvictions() { return evictions.sum(); }
+
+    /** Values which were not admitted */
+    public long getRejections() { return rejections.sum(); }
+
+    /** Estimated size of all values in bytes */
+    public long getSize() {
+        long size = 0;
+        for (Stripe<K> stripe : stripes) {
+            synchronized (stripe) { size += stripe.size; }
+        }
+        return size;
+    }
+
+    /** Values are estimated with two bytes per char */
+    private static long sizeOf(@NotNull String value) {
+        return ENTRY_OVERHEAD + 2L * value.length();
+    }
+
+    private boolean remove(@NotNull Stripe<K> stripe, @NotNull K key) {
+        Cached removed = stripe.entries.remove(key);
+        if (removed != null) stripe.size -= removed.size;
+        return removed != null;
+    }
+
+    /** True if the value fits or its key is accessed more often than the keys it would evict */
+    private boolean admit(@NotNull Stripe<K> stripe, @NotNull K key, long size) {
+        long free = maxSize / STRIPES - stripe.size;
+        if (size <= free) return true;
+
+        int frequency = sketch.frequency(key);
+        for (Map.Entry<K, Cached> victim : stripe.entries.entrySet()) {
+            if (sketch.frequency(victim.getKey()) >= frequency) return false;
+            free += victim.getValue().size;
+            if (size <= free) return true;
+        }
+        return true;
+    }
+
+    private void evict(@NotNull Stripe<K> stripe) {
+        long max = maxSize / STRIPES;
+        Iterator<Cached> eldest = stripe.entries.values().iterator();
+        while (stripe.size > max && eldest.hasNext()) {
+            stripe.size -= eldest.next().size;
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    @NotNull
+    private Stripe<K> stripeOf(@NotNull K key) {
+        int h = key.hashCode();
+        return stripes[(h ^ (h >>> 16)) & (STRIPES - 1)];
+    }
+
+    /** Entries in access order and their size, guarded by the stripe */
+    private static final class Stripe<K> {
+        final Map<K, Cached> entries = new LinkedHashMap<>(16, 0.75f, true);
+        long size = 0;
+    }
+
+    private static final class Cached {
+        final String value;
+        final long timestamp;
+        final long size;
+        /** Key of the last check the value passed, guarded by the stripe */
+        Object checked;
+
+        Cached(String value, long timestamp, long size) {
+            this.value = value;
+            this.timestamp = timestamp;
+            this.size = size;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package scraper.api.service.impl.cache;
+
+import scraper.annotations.NotNull;
+import scraper.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A single entry of a segment. Layout:
+ * <pre>
+ * int  magic
+ * int  length of the rest of the record
+ * long timestamp
+ * byte flags
+ * int  key length, key bytes
+ * int  value length, value bytes
+ * int  CRC32 of timestamp to value bytes
+ * </pre>
+ * A record which is cut off or does not match its checksum marks the end of a segment.
+ */
+final class Record {
+
+    static final int MAGIC = 0x5C4A0001;
+    static final int HEADER = 8;
+
+    static final byte COMPRESSED = 1;
+    static final byte TOMBSTONE = 2;
+
+    /** Values smaller than this are not compressed */
+    static final int MIN_COMPRESS = 512;
+
+    final long timestamp;
+    final byte flags;
+    final String key;
+    /** Stored value, compressed if flagged */
+    final byte[] value;
+
+    private Record(long timestamp, byte flags, @NotNull String key, @NotNull byte[] value) {
+        this.timestamp = timestamp;
+        this.flags = flags;
+        this.key = key;
+        this.value = value;
+    }
+
+    boolean isTombstone() { return (flags & TOMBSTONE) != 0; }
+
+    /** The stored value */
+    @NotNull
+    String value() {
+        if ((flags & COMPRESSED) == 0) return new String(value, StandardCharsets.UTF_8);
+
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(value);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(value.length * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                    throw new IllegalStateException("Truncated compressed value");
+                out.write(buffer, 0, n);
+            }
+            return out.toString(StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Bad compressed value", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /** Encodes a value, compressed if requested and smaller */
+    @NotNull
+    static ByteBuffer encode(@NotNull String key, @NotNull String value, long timestamp, boolean compress) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        byte flags = 0;
+
+        if (compress && bytes.length >= MIN_COMPRESS) {
+            byte[] compressed = deflate(bytes);
+            if (compressed.length < bytes.length) {
+                bytes = compressed;
+                flags = COMPRESSED;
+            }
+        }
+
+        return encode(key, bytes, timestamp, flags);
+    }
+
+    /** Encodes a removal of the key */
+    @NotNull
+    static ByteBuffer tombstone(@NotNull String key, long timestamp) {
+        return encode(key, new byte[0], timestamp, TOMBSTONE);
+    }
+
+    /** Encodes the record again, e.g. to move it into another segment */
+    @NotNull
+    ByteBuffer encode() {
+        return encode(key, value, timestamp, flags);
+    }
+
+    @NotNull
+    private static ByteBuffer encode(@NotNull String key, @NotNull byte[] value, long timestamp, byte flags) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int length = 8 + 1 + 4 + keyBytes.length + 4 + value.length + 4;
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER + length);
+        buffer.putInt(MAGIC).putInt(length)
+                .putLong(timestamp).put(flags)
+                .putInt(keyBytes.length).put(keyBytes)
+                .putInt(value.length).put(value);
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), HEADER, length - 4);
+        buffer.putInt((int) crc.getValue());
+
+        return buffer.flip();
+    }
+
+    /** Length of the record after the header, -1 if the header is not valid */
+    static int length(@NotNull ByteBuffer header) {
+        if (header.remaining() < HEADER || header.getInt(header.position()) != MAGIC) return -1;
+        int length = header.getInt(header.position() + 4);
+        return (length < 8 + 1 + 4 + 4 + 4 ? -1 : length);
+    }
+
+    /** Decodes a complete record including the header, null if the record is corrupt */
+    @Nullable
+    static Record decode(@NotNull ByteBuffer record) {
+        int length = length(record);
+        if (length < 0 || record.remaining() != HEADER + length) return null;
+
+        byte[] bytes = new byte[record.remaining()];
+        record.get(bytes);
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes, HEADER, length - 4);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (buffer.getInt(HEADER + length - 4) != (int) crc.getValue()) return null;
+
+        buffer.position(HEADER);
+        long timestamp = buffer.getLong();
+        byte flags = buffer.get();
+
+        int keyLength = buffer.getInt();
+        if (keyLength < 0 || keyLength > buffer.remaining() - 8) return null;
+        String key = new String(bytes, buffer.position(), keyLength, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + keyLength);
+
+        int valueLength = buffer.getInt();
+        if (valueLength < 0 || valueLength != buffer.remaining() - 4) return null;
+        byte[] value = new byte[valueLength];
+        buffer.get(value);
+
+        return new Record(timestamp, flags, key, value);
+    }
+
+    @NotNull
+    private static byte[] deflate(@NotNull byte[] bytes) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 2);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+}
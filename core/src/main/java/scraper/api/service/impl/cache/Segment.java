@@ -0,0 +1,154 @@
+package scraper.api.service.impl.cache;
+
+import scraper.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Append-only file of records. Records are written with a single positional write each
+ * and read with positional reads, which do not block each other.
+ * Size and dead bytes are guarded by the owning shard.
+ * <p>
+ * An interrupted thread closes the file channel while it reads or writes.
+ * The file is then opened again, the operation fails only for the interrupted thread.
+ */
+final class Segment implements Closeable {
+
+    final int id;
+    final Path path;
+    private volatile FileChannel channel;
+    private volatile boolean closed = false;
+
+    /** Bytes of all records */
+    long size;
+    /** Bytes of records which are overwritten, removed or tombstones */
+    long dead = 0;
+
+    private Segment(int id, @NotNull Path path, @NotNull FileChannel channel, long size) {
+        this.id = id;
+        this.path = path;
+        this.channel = channel;
+        this.size = size;
+    }
+
+    @NotNull
+    static Segment open(int id, @NotNull Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, CREATE, READ, WRITE);
+        return new Segment(id, path, channel, channel.size());
+    }
+
+    /** Appends a record, returns its offset */
+    long append(@NotNull ByteBuffer record) throws IOException {
+        long offset = size;
+        int start = record.position();
+        size = io(channel -> {
+            // a record interrupted by a closed channel is written again
+            record.position(start);
+            long position = offset;
+            while (record.hasRemaining()) position += channel.write(record, position);
+            return position;
+        });
+        return offset;
+    }
+
+    /** Reads the record at the offset, null if it is corrupt */
+    Record read(long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        if (!readFully(buffer, offset)) return null;
+        return Record.decode(buffer.flip());
+    }
+
+    /**
+     * Reads all valid records in order and passes them with their offset and length to the visitor.
+     * A corrupt tail, e.g. of an interrupted write, is cut off.
+     */
+    void scan(@NotNull Visitor visitor) throws IOException {
+        long end = io(FileChannel::size);
+        long offset = 0;
+        ByteBuffer header = ByteBuffer.allocate(Record.HEADER);
+
+        while (end - offset >= Record.HEADER) {
+            header.clear();
+            if (!readFully(header, offset)) break;
+            int length = Record.length(header.flip());
+            if (length < 0 || offset + Record.HEADER + length > end) break;
+
+            Record record = read(offset, Record.HEADER + length);
+            if (record == null) break;
+
+            visitor.visit(record, offset, Record.HEADER + length);
+            offset += Record.HEADER + length;
+        }
+
+        long valid = offset;
+        if (valid < end) io(channel -> channel.truncate(valid));
+        size = valid;
+    }
+
+    private boolean readFully(@NotNull ByteBuffer buffer, long offset) throws IOException {
+        return io(channel -> {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, offset + buffer.position()) < 0) return false;
+            }
+            return true;
+        });
+    }
+
+    /** Flushes written records to the storage device */
+    void force() throws IOException {
+        io(channel -> {
+            channel.force(false);
+            return null;
+        });
+    }
+
+    /**
+     * Runs the operation on the channel, a channel closed by an interrupted thread is opened again.
+     * The operation is repeated unless the calling thread is interrupted or the segment is closed.
+     */
+    private <R> R io(@NotNull ChannelOperation<R> operation) throws IOException {
+        while (true) {
+            FileChannel current = channel;
+            try {
+                return operation.apply(current);
+            } catch (ClosedChannelException e) {
+                if (!reopen(current) || Thread.currentThread().isInterrupted()) throw e;
+            }
+        }
+    }
+
+    /** Opens the file again if the channel was closed, returns false if the segment is closed */
+    private synchronized boolean reopen(@NotNull FileChannel closedChannel) throws IOException {
+        if (closed) return false;
+        if (channel == closedChannel && !closedChannel.isOpen()) channel = FileChannel.open(path, READ, WRITE);
+        return true;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        channel.close();
+    }
+
+    /** Closes and deletes the segment file */
+    void delete() throws IOException {
+        close();
+        Files.deleteIfExists(path);
+    }
+
+    interface Visitor {
+        void visit(@NotNull Record record, long offset, int length) throws IOException;
+    }
+
+    private interface ChannelOperation<R> {
+        R apply(@NotNull FileChannel channel) throws IOException;
+    }
+}
@@ -0,0 +1,424 @@
+package scraper.api.service.impl.cache;
+
+import scraper.annotations.NotNull;
+import scraper.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.lang.System.Logger.Level.*;
+
+/**
+ * Key value store of strings in append-only segment files with an in-memory index.
+ * <p>
+ * Keys are hashed into shards, each shard is a directory of segments with an own lock for writers.
+ * Readers look up the position of a record in the index and read it without locking.
+ * Every record has a checksum, a record which was not written completely is cut off when the store is opened.
+ * Sealed segments with mostly overwritten or removed records are compacted in the background
+ * and the oldest segments are evicted if the store exceeds its maximum size.
+ */
+public final class SegmentStore implements Closeable {
+
+    private static final System.Logger log = System.getLogger("SegmentStore");
+
+    /** Number of shards, a power of two */
+    static final int SHARDS = 16;
+    /** Default size at which the active segment of a shard is sealed */
+    public static final long DEFAULT_SEGMENT_SIZE = 64L << 20;
+    /** Sealed segments with at least this fraction of dead bytes are compacted */
+    static final double COMPACT_RATIO = 0.5;
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private static final ThreadLocal<MessageDigest> sha256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not supported", e);
+        }
+    });
+
+    private final Path directory;
+    private final long segmentSize;
+    private final Shard[] shards = new Shard[SHARDS];
+
+    private final Executor maintenance;
+    private final AtomicBoolean maintenancePending = new AtomicBoolean(false);
+
+    private volatile boolean compress = false;
+    private volatile long maxSize = Long.MAX_VALUE;
+
+    private SegmentStore(@NotNull Path directory, long segmentSize, @NotNull Executor maintenance) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maintenance = maintenance;
+    }
+
+    /**
+     * Opens the store in the given directory, creates it if necessary and indexes existing segments.
+     *
+     * @param segmentSize Size at which segments are sealed
+     * @param maintenance Executor of background compaction and eviction
+     */
+    @NotNull
+    public static SegmentStore open(@NotNull Path directory, long segmentSize, @NotNull Executor maintenance) throws IOException {
+        SegmentStore store = new SegmentStore(directory, segmentSize, maintenance);
+        for (int i = 0; i < SHARDS; i++) {
+            store.shards[i] = store.new Shard(directory.resolve(String.format("shard-%02d", i)));
+        }
+        return store;
+    }
+
+    /** Compresses values which are put from now on */
+    public void setCompression(boolean compress) { this.compress = compress; }
+
+    /** Evicts the oldest segments in the background if the store exceeds the given size in bytes */
+    public void setMaxSize(long maxSize) {
+        this.maxSize = (maxSize > 0 ? maxSize : Long.MAX_VALUE);
+        requestMaintenance();
+    }
+
+    /**
+     * Value of the key if present and not older than the given time to live.
+     * Expired values are removed.
+     *
+     * @param ttlMs Time to live in ms, values do not expire if null
+     */
+    @NotNull
+    public Optional<String> get(@NotNull String key, @Nullable Long ttlMs) throws IOException {
+        Timestamped value = getTimestamped(key, ttlMs);
+        return (value == null ? Optional.empty() : Optional.of(value.value));
+    }
+
+    /** Like {@link #get(String, Long)}, with the time the value was put, null if there is no such value */
+    @Nullable
+    public Timestamped getTimestamped(@NotNull String key, @Nullable Long ttlMs) throws IOException {
+        Hash hash = Hash.of(key);
+        Shard shard = shardOf(hash);
+
+        // a record can be moved by a compaction while it is read
+        for (int attempt = 0; attempt < 3; attempt++) {
+            Entry entry = shard.index.get(hash);
+            if (entry == null) return null;
+
+            if (ttlMs != null && System.currentTimeMillis() - entry.timestamp > ttlMs) {
+                shard.remove(hash, key, entry);
+                return null;
+            }
+
+            Record record;
+            try {
+                record = entry.segment.read(entry.offset, entry.length);
+            } catch (ClosedChannelException e) {
+                // the segment was compacted or evicted, unless this thread is interrupted
+                if (Thread.currentThread().isInterrupted()) throw e;
+                continue;
+            }
+
+            if (record == null) {
+                log.log(WARNING, "Removing corrupt record in {0}: {1}", entry.segment.path, key);
+                shard.remove(hash, key, entry);
+                return null;
+            }
+            // hash collision, the key is stored with the record
+            if (!record.key.equals(key)) return null;
+
+            return new Timestamped(record.value(), record.timestamp);
+        }
+
+        return null;
+    }
+
+    /** Puts the value of the key with the current time */
+    public void put(@NotNull String key, @NotNull String value) throws IOException {
+        put(key, value, System.currentTimeMillis());
+    }
+
+    /** Puts the value of the key with the given time, the time to live of the value starts at that time */
+    public void put(@NotNull String key, @NotNull String value, long timestamp) throws IOException {
+        Hash hash = Hash.of(key);
+        // encoded and compressed outside of the lock
+        ByteBuffer record = Record.encode(key, value, timestamp, compress);
+        shardOf(hash).put(hash, record, timestamp);
+    }
+
+    /** Removes the key, returns true if it was present */
+    public boolean remove(@NotNull String key) throws IOException {
+        Hash hash = Hash.of(key);
+        Shard shard = shardOf(hash);
+        Entry entry = shard.index.get(hash);
+        return entry != null && shard.remove(hash, key, entry);
+    }
+
+    /** Number of keys */
+    public int size() {
+        int size = 0;
+        for (Shard shard : shards) size += shard.index.size();
+        return size;
+    }
+
+    /** Bytes of all segments */
+    public long sizeOnDisk() {
+        long size = 0;
+        for (Shard shard : shards) size += shard.sizeOnDisk();
+        return size;
+    }
+
+    /** Compacts sealed segments with mostly dead records and evicts the oldest segments if the store is too large */
+    public void maintain() throws IOException {
+        maintenancePending.set(false);
+        for (Shard shard : shards) shard.compact();
+
+        long size = sizeOnDisk();
+        while (size > maxSize) {
+            // oldest segment of the largest shard first
+            Shard largest = shards[0];
+            for (Shard shard : shards) if (shard.sizeOnDisk() > largest.sizeOnDisk()) largest = shard;
+            long evicted = largest.evictOldest();
+            if (evicted == 0) break;
+            size -= evicted;
+        }
+    }
+
+    /** Flushes all segments */
+    public void flush() throws IOException {
+        for (Shard shard : shards) shard.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Shard shard : shards) shard.close();
+    }
+
+    @Override
+    public String toString() {
+        return "SegmentStore " + directory;
+    }
+
+    @NotNull
+    private Shard shardOf(@NotNull Hash hash) {
+        return shards[(int) (hash.hi >>> 32) & (SHARDS - 1)];
+    }
+
+    private void requestMaintenance() {
+        if (!maintenancePending.compareAndSet(false, true)) return;
+
+        maintenance.execute(() -> {
+            try {
+                maintain();
+            } catch (IOException | RuntimeException e) {
+                log.log(WARNING, "Maintenance of {0} failed: {1}", directory, e.getMessage());
+            }
+        });
+    }
+
+    /** Segments of a part of the key space */
+    private final class Shard implements Closeable {
+        final Path directory;
+        final ConcurrentHashMap<Hash, Entry> index = new ConcurrentHashMap<>();
+        /** Segments in write order, guarded by this shard */
+        final List<Segment> segments = new ArrayList<>();
+        /** Segment written to, guarded by this shard */
+        Segment active;
+
+        Shard(@NotNull Path directory) throws IOException {
+            this.directory = directory;
+            Files.createDirectories(directory);
+
+            List<Path> files = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+                stream.forEach(files::add);
+            }
+            files.sort(Comparator.comparingInt(SegmentStore::segmentId));
+
+            for (Path file : files) {
+                if (segmentId(file) < 0) continue;
+                Segment segment = Segment.open(segmentId(file), file);
+                segments.add(segment);
+                segment.scan((record, offset, length) -> index(segment, record, offset, length));
+            }
+
+            if (segments.isEmpty()) roll();
+            else active = segments.get(segments.size() - 1);
+        }
+
+        /** Indexes a record read from a segment, later records replace earlier ones */
+        private void index(@NotNull Segment segment, @NotNull Record record, long offset, int length) {
+            Hash hash = Hash.of(record.key);
+            Entry previous;
+            if (record.isTombstone()) {
+                previous = index.remove(hash);
+                segment.dead += length;
+            } else {
+                previous = index.put(hash, new Entry(segment, offset, length, record.timestamp));
+            }
+            if (previous != null) previous.segment.dead += previous.length;
+        }
+
+        synchronized void put(@NotNull Hash hash, @NotNull ByteBuffer record, long timestamp) throws IOException {
+            int length = record.remaining();
+            if (active.size > 0 && active.size + length > segmentSize) roll();
+
+            long offset = active.append(record);
+            Entry previous = index.put(hash, new Entry(active, offset, length, timestamp));
+            if (previous != null) previous.segment.dead += previous.length;
+        }
+
+        /** Removes the entry if the key still maps to it */
+        synchronized boolean remove(@NotNull Hash hash, @NotNull String key, @NotNull Entry entry) throws IOException {
+            if (!index.remove(hash, entry)) return false;
+
+            ByteBuffer tombstone = Record.tombstone(key, System.currentTimeMillis());
+            int length = tombstone.remaining();
+            if (active.size > 0 && active.size + length > segmentSize) roll();
+            active.append(tombstone);
+            active.dead += length;
+            entry.segment.dead += entry.length;
+            return true;
+        }
+
+        /** Seals the active segment and starts a new one */
+        private void roll() throws IOException {
+            int id = (active == null ? 0 : active.id + 1);
+            if (active != null) active.force();
+
+            active = Segment.open(id, directory.resolve(String.format("%08d", id) + SEGMENT_SUFFIX));
+            segments.add(active);
+            if (segments.size() > 1) requestMaintenance();
+        }
+
+        /** Moves the live records of sealed segments with mostly dead records into the active segment */
+        synchronized void compact() throws IOException {
+            for (Segment segment : new ArrayList<>(segments)) {
+                if (segment == active || segment.dead < segment.size * COMPACT_RATIO) continue;
+
+                boolean oldest = (segment == segments.get(0));
+                segment.scan((record, offset, length) -> {
+                    Hash hash = Hash.of(record.key);
+                    Entry entry = index.get(hash);
+
+                    if (record.isTombstone()) {
+                        // a tombstone is needed as long as an older segment can contain the key
+                        if (!oldest && entry == null) moveTombstone(record);
+                    } else if (entry != null && entry.segment == segment && entry.offset == offset) {
+                        move(hash, record, entry);
+                    }
+                });
+
+                segments.remove(segment);
+                segment.delete();
+                log.log(DEBUG, "Compacted segment {0}", segment.path);
+            }
+        }
+
+        private void move(@NotNull Hash hash, @NotNull Record record, @NotNull Entry entry) throws IOException {
+            ByteBuffer encoded = record.encode();
+            int length = encoded.remaining();
+            if (active.size + length > segmentSize) roll();
+
+            long offset = active.append(encoded);
+            index.put(hash, new Entry(active, offset, length, entry.timestamp));
+        }
+
+        private void moveTombstone(@NotNull Record record) throws IOException {
+            ByteBuffer encoded = record.encode();
+            int length = encoded.remaining();
+            if (active.size + length > segmentSize) roll();
+
+            active.append(encoded);
+            active.dead += length;
+        }
+
+        /** Evicts the oldest sealed segment, returns its size */
+        synchronized long evictOldest() throws IOException {
+            if (segments.size() < 2) return 0;
+
+            Segment oldest = segments.remove(0);
+            index.values().removeIf(entry -> entry.segment == oldest);
+            oldest.delete();
+            log.log(DEBUG, "Evicted segment {0}", oldest.path);
+            return oldest.size;
+        }
+
+        synchronized long sizeOnDisk() {
+            long size = 0;
+            for (Segment segment : segments) size += segment.size;
+            return size;
+        }
+
+        synchronized void flush() throws IOException {
+            active.force();
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            active.force();
+            for (Segment segment : segments) segment.close();
+        }
+    }
+
+    private static int segmentId(@NotNull Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return Integer.parseInt(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /** Position of the current record of a key */
+    private static final class Entry {
+        final Segment segment;
+        final long offset;
+        final int length;
+        final long timestamp;
+
+        Entry(Segment segment, long offset, int length, long timestamp) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.timestamp = timestamp;
+        }
+    }
+
+    /** First 128 bits of the SHA-256 hash of a key */
+    private static final class Hash {
+        final long hi;
+        final long lo;
+
+        private Hash(long hi, long lo) {
+            this.hi = hi;
+            this.lo = lo;
+        }
+
+        static Hash of(@NotNull String key) {
+            ByteBuffer digest = ByteBuffer.wrap(sha256.get().digest(key.getBytes(StandardCharsets.UTF_8)));
+            return new Hash(digest.getLong(), digest.getLong());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Hash)) return false;
+            Hash hash = (Hash) o;
+            return hi == hash.hi && lo == hash.lo;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (lo ^ (lo >>> 32));
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package scraper.api.service.impl.cache;
+
+import scraper.annotations.NotNull;
+
+/** A stored value and the time it was put */
+public final class Timestamped {
+
+    public final @NotNull String value;
+    public final long timestamp;
+
+    Timestamped(@NotNull String value, long timestamp) {
+        this.value = value;
+        this.timestamp = timestamp;
+    }
+}
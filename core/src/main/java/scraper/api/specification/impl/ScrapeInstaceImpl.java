@@ -1,26 +1,33 @@
 package scraper.api.specification.impl;
 
 import scraper.annotations.NotNull;
+import scraper.annotations.Nullable;
 import scraper.api.exceptions.ValidationException;
+import scraper.api.flow.FlowMap;
+import scraper.api.flow.impl.FlowIdGenerator;
 import scraper.api.flow.impl.FlowMapImpl;
+import scraper.api.flow.impl.SequentialFlowIdGenerator;
 import scraper.api.node.*;
 import scraper.api.node.container.NodeContainer;
 import scraper.api.node.container.NodeLogLevel;
 import scraper.api.node.type.Node;
 import scraper.api.plugin.NodeHook;
-import scraper.api.template.DefaultVisitor;
-import scraper.api.template.Primitive;
-import scraper.api.template.T;
 import scraper.api.service.ExecutorsService;
 import scraper.api.service.FileService;
+import scraper.api.service.HttpCache;
 import scraper.api.service.HttpService;
 import scraper.api.service.ProxyReservation;
 import scraper.api.specification.ScrapeInstance;
 import scraper.api.specification.ScrapeSpecification;
+import scraper.core.AbstractNode;
+import scraper.core.AsyncLogSink;
+import scraper.core.FlowExecutor;
+import scraper.core.FlowTracker;
 import scraper.core.IdentityEvaluator;
 import scraper.util.NodeUtil;
 
 import java.lang.reflect.Field;
+import java.time.Duration;
 import java.util.*;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -44,16 +51,36 @@ public class ScrapeInstaceImpl extends IdentityEvaluator implements ScrapeInstan
 
     private final Map<Address, NodeContainer<? extends Node>> routes = new HashMap<>();
 
+    /** Exact route representations (lower case) for lookups without address equality semantics */
+    private final Map<String, NodeContainer<? extends Node>> routesByRepresentation = new HashMap<>();
+
 
     private ExecutorsService executors;
     private HttpService httpService;
+    private HttpCache httpCache;
     private ProxyReservation proxyReservation;
     private FileService fileService;
+    private FlowExecutor flowExecutor;
 
     private GraphAddress entry;
 
     private Collection<NodeHook> hooks = new HashSet<>();
 
+    /** If true, flows of this instance are backed by a persistent map which makes copies of flows O(1) */
+    private boolean persistentFlows = false;
+
+    /** Generates the ids of all flows of this instance */
+    private FlowIdGenerator flowIds = new SequentialFlowIdGenerator();
+
+    /** Sink of node log messages, nodes log synchronously if null */
+    private volatile AsyncLogSink logSink;
+
+    /** Flows of this job which are running or queued, shared with imported instances */
+    private FlowTracker flows = new FlowTracker();
+
+    /** Time running flows get to finish when the application is terminated */
+    private Duration drainTimeout = Duration.ZERO;
+
     public ScrapeInstaceImpl(ScrapeSpecification spec) {
         this.spec = spec;
     }
@@ -97,7 +124,7 @@ public class ScrapeInstaceImpl extends IdentityEvaluator implements ScrapeInstan
     @NotNull
     @Override
     public NodeContainer<? extends Node> getNode(@NotNull NodeAddress target) {
-        NodeContainer<? extends Node> node = routes.get(target);
+        NodeContainer<? extends Node> node = getNode((Address) target).orElse(null);
         if(node == null) throw new IllegalStateException("Node address " + target + " should exist but does not.");
         return node;
     }
@@ -105,6 +132,8 @@ public class ScrapeInstaceImpl extends IdentityEvaluator implements ScrapeInstan
     @NotNull
     @Override
     public Optional<NodeContainer<? extends Node>> getNode(@NotNull Address target) {
+        NodeContainer<? extends Node> node = routesByRepresentation.get(target.getRepresentation().toLowerCase());
+        if(node != null) return Optional.of(node);
         return Optional.ofNullable(routes.get(target));
     }
 
@@ -124,22 +153,46 @@ public class ScrapeInstaceImpl extends IdentityEvaluator implements ScrapeInstan
     public void addRoute(@NotNull Address address, @NotNull NodeContainer<? extends Node> nodeAbstractNode) {
         assert !routes.containsKey(address) || routes.get(address) == nodeAbstractNode:
                 "Already added " + address+ "  "+routes.get(address)+" <=> "+nodeAbstractNode;
-        routes.put(address, nodeAbstractNode);
+        putRoute(address, nodeAbstractNode);
 
         if(address instanceof NodeAddress) { // add representations with only index/name
-            routes.put(((NodeAddress) address).getOnlyIndex(), nodeAbstractNode);
+            putRoute(((NodeAddress) address).getOnlyIndex(), nodeAbstractNode);
             if(((NodeAddress) address).getOnlyLabel().isPresent()) {
-                routes.put(((NodeAddress) address).getOnlyLabel().get(), nodeAbstractNode);
+                putRoute(((NodeAddress) address).getOnlyLabel().get(), nodeAbstractNode);
             }
         }
     }
 
+    private void putRoute(@NotNull Address address, @NotNull NodeContainer<? extends Node> node) {
+        routes.put(address, node);
+        routesByRepresentation.put(address.getRepresentation().toLowerCase(), node);
+    }
+
     @NotNull
     @Override
     public Map<String, Object> getEntryArguments() {
         return initialArguments;
     }
 
+    /** Creates the initial flow of this instance with the entry arguments */
+    @NotNull
+    public FlowMap createOrigin() {
+        return (persistentFlows
+                ? FlowMapImpl.persistentOrigin(initialArguments, flowIds)
+                : FlowMapImpl.origin(initialArguments, flowIds));
+    }
+
+    public boolean isPersistentFlows() { return persistentFlows; }
+    public void setPersistentFlows(boolean persistentFlows) { this.persistentFlows = persistentFlows; }
+    @NotNull public FlowIdGenerator getFlowIds() { return flowIds; }
+    public void setFlowIds(@NotNull FlowIdGenerator flowIds) { this.flowIds = flowIds; }
+    @Nullable public AsyncLogSink getLogSink() { return logSink; }
+    public void setLogSink(@Nullable AsyncLogSink logSink) { this.logSink = logSink; }
+    @NotNull public FlowTracker getFlows() { return flows; }
+    public void setFlows(@NotNull FlowTracker flows) { this.flows = flows; }
+    @NotNull public Duration getDrainTimeout() { return drainTimeout; }
+    public void setDrainTimeout(@NotNull Duration drainTimeout) { this.drainTimeout = drainTimeout; }
+
     @NotNull
     @Override
     public Map<Address, NodeContainer<? extends Node>> getRoutes() {
@@ -152,6 +205,8 @@ public class ScrapeInstaceImpl extends IdentityEvaluator implements ScrapeInstan
     public void setExecutors(ExecutorsService executors) { this.executors = executors; }
     @NotNull public HttpService getHttpService() { return httpService; }
     public void setHttpService(HttpService httpService) { this.httpService = httpService; }
+    @NotNull public HttpCache getHttpCache() { return httpCache; }
+    public void setHttpCache(HttpCache httpCache) { this.httpCache = httpCache; }
     @NotNull public ProxyReservation getProxyReservation() { return proxyReservation; }
     public void setProxyReservation(ProxyReservation proxyReservation) { this.proxyReservation = proxyReservation; }
     @NotNull public FileService getFileService() { return fileService; }
@@ -163,6 +218,8 @@ public class ScrapeInstaceImpl extends IdentityEvaluator implements ScrapeInstan
     }
 
     public void setFileService(FileService fileService) { this.fileService = fileService; }
+    public FlowExecutor getFlowExecutor() { return flowExecutor; }
+    public void setFlowExecutor(FlowExecutor flowExecutor) { this.flowExecutor = flowExecutor; }
 
     public void validate() throws ValidationException {
         try {
@@ -191,43 +248,15 @@ public class ScrapeInstaceImpl extends IdentityEvaluator implements ScrapeInstan
         } catch (Exception e){
             throw new ValidationException(e, "Could not validate instance: " + e.getMessage());
         }
+
+        resolveRoutes();
     }
 
     private void testAddressTargets(List<Field> fields, Object node, NodeAddress origin) throws Exception {
         for (Field field : fields) {
             try {
-                field.setAccessible(true);
-
-                // if just an Address.class target raw value of field
-                if (field.getType() == Address.class) {
-                    Address address = (Address) field.get(node);
-                    if (address != null)
-                        NodeUtil.getTarget(origin, address, this);
-                }
-
-
-                // descend into template to get all Address.class targets
-                if (field.getType() == T.class) {
-                    T<?> t = (T<?>) field.get(node);
-                    if (t == null)
-                        throw new ValidationException("Fix implementation, T<> " +
-                                "field was not created for " + node.getClass());
-
-                    ScrapeInstance instance = this;
-                    if (t.getTerm() != null) {
-                        t.getTerm().accept(new DefaultVisitor<Void>() {
-                            @Override
-                            public Void visitPrimitive(@NotNull Primitive<?> primitive) {
-                                Object address = primitive.eval(new FlowMapImpl());
-
-                                if (address instanceof Address) {
-                                    Address add = (Address) address;
-                                    NodeUtil.getTarget(origin, add, instance);
-                                }
-                                return null;
-                            }
-                        });
-                    }
+                for (Address address : NodeUtil.getAddressTargets(field, node)) {
+                    NodeUtil.getTarget(origin, address, this);
                 }
             } catch (Exception e) {
                 log.log(Level.ERROR, "{0}:{1} failed: {2}", origin, field.getName(), e.getMessage());
@@ -236,6 +265,14 @@ public class ScrapeInstaceImpl extends IdentityEvaluator implements ScrapeInstan
         }
     }
 
+    /** Resolves all routes of the nodes owned by this instance to direct node references */
+    private void resolveRoutes() throws ValidationException {
+        for (NodeContainer<? extends Node> node : getAllNodes()) {
+            if (node.getJobInstance() != this) continue; // imported instances resolve their own nodes
+            if (node instanceof AbstractNode) ((AbstractNode<?>) node).resolveRoutes();
+        }
+    }
+
     public List<NodeContainer<? extends Node>> getAllNodes() {
         return routes.entrySet()
                 .stream()
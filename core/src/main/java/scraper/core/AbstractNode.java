@@ -15,12 +15,16 @@ import scraper.api.node.GraphAddress;
 import scraper.api.node.NodeAddress;
 import scraper.api.node.container.NodeContainer;
 import scraper.api.node.container.NodeLogLevel;
+import scraper.api.node.container.NodeMetrics;
 import scraper.api.node.impl.GraphAddressImpl;
 import scraper.api.node.impl.NodeAddressImpl;
 import scraper.api.node.type.Node;
 import scraper.api.plugin.NodeHook;
+import scraper.api.service.impl.AdaptiveExecutorService;
+import scraper.api.specification.impl.ScrapeInstaceImpl;
 import scraper.api.template.T;
 import scraper.api.specification.ScrapeInstance;
+import scraper.core.metrics.NodeMetricsImpl;
 import scraper.util.NodeUtil;
 
 import java.io.File;
@@ -28,12 +32,13 @@ import java.io.IOException;
 import java.lang.reflect.Field;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import static scraper.api.node.container.NodeLogLevel.*;
 import static scraper.util.NodeUtil.initFields;
@@ -56,6 +61,15 @@ public abstract class AbstractNode<NODE extends Node> extends IdentityEvaluator
     @FlowKey(defaultValue = "\"INFO\"")
     protected NodeLogLevel logLevel = INFO;
 
+    /** Logged node levels by ordinal, resolved during init */
+    private boolean[] enabledLevels;
+
+    /** Logger levels of node levels by ordinal, trace is logged as info */
+    private static final System.Logger.Level[] systemLevels = {
+            System.Logger.Level.INFO, System.Logger.Level.DEBUG, System.Logger.Level.INFO,
+            System.Logger.Level.WARNING, System.Logger.Level.ERROR
+    };
+
     /** Log statement to be printed */
     @FlowKey
     protected T<?> log = new T<>(){};
@@ -90,8 +104,8 @@ public abstract class AbstractNode<NODE extends Node> extends IdentityEvaluator
     /** Reference to its parent job */
     protected ScrapeInstance jobPojo;
 
-    /** All ensureFile fields of this node */
-    private final ConcurrentMap<Field, EnsureFile> ensureFileFields = new ConcurrentHashMap<>();
+    /** Files of all ensureFile fields of this node, set during init */
+    private EnsureFilePlan ensureFiles;
 
     /** Current node configuration */
     protected Map<String, ?> nodeConfiguration;
@@ -99,6 +113,40 @@ public abstract class AbstractNode<NODE extends Node> extends IdentityEvaluator
     /** Set during init of node */
     private GraphAddress graphKey;
 
+    /** Forward target resolved once after the job instance is validated, null if not resolved yet */
+    private Optional<NodeContainer<? extends Node>> resolvedGoTo;
+
+    /** Engine which drives flows forwarded, evaluated or forked by this node */
+    private FlowExecutor flowExecutor = defaultExecutor;
+    private static final FlowExecutor defaultExecutor = new FlowExecutor();
+
+    /** Upper bound of flows dispatched as a single batch */
+    static final int MAX_BATCH = 64;
+    /** Batches per worker thread if flows are dispatched in batches */
+    private static final int BATCHES_PER_THREAD = 4;
+
+    /** Flows of jobs which do not track their flows */
+    private static final FlowTracker untracked = new FlowTracker();
+
+    /** Set during init, true if the node implementation does not override accept */
+    private boolean defaultAccept;
+
+    /** Hooks bound during init, all hooks and hooks per phase */
+    private List<NodeHook> hooks;
+    private NodeHook[] beforeHooks;
+    private NodeHook[] afterHooks;
+    private List<NodeHook> beforeHookList;
+    private List<NodeHook> afterHookList;
+
+    /** Executor of forked flows, bound on first fork */
+    private volatile ExecutorService executor;
+
+    /** Runtime metrics of this node, not collected if null */
+    private volatile NodeMetricsImpl metrics;
+
+    /** Address targets of this node resolved to node references, keyed by address representation */
+    private final ConcurrentMap<String, NodeContainer<? extends Node>> resolvedTargets = new ConcurrentHashMap<>();
+
 
     public AbstractNode(@NotNull String instance, @NotNull String graph, @Nullable String node, int index) {
         this.absoluteAddress = new NodeAddressImpl(instance, graph, node, index);
@@ -115,6 +163,8 @@ public abstract class AbstractNode<NODE extends Node> extends IdentityEvaluator
     public void init(@NotNull final ScrapeInstance job) throws ValidationException {
 //        Runtime.getRuntime().addShutdownHook(new Thread(this::nodeShutdown));
         this.jobPojo = job;
+        if(job instanceof ScrapeInstaceImpl && ((ScrapeInstaceImpl) job).getFlowExecutor() != null)
+            flowExecutor = ((ScrapeInstaceImpl) job).getFlowExecutor();
 
         initLogger();
         log(TRACE,"Start init {0}", this);
@@ -127,18 +177,21 @@ public abstract class AbstractNode<NODE extends Node> extends IdentityEvaluator
             initFields(getC(), getNodeConfiguration(),
                     job.getEntryArguments(), job.getSpecification().getGlobalNodeConfigurations()
                     );
-
-            // get ensure fields
-            List<Field> test = getAllFields(new LinkedList<>(), getC().getClass());
-            test.forEach(f -> {
-                EnsureFile ensureFile = f.getAnnotation(EnsureFile.class);
-                if(ensureFile != null) ensureFileFields.put(f, ensureFile);
-            });
+            initLogLevels();
 
             log(TRACE,"Finished init {0}", this);
 
+            // flows can be driven by the flow executor if accept is not overridden
+            defaultAccept = getC().getClass().getMethod("accept", NodeContainer.class, FlowMap.class)
+                    .getDeclaringClass() == Node.class;
+
             // init node
             getC().init(this, job);
+
+            // ensure static files once, templated files are ensured on first use
+            ensureFiles = EnsureFilePlan.of(this);
+
+            bindHooks();
         } catch (Exception e) {
             log(ERROR, "Could not initialize field: {0}", e.getMessage());
             throw new ValidationException(e, "Could not initialize fields for " + getAddress() +": " + e.getMessage());
@@ -147,6 +200,37 @@ public abstract class AbstractNode<NODE extends Node> extends IdentityEvaluator
 
 
 
+    /**
+     * Resolves the forward target and all static address targets of this node and its implementation
+     * to direct node references. Called once the routes of the parent job instance are complete.
+     *
+     * @throws ValidationException If a target cannot be resolved
+     */
+    public void resolveRoutes() throws ValidationException {
+        try {
+            for (Field field : getAllFields(new LinkedList<>(), getClass())) {
+                for (Address target : NodeUtil.getAddressTargets(field, this)) resolve(target);
+            }
+            for (Field field : getAllFields(new LinkedList<>(), getC().getClass())) {
+                for (Address target : NodeUtil.getAddressTargets(field, getC())) resolve(target);
+            }
+            resolvedGoTo = resolveGoTo();
+        } catch (IllegalAccessException | IllegalStateException e) {
+            throw new ValidationException(e, "Could not resolve routes of " + getAddress() + ": " + e.getMessage());
+        }
+    }
+
+    /** Resolves a target relative to this node, resolution results are cached */
+    @NotNull
+    protected NodeContainer<? extends Node> resolve(@NotNull Address target) {
+        NodeContainer<? extends Node> node = resolvedTargets.get(target.getRepresentation());
+        if (node != null) return node;
+
+        node = NodeUtil.getTarget(getAddress(), target, getJobInstance());
+        resolvedTargets.putIfAbsent(target.getRepresentation(), node);
+        return node;
+    }
+
     public void setNodeConfiguration(@NotNull Map<String, ?> configuration, @NotNull String instance, @NotNull String graphKey) {
         nodeConfiguration = configuration;
         this.graphKey = new GraphAddressImpl(instance, graphKey);
@@ -157,6 +241,15 @@ public abstract class AbstractNode<NODE extends Node> extends IdentityEvaluator
         l = System.getLogger(loggerName);
     }
 
+    /** Resolves once which levels are logged by this node, given its log level and its logger */
+    private void initLogLevels() {
+        boolean[] enabled = new boolean[NodeLogLevel.values().length];
+        for (NodeLogLevel level : NodeLogLevel.values()) {
+            enabled[level.ordinal()] = level.worseOrEqual(logLevel) && l.isLoggable(systemLevels[level.ordinal()]);
+        }
+        enabledLevels = enabled;
+    }
+
     /**
      * <ul>
      *     <li>Evaluates templates</li>
@@ -179,40 +272,20 @@ public abstract class AbstractNode<NODE extends Node> extends IdentityEvaluator
 
 
         // ensure files exist
+        if(ensureFiles == null || ensureFiles.isEmpty()) return;
         try {
-            for (Field ensureFileField : ensureFileFields.keySet()) {
-                ensureFileField.setAccessible(true);
-
-                String path = null;
-                if(T.class.isAssignableFrom(ensureFileField.getType())) {
-                    T<?> templ = (T<?>) ensureFileField.get(getC());
-                    Optional<?> maybePath = map.evalMaybe(templ);
-                    if(maybePath.isPresent()) path = (String) maybePath.get();
-                } else {
-                    path = (String) ensureFileField.get(getC());
-                }
-
-                if (path == null) continue;
-
-                log(TRACE,"Ensure file of field {0} at {1}", ensureFileField.getName(), path);
-                if(ensureFileFields.get(ensureFileField).ensureDir())
-                    getJobPojo().getFileService().ensureDirectory(new File(path));
-
-                if(path.endsWith(File.separator)) {
-                    getJobPojo().getFileService().ensureDirectory(new File(path+"."));
-                } else {
-                    getJobPojo().getFileService().ensureFile(path);
-                }
-            }
-
-        } catch (IllegalAccessException | ClassCastException e) {
-            throw new RuntimeException("Implemented reflection badly: ", e);
+            ensureFiles.ensure(map);
         } catch (IOException e) {
             log(ERROR,"Failed ensure file: {0}", e.getMessage());
             throw new NodeException("Failed ensuring directory or file: " + e.getMessage());
         }
     }
 
+    /** Forgets all files ensured by this node, e.g. if files were deleted externally. Files are ensured again on next use. */
+    public void invalidateEnsuredFiles() {
+        if(ensureFiles != null) ensureFiles.invalidate();
+    }
+
     /**
      * @param o The current map
      */
@@ -221,15 +294,127 @@ public abstract class AbstractNode<NODE extends Node> extends IdentityEvaluator
     }
 
 
-    /** Dispatches an action in an own thread, ignoring the result and possible exceptions. */
+    /**
+     * Dispatches an action in an own thread.
+     * Joining the returned future runs the action in the joining thread if it has not been started yet.
+     */
     @NotNull
     protected CompletableFuture<FlowMap> dispatch(@NotNull Supplier<FlowMap> o) {
-        return CompletableFuture.supplyAsync(o, getService());
+        return dispatchAsync(() -> CompletableFuture.completedFuture(o.get()));
+    }
+
+    /**
+     * Dispatches an asynchronous action in an own thread, like {@link #dispatch(Supplier)}.
+     * The flow is tracked until the future returned by the action completes.
+     */
+    @NotNull
+    protected CompletableFuture<FlowMap> dispatchAsync(@NotNull Supplier<CompletableFuture<FlowMap>> o) {
+        // counted before dispatch, the job cannot become quiescent while the flow is queued
+        FlowTracker flows = flows();
+        flows.started();
+        Supplier<CompletableFuture<FlowMap>> tracked = () -> tracked(flows, o);
+
+        NodeMetricsImpl m = metrics;
+        try {
+            if(m == null) return finishedOnCancel(flows, ForkedFlow.forkAsync(tracked, getService()));
+
+            long queued = System.nanoTime();
+            return finishedOnCancel(flows, ForkedFlow.forkAsync(() -> {
+                m.forked(System.nanoTime() - queued);
+                return tracked.get();
+            }, getService()));
+        } catch (RejectedExecutionException e) {
+            flows.finished();
+            throw e;
+        }
+    }
+
+    /**
+     * Dispatches an action for every flow, like {@link #dispatch(Supplier)}.
+     * If there are many flows per worker thread, flows are dispatched in batches which are run by a single thread.
+     */
+    @NotNull
+    protected List<CompletableFuture<FlowMap>> dispatchAll(@NotNull Iterable<FlowMap> flows, @NotNull Function<FlowMap, FlowMap> action) {
+        return dispatchAllAsync(flows, o -> CompletableFuture.completedFuture(action.apply(o)));
     }
 
+    /** Dispatches an asynchronous action for every flow, like {@link #dispatchAll(Iterable, Function)} */
+    @NotNull
+    protected List<CompletableFuture<FlowMap>> dispatchAllAsync(@NotNull Iterable<FlowMap> flows,
+                                                                @NotNull Function<FlowMap, CompletableFuture<FlowMap>> action) {
+        FlowTracker tracker = flows();
+        NodeMetricsImpl m = metrics;
+        long queued = System.nanoTime();
+
+        List<Supplier<CompletableFuture<FlowMap>>> actions = new ArrayList<>();
+        for (FlowMap o : flows) {
+            actions.add(() -> {
+                if(m != null) m.forked(System.nanoTime() - queued);
+                return tracked(tracker, () -> action.apply(o));
+            });
+        }
+        if(actions.isEmpty()) return List.of();
+
+        // counted before dispatch, the job cannot become quiescent while the flows are queued
+        tracker.started(actions.size());
+        List<ForkedFlow> forked = ForkedFlow.forkAllAsync(actions, getService(), batchSize(actions.size()));
+        forked.forEach(flow -> finishedOnCancel(tracker, flow));
+        return Collections.unmodifiableList(forked);
+    }
 
-    public void log(@NotNull NodeLogLevel debug, @NotNull String msg, @NotNull Object... args) {
-        log(l, logLevel, debug, msg, args);
+    /** A forked flow cancelled before it was started never runs its action, it is finished when cancelled */
+    @NotNull
+    private static ForkedFlow finishedOnCancel(@NotNull FlowTracker flows, @NotNull ForkedFlow forked) {
+        forked.whenComplete((result, e) -> { if(forked.isCancelled()) flows.finished(); });
+        return forked;
+    }
+
+    /** Runs the action, the flow is finished when the returned future completes */
+    @NotNull
+    private static CompletableFuture<FlowMap> tracked(@NotNull FlowTracker flows, @NotNull Supplier<CompletableFuture<FlowMap>> action) {
+        CompletableFuture<FlowMap> flow;
+        try {
+            flow = action.get();
+        } catch (RuntimeException | Error e) {
+            flows.finished();
+            throw e;
+        }
+
+        // finished before the forked flow completes, like a finished synchronous flow
+        return flow.whenComplete((result, e) -> flows.finished());
+    }
+
+    /** Batches of at most {@link #MAX_BATCH} flows, a few batches per worker thread to balance uneven flows */
+    static int batchSize(int flows, int threads) {
+        int perThread = flows / (Math.max(1, threads) * BATCHES_PER_THREAD);
+        return Math.max(1, Math.min(MAX_BATCH, perThread));
+    }
+
+    private int batchSize(int flows) {
+        return batchSize(flows, threads == null ? Runtime.getRuntime().availableProcessors() : threads);
+    }
+
+    /** Flows of the job of this node */
+    @NotNull
+    private FlowTracker flows() {
+        return (jobPojo instanceof ScrapeInstaceImpl ? ((ScrapeInstaceImpl) jobPojo).getFlows() : untracked);
+    }
+
+
+    @Override
+    public boolean isEnabled(@NotNull NodeLogLevel level) {
+        boolean[] enabled = enabledLevels;
+        if(enabled == null) return level.worseOrEqual(logLevel);
+        return enabled[level.ordinal()];
+    }
+
+    @Override
+    public void log(@NotNull NodeLogLevel level, @NotNull String msg, @NotNull Object... args) {
+        if(!isEnabled(level)) return;
+
+        AsyncLogSink sink = (jobPojo instanceof ScrapeInstaceImpl ? ((ScrapeInstaceImpl) jobPojo).getLogSink() : null);
+        if(sink != null) sink.log(l, systemLevels[level.ordinal()], msg, args);
+        else l.log(systemLevels[level.ordinal()], msg, args);
     }
 
     // ----------------------------
@@ -246,36 +431,16 @@ public abstract class AbstractNode<NODE extends Node> extends IdentityEvaluator
 
     public static void log(@NotNull System.Logger log, @NotNull NodeLogLevel threshold, @NotNull NodeLogLevel level,
                            @NotNull String msg, @NotNull Object... args) {
-        switch (level){
-            case TRACE:
-                // only l if trace
-                if(threshold != TRACE) return;
-                log.log(System.Logger.Level.INFO, msg, args);
-                return;
-            case DEBUG:
-                // only l if level is debug or higher
-                if(threshold == TRACE || threshold == NodeLogLevel.DEBUG) log.log(System.Logger.Level.DEBUG, msg, args);
-                return;
-            case INFO:
-                if(threshold == WARN || threshold == ERROR) return;
-                log.log(System.Logger.Level.INFO, msg, args);
-                return;
-            case WARN:
-                if(threshold == ERROR) return;
-                log.log(System.Logger.Level.WARNING,  msg, args);
-                return;
-            case ERROR:
-                log.log(System.Logger.Level.ERROR,   msg, args);
-        }
+        if(level.worseOrEqual(threshold)) log.log(systemLevels[level.ordinal()], msg, args);
     }
 
 
     @NotNull @Override
     public FlowMap forward(@NotNull final FlowMap o) throws NodeException {
-        if (getGoTo().isPresent()) {
-            NodeContainer<? extends Node> targetNode = getGoTo().get();
+        Optional<NodeContainer<? extends Node>> targetNode = getGoTo();
+        if (targetNode.isPresent()) {
             o.nextSequence();
-            return targetNode.getC().accept(targetNode, o);
+            return flowExecutor.forward(this, targetNode.get(), o);
         } else {
             return o;
         }
@@ -283,59 +448,116 @@ public abstract class AbstractNode<NODE extends Node> extends IdentityEvaluator
 
     @NotNull @Override
     public FlowMap eval(@NotNull final FlowMap o, @NotNull final Address target) throws NodeException {
-        NodeContainer<? extends Node> opt = NodeUtil.getTarget(getAddress(), target, getJobInstance());
+        NodeContainer<? extends Node> opt = resolve(target);
         o.nextSequence();
-        return opt.getC().accept(opt, o);
+        return flowExecutor.run(opt, o);
     }
 
     @Override
     public void forkDispatch(@NotNull final FlowMap o, @NotNull final Address target) {
-        dispatch(() -> {
-            try {
-                NodeContainer<? extends Node> opt = NodeUtil.getTarget(getAddress(), target, getJobInstance());
-                return opt.getC().accept(opt, o.newFlow());
-            } catch (Exception e) {
-                if(onForkException != null) {
-                    try {
-                        log(WARN, "Fork dispatch to goTo {0} terminated exceptionally, executing onException {1}: {2}.", target, onForkException, e.getMessage());
-                        return eval(o, onForkException);
-                    } catch (NodeException ex) {
-                        log(ERROR, "OnException fork target {0} terminated exceptionally: {1}", target, e.getMessage());
-                        throw new RuntimeException(e);
-                    }
-                } else {
-                    log(ERROR, "Fork dispatch to goTo {0} terminated exceptionally: {1}", target, e.getMessage());
+        dispatchAsync(() -> dispatched(o, target, null));
+    }
+
+    @NotNull @Override
+    public CompletableFuture<FlowMap> forkDepend(@NotNull final FlowMap o, @NotNull final Address target) {
+        return dispatchAsync(() -> depended(o, target, null));
+    }
+
+    @Override
+    public void forkDispatchAll(@NotNull final Iterable<FlowMap> flows, @NotNull final Address target) {
+        NodeContainer<? extends Node> resolved = resolveOrNull(target);
+        dispatchAllAsync(flows, o -> dispatched(o, target, resolved));
+    }
+
+    @NotNull @Override
+    public List<CompletableFuture<FlowMap>> forkDependAll(@NotNull final Iterable<FlowMap> flows, @NotNull final Address target) {
+        NodeContainer<? extends Node> resolved = resolveOrNull(target);
+        return dispatchAllAsync(flows, o -> depended(o, target, resolved));
+    }
+
+    /** Resolved target or null, a bad target is then reported per forked flow */
+    @Nullable
+    private NodeContainer<? extends Node> resolveOrNull(@NotNull Address target) {
+        try {
+            return resolve(target);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /** Runs a forked flow asynchronously, a flow which terminated exceptionally continues at onForkException if set */
+    @NotNull
+    CompletableFuture<FlowMap> dispatched(@NotNull FlowMap o, @NotNull Address target, @Nullable NodeContainer<? extends Node> resolved) {
+        return forked(o, target, resolved).handle((result, failure) -> {
+            if (failure == null) return result;
+
+            Exception e = exceptionOf(failure);
+            if(onForkException != null) {
+                try {
+                    log(WARN, "Fork dispatch to goTo {0} terminated exceptionally, executing onException {1}: {2}.", target, onForkException, e.getMessage());
+                    return eval(o, onForkException);
+                } catch (NodeException ex) {
+                    log(ERROR, "OnException fork target {0} terminated exceptionally: {1}", target, e.getMessage());
                     throw new RuntimeException(e);
                 }
+            } else {
+                log(ERROR, "Fork dispatch to goTo {0} terminated exceptionally: {1}", target, e.getMessage());
+                throw new RuntimeException(e);
             }
         });
     }
 
-    @NotNull @Override
-    public CompletableFuture<FlowMap> forkDepend(@NotNull final FlowMap o, @NotNull final Address target) {
-        return dispatch(() -> {
-            try {
-                NodeContainer<? extends Node> opt = NodeUtil.getTarget(getAddress(), target, getJobInstance());
-                return opt.getC().accept(opt, o.newFlow());
-            } catch (Exception e) {
-                if(onForkException != null) {
-                    try {
-                        return eval(o, onForkException);
-                    } catch (NodeException ex) {
-                        log(ERROR, "OnException fork target {0} terminated exceptionally: {1}", target, e.getMessage());
-                        throw new RuntimeException(e);
-                    }
-                } else {
-                    e.printStackTrace();
-                    log(ERROR, "Fork depend to goTo {0} terminated exceptionally: {1}", target, e.getMessage());
+    @NotNull
+    private CompletableFuture<FlowMap> depended(@NotNull FlowMap o, @NotNull Address target, @Nullable NodeContainer<? extends Node> resolved) {
+        return forked(o, target, resolved).handle((result, failure) -> {
+            if (failure == null) return result;
+
+            Exception e = exceptionOf(failure);
+            if(onForkException != null) {
+                try {
+                    return eval(o, onForkException);
+                } catch (NodeException ex) {
+                    log(ERROR, "OnException fork target {0} terminated exceptionally: {1}", target, e.getMessage());
                     throw new RuntimeException(e);
                 }
+            } else {
+                e.printStackTrace();
+                log(ERROR, "Fork depend to goTo {0} terminated exceptionally: {1}", target, e.getMessage());
+                throw new RuntimeException(e);
             }
         });
     }
 
+    @NotNull
+    private CompletableFuture<FlowMap> forked(@NotNull FlowMap o, @NotNull Address target, @Nullable NodeContainer<? extends Node> resolved) {
+        try {
+            NodeContainer<? extends Node> opt = (resolved != null ? resolved : resolve(target));
+            return flowExecutor.runAsync(opt, o.newFlow());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /** Exception of a failed forked flow, errors are not handled by onForkException */
+    @NotNull
+    private static Exception exceptionOf(@NotNull Throwable failure) {
+        Throwable e = (failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure);
+        if (e instanceof Error) throw (Error) e;
+        if (e instanceof Exception) return (Exception) e;
+        throw new CompletionException(e);
+    }
+
     @Override @NotNull
     public Optional<NodeContainer<? extends Node>> getGoTo() {
+        Optional<NodeContainer<? extends Node>> next = resolvedGoTo;
+        if(next != null) return next;
+
+        // not resolved yet, e.g. job instance is not validated
+        return resolveGoTo();
+    }
+
+    @NotNull
+    private Optional<NodeContainer<? extends Node>> resolveGoTo() {
         if(goTo == null) {
             if(isForward()) {
                 // get forward, only forward can create optional.empty?
@@ -345,7 +567,7 @@ public abstract class AbstractNode<NODE extends Node> extends IdentityEvaluator
                 return Optional.empty();
             }
         } else {
-            return Optional.of(NodeUtil.getTarget( getAddress(), goTo, getJobInstance() ));
+            return Optional.of(resolve(goTo));
         }
     }
 
@@ -356,11 +578,25 @@ public abstract class AbstractNode<NODE extends Node> extends IdentityEvaluator
 
     @NotNull @Override
     public ExecutorService getService() {
+        ExecutorService e = executor;
+        if(e != null) return e;
+
+        // bound on first use, executor modes can be configured after init
         if(service != null) {
-            return getJobPojo().getExecutors().getService(getJobPojo().getName(), service, threads);
+            e = getJobPojo().getExecutors().getService(getJobPojo().getName(), service, threads);
         } else {
-            return getJobPojo().getExecutors().getService(getJobPojo().getName(), getAddress().toString(), threads);
+            e = getJobPojo().getExecutors().getService(getJobPojo().getName(), getAddress().toString(), threads);
         }
+        executor = e;
+        bindConcurrencyLimit();
+        return e;
+    }
+
+    /** Reports the adaptive limit of the executor of this node in its metrics */
+    private void bindConcurrencyLimit() {
+        NodeMetricsImpl m = metrics;
+        ExecutorService e = executor;
+        if(m != null && e instanceof AdaptiveExecutorService) m.setConcurrencyLimit(((AdaptiveExecutorService) e)::getLimit);
     }
 
     @NotNull
@@ -382,15 +618,84 @@ public abstract class AbstractNode<NODE extends Node> extends IdentityEvaluator
 
     @Override @NotNull
     public Collection<NodeHook> hooks() {
-        return Stream.concat(
-                Stream.of(basicHook),
-                getJobInstance().getHooks().stream()
-        ).collect(Collectors.toList());
+        if(hooks == null) return collectHooks();
+        return hooks;
+    }
+
+    @Override @NotNull
+    public Collection<NodeHook> hooks(@NotNull NodeHook.Phase phase) {
+        if(hooks == null) bindHooks();
+        return (phase == NodeHook.Phase.BEFORE_PROCESS ? beforeHookList : afterHookList);
+    }
+
+    /** Hooks of the given phase, bound during init */
+    @NotNull
+    NodeHook[] hookChain(@NotNull NodeHook.Phase phase) {
+        if(hooks == null) bindHooks();
+        return (phase == NodeHook.Phase.BEFORE_PROCESS ? beforeHooks : afterHooks);
+    }
+
+    /**
+     * Binds the basic hook and the hooks of the job instance to this node.
+     * The basic hook is only bound if there is something to do, i.e. a log template or files to ensure.
+     * Hooks added to the job instance afterwards are not called by this node.
+     */
+    private void bindHooks() {
+        List<NodeHook> all = collectHooks();
+        beforeHooks = all.stream().filter(h -> h.phases().contains(NodeHook.Phase.BEFORE_PROCESS)).toArray(NodeHook[]::new);
+        afterHooks = all.stream().filter(h -> h.phases().contains(NodeHook.Phase.AFTER_PROCESS)).toArray(NodeHook[]::new);
+        beforeHookList = List.of(beforeHooks);
+        afterHookList = List.of(afterHooks);
+        hooks = List.copyOf(all);
+    }
+
+    @NotNull
+    private List<NodeHook> collectHooks() {
+        List<NodeHook> all = new ArrayList<>();
+        if(needsBasicHook()) all.add(basicHook);
+        all.addAll(getJobInstance().getHooks());
+        return all;
+    }
+
+    private boolean needsBasicHook() {
+        return log.getTerm() != null
+                || ensureFiles == null || !ensureFiles.isEmpty()
+                || overrides("start") || overrides("finish");
+    }
+
+    /** True if a subclass overrides the start or finish phase */
+    private boolean overrides(@NotNull String phase) {
+        for (Class<?> c = getClass(); c != AbstractNode.class; c = c.getSuperclass()) {
+            try {
+                c.getDeclaredMethod(phase, NodeContainer.class, FlowMap.class);
+                return true;
+            } catch (NoSuchMethodException ignored) {}
+        }
+        return false;
     }
 
     @Override
     public boolean isForward() { return forward; }
 
+    /** True if flows through this node can be driven by the {@link FlowExecutor} */
+    public boolean hasDefaultAccept() { return defaultAccept; }
+
+    @NotNull
+    public FlowExecutor getFlowExecutor() { return flowExecutor; }
+
+    @NotNull @Override
+    public Optional<NodeMetrics> getMetrics() { return Optional.ofNullable(metrics); }
+
+    /** Metrics of this node, null if metrics are not collected */
+    @Nullable
+    NodeMetricsImpl metrics() { return metrics; }
+
+    /** Starts collecting metrics of this node, stops if null */
+    public void setMetrics(@Nullable NodeMetricsImpl metrics) {
+        this.metrics = metrics;
+        bindConcurrencyLimit();
+    }
+
     @NotNull
     public String getType() { return this.type; }
 
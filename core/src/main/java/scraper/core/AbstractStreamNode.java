@@ -13,14 +13,17 @@ import scraper.annotations.node.Flow;
 import scraper.api.node.container.NodeLogLevel;
 import scraper.api.node.container.StreamNodeContainer;
 import scraper.api.node.type.StreamNode;
+import scraper.api.service.impl.ExecutorsServiceImpl;
 import scraper.api.specification.ScrapeInstance;
 import scraper.api.template.L;
+import scraper.api.template.T;
+import scraper.util.TemplateUtil;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
-import static scraper.util.TemplateUtil.templateOf;
 
 
 /**
@@ -41,20 +44,44 @@ public abstract class AbstractStreamNode extends AbstractNode<StreamNode> implem
     @FlowKey(defaultValue = "\"true\"")
     private Boolean collect;
 
+    /**
+     * If set and elements are streamed to a target, at most this many streamed flows are running or queued.
+     * The node then waits for a streamed flow to terminate before it streams the next element.
+     */
+    @FlowKey
+    private Integer streamWindow;
+
+    /** Output locations of the node implementation which are collected, resolved at init */
+    private L<?>[] collectKeys = new L<?>[0];
+    /** Lookups of the collected locations in streamed flows */
+    private T<?>[] collectLookups = new T<?>[0];
+
     @Override
     public void init(@NotNull ScrapeInstance job) throws ValidationException {
         super.init(job);
+
+        List<L<?>> keys = collectOutput();
+        collectKeys = keys.toArray(new L<?>[0]);
+        collectLookups = keys.stream().map(TemplateUtil::templateOf).toArray(T<?>[]::new);
     }
 
-    private final @NotNull Map<UUID, FlowMap> openStreams = new ConcurrentHashMap<>();
-    private final @NotNull Map<UUID, Map<L, List<Object>>> collectors = new ConcurrentHashMap<>();
-    private final @NotNull Map<UUID, List<L<?>>> collectKeys = new ConcurrentHashMap<>();
+    private final @NotNull Map<UUID, Collected> collections = new ConcurrentHashMap<>();
+    private final @NotNull Map<UUID, StreamPublisher<FlowMap>> publishers = new ConcurrentHashMap<>();
 
     @Override
     public void streamFlowMap(@NotNull final FlowMap origin, @NotNull final FlowMap newMap) {
         stream(origin, newMap);
     }
 
+    @Override
+    public void streamFlowMaps(@NotNull final FlowMap origin, @NotNull final Iterable<FlowMap> newMaps) {
+        if(streamTarget != null && streamWindow == null) {
+            forkDispatchAll(newMaps, streamTarget);
+        } else {
+            newMaps.forEach(newMap -> stream(origin, newMap));
+        }
+    }
+
     @Override
     public <E> void streamElement(@NotNull FlowMap origin, @NotNull L<E> location, @NotNull E result) {
         FlowMap newMap = origin.copy();
@@ -65,20 +92,32 @@ public abstract class AbstractStreamNode extends AbstractNode<StreamNode> implem
 
     private void stream(@NotNull FlowMap origin, @NotNull FlowMap newMap) {
         if(streamTarget != null) {
-            // dispatch directly to stream target without collecting
-            forkDispatch(newMap, streamTarget);
+            StreamPublisher<FlowMap> publisher = publishers.get(origin.getId());
+            if(publisher == null) {
+                // dispatch directly to stream target without collecting
+                forkDispatch(newMap, streamTarget);
+                return;
+            }
+
+            try {
+                publisher.publish(newMap);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting to stream an element", e);
+            }
         } else {
-            collectKeys.get(origin.getId()).forEach(key -> {
-                Map<L, List<Object>> collectorForId = collectors.get(origin.getId());
-                // collect to list
-                Optional<?> element = newMap.evalMaybe(templateOf(key));
+            Collected collection = collections.get(origin.getId());
+            Object[] elements = new Object[collectLookups.length];
+            for (int i = 0; i < collectLookups.length; i++) {
+                Optional<?> element = newMap.evalMaybe(collectLookups[i]);
                 if(element.isEmpty()) {
-                    log(NodeLogLevel.ERROR, "Missing expected element at key {0}, fix node implementation. Skipping", key);
-                    throw new TemplateException("Missing expected element at key " + key);
-                } else {
-                    collectorForId.get(key).add(element.get());
+                    log(NodeLogLevel.ERROR, "Missing expected element at key {0}, fix node implementation. Skipping", collectKeys[i]);
+                    throw new TemplateException("Missing expected element at key " + collectKeys[i]);
                 }
-            });
+                elements[i] = element.get();
+            }
+            // collect to lists
+            collection.add(elements);
         }
     }
 
@@ -87,36 +126,46 @@ public abstract class AbstractStreamNode extends AbstractNode<StreamNode> implem
     public FlowMap processStream(@NotNull final FlowMap o) throws NodeException {
         if(streamTarget == null) {
             log(NodeLogLevel.TRACE, "Collecting stream for map {0}", o.getId());
-            // open stream for ID
-            openStreams.put(o.getId(), o.copy());
-            // open collectors for ID
-            collectors.put(o.getId(), new HashMap<>());
-
-            // collect these keys as default
-            List<L<?>> toCollect = collectOutput();
-            collectKeys.put(o.getId(), toCollect);
-            // create empty list as default
-            collectKeys.get(o.getId()).forEach(key -> collectors.get(o.getId()).put(key, new LinkedList<>()));
+            // open stream for ID, empty lists as default
+            collections.put(o.getId(), new Collected(o.copy(), collectKeys.length));
         }
 
-        getC().process(this, o);
+        StreamPublisher<FlowMap> publisher = null;
+        if(streamTarget != null && streamWindow != null) {
+            StreamDispatcher dispatcher = new StreamDispatcher(Math.max(1, streamWindow));
+            publisher = new StreamPublisher<>(dispatcher::runQueuedInline);
+            publisher.subscribe(dispatcher);
+            publishers.put(o.getId(), publisher);
+        }
+
+        Collected collection;
+        try {
+            getC().process(this, o);
+        } catch (NodeException | RuntimeException e) {
+            if(publisher != null) publisher.fail(e);
+            throw e;
+        } finally {
+            if(publisher != null) publishers.remove(o.getId());
+            collection = collections.remove(o.getId());
+        }
+        if(publisher != null) publisher.complete();
 
         if(streamTarget != null) {
             return o;
         } else {
             log(NodeLogLevel.TRACE, "Finish collection for map {0}", o.getId());
-            FlowMap copy = openStreams.get(o.getId()).copy();
-            Map<L, List<Object>> toCollect = collectors.get(o.getId());
-            toCollect.forEach(copy::output);
-
-            openStreams.remove(o.getId());
-            collectors.remove(o.getId());
-            collectKeys.remove(o.getId());
-
+            FlowMap copy = collection.origin.copy();
+            for (int i = 0; i < collectKeys.length; i++) output(copy, collectKeys[i], collection.lists[i]);
             return copy;
         }
     }
 
+    /** Outputs the collected elements of a location of the node implementation */
+    @SuppressWarnings("unchecked") // a collected location holds the list of its elements instead of a single element
+    private static void output(@NotNull FlowMap o, @NotNull L<?> location, @NotNull List<Object> elements) {
+        o.output((L<Object>) location, elements);
+    }
+
     private List<L<?>> collectOutput() {
         return Arrays.stream(getC().getClass().getDeclaredFields())
                 .filter(f -> f.getType() == L.class)
@@ -129,4 +178,70 @@ public abstract class AbstractStreamNode extends AbstractNode<StreamNode> implem
                     }
                 }).collect(Collectors.toList());
     }
+
+    /** Collected elements of a stream, one list per collected location */
+    private static final class Collected {
+        final FlowMap origin;
+        final List<Object>[] lists;
+
+        @SuppressWarnings("unchecked") // generic array
+        Collected(@NotNull FlowMap origin, int keys) {
+            this.origin = origin;
+            lists = new List[keys];
+            for (int i = 0; i < keys; i++) lists[i] = new ArrayList<>();
+        }
+
+        /** Elements can be streamed by several producer threads */
+        synchronized void add(@NotNull Object[] elements) {
+            for (int i = 0; i < elements.length; i++) lists[i].add(elements[i]);
+        }
+    }
+
+    /**
+     * Dispatches streamed flows to the stream target and requests the next element whenever a dispatched flow terminated.
+     * A producer thread which is a flow worker runs queued flows itself while it waits.
+     */
+    private final class StreamDispatcher implements java.util.concurrent.Flow.Subscriber<FlowMap> {
+        private final int window;
+        private final Set<CompletableFuture<FlowMap>> dispatched = ConcurrentHashMap.newKeySet();
+        private volatile java.util.concurrent.Flow.Subscription subscription;
+
+        StreamDispatcher(int window) { this.window = window; }
+
+        @Override
+        public void onSubscribe(@NotNull java.util.concurrent.Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(window);
+        }
+
+        @Override
+        public void onNext(@NotNull FlowMap newMap) {
+            CompletableFuture<FlowMap> flow = dispatchAsync(() -> dispatched(newMap, streamTarget, null));
+            dispatched.add(flow);
+            flow.whenComplete((result, e) -> {
+                dispatched.remove(flow);
+                subscription.request(1);
+            });
+        }
+
+        @Override
+        public void onError(@NotNull Throwable throwable) {
+            log(NodeLogLevel.DEBUG, "Stream terminated exceptionally: {0}", throwable.getMessage());
+        }
+
+        @Override
+        public void onComplete() {
+            log(NodeLogLevel.TRACE, "Stream complete, {0} streamed flows running", dispatched.size());
+        }
+
+        boolean runQueuedInline() {
+            // other threads only wait until the flows are run by a worker
+            if(!ExecutorsServiceImpl.isFlowWorker()) return false;
+
+            for (CompletableFuture<FlowMap> flow : dispatched) {
+                if(flow instanceof ForkedFlow && ((ForkedFlow) flow).tryRunInline()) return true;
+            }
+            return false;
+        }
+    }
 }
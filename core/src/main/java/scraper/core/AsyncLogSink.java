@@ -0,0 +1,120 @@
+package scraper.core;
+
+import scraper.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.lang.System.Logger.Level.WARNING;
+
+/**
+ * Writes node log messages from a single background thread in batches.
+ * <p>
+ * Nodes only enqueue their messages and do not contend for the locks of the logging handlers.
+ * Arguments which are not immutable values are converted to strings when enqueued.
+ * If the queue is full, messages are logged by the calling thread.
+ * Remaining messages are written on shutdown after the writer stopped.
+ */
+public final class AsyncLogSink {
+
+    private static final System.Logger log = System.getLogger("AsyncLogSink");
+
+    private static final int BATCH_SIZE = 256;
+    /** Time the writer gets to finish its batch on shutdown */
+    private static final long SHUTDOWN_MILLIS = 1000;
+
+    private final BlockingQueue<Message> queue;
+    private final Thread writer;
+    /** Failures of handlers are reported once */
+    private final AtomicBoolean failed = new AtomicBoolean();
+
+    public AsyncLogSink(int capacity) {
+        queue = new LinkedBlockingQueue<>(capacity);
+
+        writer = new Thread(this::write, "async-log");
+        writer.setDaemon(true);
+        writer.start();
+
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "async-log-flush"));
+    }
+
+    /** Enqueues a message, logs with the calling thread if the queue is full */
+    public void log(@NotNull System.Logger logger, @NotNull System.Logger.Level level, @NotNull String msg, @NotNull Object... args) {
+        Message message = new Message(logger, level, msg, snapshot(args));
+        if(!queue.offer(message)) write(message);
+    }
+
+    /** Writes all enqueued messages with the calling thread */
+    public void flush() {
+        List<Message> batch = new ArrayList<>();
+        queue.drainTo(batch);
+        batch.forEach(this::write);
+    }
+
+    /** Stops the writer and writes the remaining messages, so messages are not written concurrently */
+    private void shutdown() {
+        writer.interrupt();
+        try {
+            writer.join(SHUTDOWN_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    private void write() {
+        List<Message> batch = new ArrayList<>(BATCH_SIZE);
+        while (true) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, BATCH_SIZE - 1);
+                for (Message message : batch) write(message);
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(@NotNull Message message) {
+        try {
+            message.write();
+        } catch (RuntimeException e) {
+            // a failing handler should not stop logging
+            if(failed.compareAndSet(false, true))
+                log.log(WARNING, "Could not write log message, further failures are not reported: {0}", e.getMessage());
+        }
+    }
+
+    private static Object[] snapshot(Object[] args) {
+        if(args.length == 0) return args;
+
+        Object[] copy = new Object[args.length];
+        for (int i = 0; i < args.length; i++) {
+            Object arg = args[i];
+            copy[i] = (arg == null || arg instanceof String || arg instanceof Number || arg instanceof Boolean
+                    || arg instanceof Enum || arg instanceof Throwable ? arg : String.valueOf(arg));
+        }
+        return copy;
+    }
+
+    private static final class Message {
+        final System.Logger logger;
+        final System.Logger.Level level;
+        final String msg;
+        final Object[] args;
+
+        Message(System.Logger logger, System.Logger.Level level, String msg, Object[] args) {
+            this.logger = logger;
+            this.level = level;
+            this.msg = msg;
+            this.args = args;
+        }
+
+        void write() { logger.log(level, msg, args); }
+    }
+}
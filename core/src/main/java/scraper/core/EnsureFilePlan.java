@@ -0,0 +1,162 @@
+package scraper.core;
+
+import scraper.annotations.NotNull;
+import scraper.annotations.node.EnsureFile;
+import scraper.api.exceptions.TemplateException;
+import scraper.api.exceptions.ValidationException;
+import scraper.api.flow.FlowMap;
+import scraper.api.service.FileService;
+import scraper.api.template.Primitive;
+import scraper.api.template.T;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static scraper.api.node.container.NodeLogLevel.DEBUG;
+import static scraper.api.node.container.NodeLogLevel.TRACE;
+import static scraper.utils.ClassUtil.getAllFields;
+
+/**
+ * Files described by the {@link EnsureFile} fields of a node implementation, built once at node init.
+ * <p>
+ * Field accessors are resolved at init and static paths are ensured at init if possible.
+ * Templated paths are ensured once on first use and remembered until {@link #invalidate()} is called.
+ */
+final class EnsureFilePlan {
+
+    /** Upper bound of remembered paths per field, the set is cleared if exceeded */
+    static final int MAX_ENSURED_PATHS = 4096;
+
+    private final AbstractNode<?> owner;
+    private final List<EnsureField> fields;
+
+    private EnsureFilePlan(@NotNull AbstractNode<?> owner, @NotNull List<EnsureField> fields) {
+        this.owner = owner;
+        this.fields = fields;
+    }
+
+    /** Creates the plan for the implementation of the given node and ensures all static paths */
+    static EnsureFilePlan of(@NotNull AbstractNode<?> owner) throws ValidationException {
+        Object node = owner.getC();
+        List<EnsureField> fields = new ArrayList<>();
+
+        for (Field f : getAllFields(new LinkedList<>(), node.getClass())) {
+            EnsureFile ensureFile = f.getAnnotation(EnsureFile.class);
+            if(ensureFile == null) continue;
+
+            try {
+                f.setAccessible(true);
+                MethodHandle getter = MethodHandles.lookup().unreflectGetter(f);
+                fields.add(new EnsureField(f.getName(), getter, T.class.isAssignableFrom(f.getType()), ensureFile.ensureDir()));
+            } catch (IllegalAccessException e) {
+                throw new ValidationException(e, "Could not access ensure file field " + f.getName());
+            }
+        }
+
+        EnsureFilePlan plan = new EnsureFilePlan(owner, List.copyOf(fields));
+        plan.ensureStatic(node);
+        return plan;
+    }
+
+    boolean isEmpty() { return fields.isEmpty(); }
+
+    /** Ensures the files of all fields for the given flow */
+    void ensure(@NotNull FlowMap o) throws IOException {
+        Object node = owner.getC();
+        for (EnsureField field : fields) {
+            String path = field.path(node, o);
+            if (path != null) ensure(field, path);
+        }
+    }
+
+    /** Forgets all ensured paths, paths are ensured again on next use */
+    void invalidate() {
+        fields.forEach(f -> f.ensured.clear());
+    }
+
+    private void ensureStatic(@NotNull Object node) {
+        for (EnsureField field : fields) {
+            String path = field.staticPath(node);
+            if (path == null) continue;
+
+            try {
+                ensure(field, path);
+            } catch (IOException e) {
+                // not remembered as ensured, the first flow fails with a node exception
+                owner.log(DEBUG,"Could not ensure file of field {0} at {1} during init: {2}", field.name, path, e.getMessage());
+            }
+        }
+    }
+
+    private void ensure(@NotNull EnsureField field, @NotNull String path) throws IOException {
+        if (field.ensured.contains(path)) return;
+
+        owner.log(TRACE,"Ensure file of field {0} at {1}", field.name, path);
+        FileService files = owner.getJobPojo().getFileService();
+        if(field.ensureDir)
+            files.ensureDirectory(new File(path));
+
+        if(path.endsWith(File.separator)) {
+            files.ensureDirectory(new File(path+"."));
+        } else {
+            files.ensureFile(path);
+        }
+
+        if (field.ensured.size() >= MAX_ENSURED_PATHS) field.ensured.clear();
+        field.ensured.add(path);
+    }
+
+    private static final class EnsureField {
+        final String name;
+        final MethodHandle getter;
+        final boolean template;
+        final boolean ensureDir;
+        final Set<String> ensured = ConcurrentHashMap.newKeySet();
+
+        EnsureField(String name, MethodHandle getter, boolean template, boolean ensureDir) {
+            this.name = name;
+            this.getter = getter;
+            this.template = template;
+            this.ensureDir = ensureDir;
+        }
+
+        Object get(Object node) {
+            try {
+                return getter.invoke(node);
+            } catch (Throwable e) {
+                throw new IllegalStateException("Implemented reflection badly: ", e);
+            }
+        }
+
+        /** Path of this field for the given flow, null if not defined */
+        String path(Object node, FlowMap o) {
+            Object value = get(node);
+            if (!template) return (String) value;
+
+            T<?> templ = (T<?>) value;
+            Optional<?> maybePath = (templ == null ? Optional.empty() : o.evalMaybe(templ));
+            return (String) maybePath.orElse(null);
+        }
+
+        /** Path of this field if it does not depend on the flow, null otherwise */
+        String staticPath(Object node) {
+            Object value = get(node);
+            if (!template) return (String) value;
+
+            T<?> templ = (T<?>) value;
+            if (templ == null || !(templ.getTerm() instanceof Primitive)) return null;
+            try {
+                Object path = ((Primitive<?>) templ.getTerm()).eval();
+                return path instanceof String ? (String) path : null;
+            } catch (TemplateException e) {
+                // reported when evaluated with a flow
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package scraper.core;
+
+import scraper.annotations.NotNull;
+import scraper.api.exceptions.BreakException;
+import scraper.api.exceptions.NodeException;
+import scraper.api.exceptions.TemplateException;
+import scraper.api.flow.FlowMap;
+import scraper.api.node.container.NodeContainer;
+import scraper.api.node.container.NodeLogLevel;
+import scraper.api.node.type.AsyncNode;
+import scraper.api.node.type.Node;
+import scraper.api.plugin.NodeHook;
+import scraper.api.service.impl.ExecutorsServiceImpl;
+import scraper.core.metrics.NodeMetricsImpl;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static scraper.api.plugin.NodeHook.Phase.AFTER_PROCESS;
+import static scraper.api.plugin.NodeHook.Phase.BEFORE_PROCESS;
+
+/**
+ * Drives a flow through a graph as a loop instead of a chain of nested
+ * {@link Node#accept(NodeContainer, FlowMap)} and {@link NodeContainer#forward(FlowMap)} calls.
+ * <p>
+ * Every hop has the same semantics as the default accept implementation: node hooks before processing,
+ * processing, node hooks after processing, forwarding to the goTo target.
+ * Nodes which override accept are handed the rest of the flow.
+ * Hop hooks are called between two nodes of a flow.
+ * Processing time and exceptions are recorded for nodes which collect metrics.
+ * Flows run asynchronously are suspended at {@link AsyncNode}s instead of blocking the running thread.
+ */
+public class FlowExecutor {
+
+    /** Hooks called between hops, copy on write */
+    private volatile HopHook[] hopHooks = new HopHook[0];
+
+    /** Adds a hook which is called between two hops of every flow */
+    public synchronized void addHopHook(@NotNull HopHook hook) {
+        HopHook[] hooks = Arrays.copyOf(hopHooks, hopHooks.length + 1);
+        hooks[hooks.length - 1] = hook;
+        hopHooks = hooks;
+    }
+
+    /**
+     * Runs a flow starting at the given node until the flow terminates.
+     *
+     * @return The flow map of the last node of the flow
+     * @throws NodeException if there is a processing error in any node of the flow
+     */
+    @NotNull
+    public FlowMap run(@NotNull NodeContainer<? extends Node> n, @NotNull FlowMap o) throws NodeException {
+        NodeContainer<? extends Node> current = n;
+        FlowMap flow = o;
+
+        while (true) {
+            if (!(current instanceof AbstractNode) || !((AbstractNode<?>) current).hasDefaultAccept()) {
+                // node does not follow the default accept contract
+                return current.getC().accept(current, flow);
+            }
+
+            FlowMap fm;
+            try {
+                fm = process((AbstractNode<?>) current, flow);
+            }
+            catch (BreakException e) {
+                current.log(NodeLogLevel.TRACE, "Escape node accept phase for {0}: {1}", current.getAddress(), e.getMessage());
+                return flow;
+            }
+            catch (TemplateException e) {
+                current.log(NodeLogLevel.ERROR, "Template type error for {0}: {1}", current.getAddress(), e.getMessage());
+                throw e;
+            }
+
+            Optional<NodeContainer<? extends Node>> next = current.getGoTo();
+            if (next.isEmpty()) return fm;
+
+            fm.nextSequence();
+            onHop(current, next.get(), fm);
+
+            current = next.get();
+            flow = fm;
+        }
+    }
+
+    /**
+     * Runs a flow starting at the given node like {@link #run(NodeContainer, FlowMap)}, without waiting for asynchronous nodes.
+     * <p>
+     * The flow is suspended at an {@link AsyncNode} which has not completed processing yet
+     * and resumed by the executor of that node when it completes.
+     * Nodes which override accept and nodes evaluated by nodes of the flow are run synchronously.
+     *
+     * @return Future of the flow map of the last node of the flow, completes exceptionally if there is a processing error
+     */
+    @NotNull
+    public CompletableFuture<FlowMap> runAsync(@NotNull NodeContainer<? extends Node> n, @NotNull FlowMap o) {
+        CompletableFuture<FlowMap> result = new CompletableFuture<>();
+        runAsync(n, o, result);
+        return result;
+    }
+
+    /** Resumed flows complete the result of the flow instead of chaining futures per suspension */
+    private void runAsync(@NotNull NodeContainer<? extends Node> n, @NotNull FlowMap o, @NotNull CompletableFuture<FlowMap> result) {
+        NodeContainer<? extends Node> current = n;
+        FlowMap flow = o;
+
+        try {
+            while (true) {
+                if (!(current instanceof AbstractNode) || !((AbstractNode<?>) current).hasDefaultAccept()) {
+                    result.complete(current.getC().accept(current, flow));
+                    return;
+                }
+
+                AbstractNode<?> node = (AbstractNode<?>) current;
+                FlowMap fm;
+                try {
+                    if (node.getC() instanceof AsyncNode) {
+                        CompletableFuture<FlowMap> processed = processAsync(node, flow);
+                        if (!processed.isDone()) {
+                            suspend(node, flow, processed, result);
+                            return;
+                        }
+                        fm = completed(node, flow, processed);
+                    } else {
+                        fm = process(node, flow);
+                    }
+                }
+                catch (BreakException e) {
+                    current.log(NodeLogLevel.TRACE, "Escape node accept phase for {0}: {1}", current.getAddress(), e.getMessage());
+                    result.complete(flow);
+                    return;
+                }
+                catch (TemplateException e) {
+                    current.log(NodeLogLevel.ERROR, "Template type error for {0}: {1}", current.getAddress(), e.getMessage());
+                    throw e;
+                }
+
+                Optional<NodeContainer<? extends Node>> next = current.getGoTo();
+                if (next.isEmpty()) {
+                    result.complete(fm);
+                    return;
+                }
+
+                fm.nextSequence();
+                onHop(current, next.get(), fm);
+
+                current = next.get();
+                flow = fm;
+            }
+        } catch (NodeException | RuntimeException e) {
+            result.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Resumes the flow with the executor of the node when processing completed.
+     * The completing thread only hands the flow off, it never blocks on a saturated executor.
+     */
+    private void suspend(@NotNull AbstractNode<?> n, @NotNull FlowMap o, @NotNull CompletableFuture<FlowMap> processed,
+                         @NotNull CompletableFuture<FlowMap> result) {
+        processed.whenComplete((fm, e) -> ExecutorsServiceImpl.resume(n.getService(), () -> resume(n, o, processed, result)));
+    }
+
+    private void resume(@NotNull AbstractNode<?> n, @NotNull FlowMap o, @NotNull CompletableFuture<FlowMap> processed,
+                        @NotNull CompletableFuture<FlowMap> result) {
+        try {
+            FlowMap fm;
+            try {
+                fm = completed(n, o, processed);
+            }
+            catch (BreakException e) {
+                n.log(NodeLogLevel.TRACE, "Escape node accept phase for {0}: {1}", n.getAddress(), e.getMessage());
+                result.complete(o);
+                return;
+            }
+            catch (TemplateException e) {
+                n.log(NodeLogLevel.ERROR, "Template type error for {0}: {1}", n.getAddress(), e.getMessage());
+                throw e;
+            }
+
+            Optional<NodeContainer<? extends Node>> next = n.getGoTo();
+            if (next.isEmpty()) {
+                result.complete(fm);
+                return;
+            }
+
+            fm.nextSequence();
+            onHop(n, next.get(), fm);
+            runAsync(next.get(), fm, result);
+        } catch (NodeException | RuntimeException e) {
+            result.completeExceptionally(e);
+        }
+    }
+
+    /** Forwards a flow from the origin to the target node, calls hop hooks */
+    @NotNull
+    public FlowMap forward(@NotNull NodeContainer<? extends Node> origin, @NotNull NodeContainer<? extends Node> target,
+                           @NotNull FlowMap o) throws NodeException {
+        onHop(origin, target, o);
+        return run(target, o);
+    }
+
+    private void onHop(@NotNull NodeContainer<? extends Node> origin, @NotNull NodeContainer<? extends Node> target,
+                     @NotNull FlowMap o) throws NodeException {
+        for (HopHook hook : hopHooks) hook.onHop(origin, target, o);
+    }
+
+    @NotNull
+    private FlowMap process(@NotNull AbstractNode<?> n, @NotNull FlowMap o) throws NodeException {
+        NodeMetricsImpl metrics = n.metrics();
+        if (metrics == null) return processHooked(n, o);
+
+        long start = System.nanoTime();
+        FlowMap fm;
+        try {
+            fm = processHooked(n, o);
+        }
+        catch (BreakException e) {
+            metrics.processed(System.nanoTime() - start, false);
+            throw e;
+        }
+        catch (NodeException | RuntimeException e) {
+            metrics.processed(System.nanoTime() - start, true);
+            throw e;
+        }
+        metrics.processed(System.nanoTime() - start, false);
+        return fm;
+    }
+
+    /** Calls the node hooks before processing and starts processing, processing time is recorded on completion */
+    @NotNull
+    private CompletableFuture<FlowMap> processAsync(@NotNull AbstractNode<?> n, @NotNull FlowMap o) {
+        NodeMetricsImpl metrics = n.metrics();
+        long start = System.nanoTime();
+
+        CompletableFuture<FlowMap> processed;
+        try {
+            for (NodeHook hook : n.hookChain(BEFORE_PROCESS)) { hook.beforeProcess(n, o); }
+            processed = ((AsyncNode) n.getC()).processAsync(n, o);
+        } catch (NodeException | RuntimeException e) {
+            processed = CompletableFuture.failedFuture(e);
+        }
+
+        if (metrics == null) return processed;
+        return processed.whenComplete((fm, e) ->
+                metrics.processed(System.nanoTime() - start, e != null && !(unwrap(e) instanceof BreakException)));
+    }
+
+    /** Result of a completed asynchronous process, calls the node hooks after processing */
+    @NotNull
+    private FlowMap completed(@NotNull AbstractNode<?> n, @NotNull FlowMap o, @NotNull CompletableFuture<FlowMap> processed) throws NodeException {
+        FlowMap fm;
+        try {
+            fm = processed.join();
+        } catch (CompletionException | CancellationException e) {
+            Throwable cause = unwrap(e);
+            if (cause instanceof NodeException) throw (NodeException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw e;
+        }
+
+        for (NodeHook hook : n.hookChain(AFTER_PROCESS)) { hook.afterProcess(n, o); }
+        return fm;
+    }
+
+    @NotNull
+    private static Throwable unwrap(@NotNull Throwable e) {
+        return (e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+    }
+
+    @NotNull
+    private FlowMap processHooked(@NotNull AbstractNode<?> n, @NotNull FlowMap o) throws NodeException {
+        for (NodeHook hook : n.hookChain(BEFORE_PROCESS)) { hook.beforeProcess(n, o); }
+        FlowMap fm = n.getC().process(n, o);
+        for (NodeHook hook : n.hookChain(AFTER_PROCESS)) { hook.afterProcess(n, o); }
+        return fm;
+    }
+}
@@ -0,0 +1,100 @@
+package scraper.core;
+
+import scraper.annotations.NotNull;
+import scraper.annotations.Nullable;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the flows of a job which have been started or dispatched and have not terminated yet.
+ * <p>
+ * A flow is counted before it is dispatched and until it terminates, so the count of a job only drops to zero
+ * if no flow of the job is running or queued. The job is then quiescent.
+ * Nodes which start flows on their own, e.g. periodically, hold the job open by counting themselves as a flow.
+ */
+public final class FlowTracker {
+
+    private final AtomicLong inFlight = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final Object quiescence = new Object();
+
+    private volatile Instant firstStarted;
+    private volatile Instant lastQuiescent;
+    private volatile boolean draining = false;
+
+    /** Counts a started or dispatched flow */
+    public void started() { started(1); }
+
+    /** Counts started or dispatched flows */
+    public void started(int flows) {
+        if (total.getAndAdd(flows) == 0) firstStarted = Instant.now();
+        inFlight.addAndGet(flows);
+    }
+
+    /** Counts a terminated flow, every started flow terminates exactly once */
+    public void finished() {
+        while (true) {
+            long flows = inFlight.get();
+            if (flows < 1) throw new IllegalStateException("More flows finished than started");
+            if (flows > 1) {
+                if (inFlight.compareAndSet(flows, flows - 1)) return;
+                continue;
+            }
+
+            // the last flow terminates under the monitor, waiting threads see the time it was quiescent
+            synchronized (quiescence) {
+                if (inFlight.compareAndSet(1, 0)) {
+                    lastQuiescent = Instant.now();
+                    quiescence.notifyAll();
+                    return;
+                }
+            }
+        }
+    }
+
+    /** Flows which have been started and have not terminated yet */
+    public long getInFlight() { return inFlight.get(); }
+
+    /** All flows started so far */
+    public long getTotal() { return total.get(); }
+
+    /** Time the first flow was started, null if no flow was started */
+    @Nullable
+    public Instant getFirstStarted() { return firstStarted; }
+
+    /** Time the job was quiescent for the last time, null if it never was */
+    @Nullable
+    public Instant getLastQuiescent() { return lastQuiescent; }
+
+    /** Waits until no flow is running or queued */
+    public void awaitQuiescence() throws InterruptedException {
+        synchronized (quiescence) {
+            while (inFlight.get() > 0) quiescence.wait();
+        }
+    }
+
+    /**
+     * Waits until no flow is running or queued.
+     *
+     * @return false if the timeout elapsed before
+     */
+    public boolean awaitQuiescence(@NotNull Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        synchronized (quiescence) {
+            while (inFlight.get() > 0) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) return false;
+                TimeUnit.NANOSECONDS.timedWait(quiescence, remaining);
+            }
+        }
+        return true;
+    }
+
+    /** Marks the job as draining, nodes do not start new flows on their own anymore */
+    public void drain() { draining = true; }
+
+    public boolean isDraining() { return draining; }
+}
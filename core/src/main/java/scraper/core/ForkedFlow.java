@@ -0,0 +1,177 @@
+package scraper.core;
+
+import scraper.annotations.NotNull;
+import scraper.api.flow.FlowMap;
+import scraper.api.service.impl.FlowTask;
+import scraper.api.service.impl.LimitingExecutorService;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * A flow forked into an executor which can be run by the thread joining it.
+ * <p>
+ * Joining a forked flow which has not been started yet runs the flow in the joining thread.
+ * A node which forks into its own executor and joins the forked flows then never waits for a flow
+ * which is stuck in the queue of the executor, even if all threads of the executor are joining.
+ * <p>
+ * An asynchronous forked flow completes when the future returned by its flow completes,
+ * the running thread is free once the flow is suspended.
+ * Limiting executors count the flow until it completes.
+ * <p>
+ * A forked flow which has not been started yet can be cancelled, it is then never run.
+ */
+public final class ForkedFlow extends CompletableFuture<FlowMap> implements FlowTask {
+
+    private final Supplier<? extends CompletionStage<FlowMap>> flow;
+    private final Executor executor;
+    private final AtomicBoolean claimed = new AtomicBoolean(false);
+    private volatile long started = 0;
+
+    private ForkedFlow(@NotNull Supplier<? extends CompletionStage<FlowMap>> flow, @NotNull Executor executor) {
+        this.flow = flow;
+        this.executor = executor;
+    }
+
+    /** Forks a flow into the given executor, blocks like the executor if it is saturated */
+    @NotNull
+    public static ForkedFlow fork(@NotNull Supplier<FlowMap> flow, @NotNull Executor executor) {
+        return forkAsync(completed(flow), executor);
+    }
+
+    /** Forks an asynchronous flow into the given executor, blocks like the executor if it is saturated */
+    @NotNull
+    public static ForkedFlow forkAsync(@NotNull Supplier<? extends CompletionStage<FlowMap>> flow, @NotNull Executor executor) {
+        ForkedFlow forked = new ForkedFlow(flow, executor);
+        executor.execute(forked);
+        return forked;
+    }
+
+    /**
+     * Forks flows into the given executor in batches of the given size, each batch is run by a single thread.
+     * Flows of a batch which are joined before the batch is started are run by the joining thread.
+     * If the executor rejects a batch, the remaining batches are run by the calling thread.
+     * Flows are forked one by one into limiting executors, which count every flow.
+     */
+    @NotNull
+    public static List<ForkedFlow> forkAll(@NotNull List<? extends Supplier<FlowMap>> flows, @NotNull Executor executor, int batchSize) {
+        List<Supplier<CompletionStage<FlowMap>>> stages = new ArrayList<>(flows.size());
+        for (Supplier<FlowMap> flow : flows) stages.add(completed(flow));
+        return forkAllAsync(stages, executor, batchSize);
+    }
+
+    /** Forks asynchronous flows into the given executor in batches, like {@link #forkAll(List, Executor, int)} */
+    @NotNull
+    public static List<ForkedFlow> forkAllAsync(@NotNull List<? extends Supplier<? extends CompletionStage<FlowMap>>> flows,
+                                                @NotNull Executor executor, int batchSize) {
+        List<ForkedFlow> forked = new ArrayList<>(flows.size());
+        for (Supplier<? extends CompletionStage<FlowMap>> flow : flows) forked.add(new ForkedFlow(flow, executor));
+        int size = (executor instanceof LimitingExecutorService ? 1 : batchSize);
+
+        for (int from = 0; from < forked.size(); from += size) {
+            List<ForkedFlow> batch = forked.subList(from, Math.min(from + size, forked.size()));
+            try {
+                executor.execute(batch.size() == 1 ? batch.get(0) : () -> batch.forEach(ForkedFlow::run));
+            } catch (RejectedExecutionException e) {
+                forked.subList(from, forked.size()).forEach(ForkedFlow::run);
+                break;
+            }
+        }
+
+        return forked;
+    }
+
+    /** Waits for all futures, forked flows which have not been started yet are run by the calling thread */
+    public static void joinAll(@NotNull Collection<? extends CompletableFuture<?>> futures) {
+        for (CompletableFuture<?> future : futures) {
+            if (future instanceof ForkedFlow) ((ForkedFlow) future).tryRunInline();
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+    }
+
+    @NotNull
+    @Override
+    public CompletionStage<?> getCompletion() { return this; }
+
+    @Override
+    public long getStarted() { return started; }
+
+    @Override
+    public void run() {
+        if (claimed.compareAndSet(false, true)) execute();
+    }
+
+    /**
+     * Runs the flow in the calling thread if no other thread has started it yet.
+     *
+     * @return true if the flow was run by the calling thread
+     */
+    public boolean tryRunInline() {
+        if (!claimed.compareAndSet(false, true)) return false;
+
+        unqueue();
+        execute();
+        return true;
+    }
+
+    /**
+     * Cancels the flow if no thread has started it yet, a running flow is not interrupted.
+     *
+     * @return true if the flow was cancelled and is never run
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        if (!claimed.compareAndSet(false, true)) return false;
+
+        unqueue();
+        return super.cancel(false);
+    }
+
+    @Override
+    public FlowMap join() {
+        tryRunInline();
+        return super.join();
+    }
+
+    @Override
+    public FlowMap get() throws InterruptedException, ExecutionException {
+        tryRunInline();
+        return super.get();
+    }
+
+    private void execute() {
+        started = System.nanoTime();
+        CompletionStage<FlowMap> stage;
+        try {
+            stage = flow.get();
+        } catch (Throwable e) {
+            completeFailed(e);
+            return;
+        }
+
+        stage.whenComplete((result, e) -> {
+            if (e == null) complete(result);
+            else completeFailed(e);
+        });
+    }
+
+    /** Frees the slot of the claimed flow in the queue of the executor */
+    private void unqueue() {
+        if (executor instanceof LimitingExecutorService) ((LimitingExecutorService) executor).remove(this);
+        else if (executor instanceof ThreadPoolExecutor) ((ThreadPoolExecutor) executor).remove(this);
+    }
+
+    private void completeFailed(@NotNull Throwable e) {
+        // same exceptional completion as supplyAsync
+        completeExceptionally(e instanceof CompletionException ? e : new CompletionException(e));
+    }
+
+    @NotNull
+    private static Supplier<CompletionStage<FlowMap>> completed(@NotNull Supplier<FlowMap> flow) {
+        return () -> CompletableFuture.completedFuture(flow.get());
+    }
+}
@@ -0,0 +1,18 @@
+package scraper.core;
+
+import scraper.annotations.NotNull;
+import scraper.api.exceptions.NodeException;
+import scraper.api.flow.FlowMap;
+import scraper.api.node.container.NodeContainer;
+import scraper.api.node.type.Node;
+
+/**
+ * Hook which is called by the {@link FlowExecutor} between two nodes of a flow,
+ * after the origin node has finished and before the target node accepts the flow.
+ */
+@FunctionalInterface
+public interface HopHook {
+    /** Called once per hop from <var>origin</var> to <var>target</var> */
+    void onHop(@NotNull NodeContainer<? extends Node> origin, @NotNull NodeContainer<? extends Node> target,
+               @NotNull FlowMap o) throws NodeException;
+}
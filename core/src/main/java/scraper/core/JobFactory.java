@@ -14,6 +14,7 @@ import scraper.api.node.type.StreamNode;
 import scraper.api.plugin.NodeHook;
 import scraper.api.service.ExecutorsService;
 import scraper.api.service.FileService;
+import scraper.api.service.HttpCache;
 import scraper.api.service.HttpService;
 import scraper.api.service.ProxyReservation;
 import scraper.api.specification.ScrapeInstance;
@@ -37,19 +38,24 @@ public class JobFactory {
     private static final System.Logger log = System.getLogger("JobFactory");
 
     public JobFactory(@NotNull ProxyReservation proxyReservation, @NotNull HttpService httpService,
+                      @NotNull HttpCache httpCache,
                       @NotNull ExecutorsService executorsService, @NotNull FileService fileService,
-                      @NotNull PluginBean plugins) {
+                      @NotNull PluginBean plugins, @NotNull FlowExecutor flowExecutor) {
         this.proxyReservation = proxyReservation;
         this.httpService = httpService;
+        this.httpCache = httpCache;
         this.executorsService = executorsService;
         this.fileService = fileService;
         this.plugins = plugins;
+        this.flowExecutor = flowExecutor;
     }
 
     private final ProxyReservation proxyReservation;
     private final HttpService httpService;
+    private final HttpCache httpCache;
     private final ExecutorsService executorsService;
     private final FileService fileService;
+    private final FlowExecutor flowExecutor;
 
     private final PluginBean plugins;
 
@@ -66,7 +72,9 @@ public class JobFactory {
         job.setExecutors(executorsService);
         job.setFileService(fileService);
         job.setHttpService(httpService);
+        job.setHttpCache(httpCache);
         job.setProxyReservation(proxyReservation);
+        job.setFlowExecutor(flowExecutor);
 
         hooks.forEach(job::addHook);
 
@@ -239,6 +247,9 @@ public class JobFactory {
 
         nested.forEach(e -> job.importedInstances.put(e.getKey(), e.getValue()));
 
+        // flows dispatched by imported nodes belong to this job
+        job.importedInstances.values().forEach(i -> ((ScrapeInstaceImpl) i).setFlows(job.getFlows()));
+
         job.init();
 
         job.importedInstances.forEach((a,i)-> i.getRoutes().forEach(job::addRoute));
@@ -0,0 +1,139 @@
+package scraper.core;
+
+import scraper.annotations.NotNull;
+
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Publishes the elements of a stream to a single subscriber, publishing waits until the subscriber has demand.
+ * <p>
+ * A slow subscriber thereby throttles the producer of the stream, e.g. a thread reading the output of a process.
+ * Elements can be published by several producer threads, the subscriber is signalled by one thread at a time.
+ * While waiting for demand, the producer calls the help action, e.g. to run work the demand depends on.
+ */
+public final class StreamPublisher<E> implements Flow.Publisher<E> {
+
+    /** Producers wait at most this long before they try to help again */
+    private static final long HELP_INTERVAL_MS = 10;
+
+    private final BooleanSupplier help;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition demanded = lock.newCondition();
+    private long demand = 0;
+    private boolean cancelled = false;
+
+    /** Signals to the subscriber are serialized with this monitor */
+    private final Object signal = new Object();
+    private volatile Flow.Subscriber<? super E> subscriber;
+
+    /** @param help called while a producer waits for demand, returns true if it made progress */
+    public StreamPublisher(@NotNull BooleanSupplier help) {
+        this.help = help;
+    }
+
+    @Override
+    public void subscribe(@NotNull Flow.Subscriber<? super E> subscriber) {
+        synchronized (signal) {
+            if (this.subscriber != null) {
+                subscriber.onSubscribe(new Flow.Subscription() {
+                    @Override public void request(long n) {}
+                    @Override public void cancel() {}
+                });
+                subscriber.onError(new IllegalStateException("Stream is already subscribed"));
+                return;
+            }
+
+            this.subscriber = subscriber;
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override public void request(long n) { StreamPublisher.this.request(n); }
+                @Override public void cancel() { StreamPublisher.this.cancel(); }
+            });
+        }
+    }
+
+    /**
+     * Waits until the subscriber has demand and publishes the element.
+     *
+     * @return false if the subscription was cancelled and the element was dropped
+     */
+    public boolean publish(@NotNull E element) throws InterruptedException {
+        Flow.Subscriber<? super E> s = subscriber;
+        if (s == null) throw new IllegalStateException("Stream is not subscribed");
+
+        lock.lockInterruptibly();
+        try {
+            while (demand == 0 && !cancelled) {
+                lock.unlock();
+                boolean helped;
+                try {
+                    helped = help.getAsBoolean();
+                } finally {
+                    lock.lock();
+                }
+                if (!helped && demand == 0 && !cancelled) demanded.await(HELP_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            }
+
+            if (cancelled) return false;
+            demand--;
+        } finally {
+            lock.unlock();
+        }
+
+        synchronized (signal) { s.onNext(element); }
+        return true;
+    }
+
+    /** Signals the end of the stream */
+    public void complete() {
+        Flow.Subscriber<? super E> s = subscriber;
+        if (s == null || isCancelled()) return;
+        synchronized (signal) { s.onComplete(); }
+    }
+
+    /** Signals a failed stream */
+    public void fail(@NotNull Throwable failure) {
+        Flow.Subscriber<? super E> s = subscriber;
+        if (s == null || isCancelled()) return;
+        synchronized (signal) { s.onError(failure); }
+    }
+
+    private void request(long n) {
+        if (n <= 0) {
+            fail(new IllegalArgumentException("Non-positive request: " + n));
+            cancel();
+            return;
+        }
+
+        lock.lock();
+        try {
+            demand = (demand + n < 0 ? Long.MAX_VALUE : demand + n);
+            demanded.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void cancel() {
+        lock.lock();
+        try {
+            cancelled = true;
+            demanded.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isCancelled() {
+        lock.lock();
+        try {
+            return cancelled;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -21,6 +21,17 @@ import scraper.api.node.impl.AddressImpl;
 @SuppressWarnings({"rawtypes", "unchecked"})
 public final class StringToClassConverter {
     private StringToClassConverter(){}
+    /** Conversion of objects to a fixed target class */
+    @FunctionalInterface
+    public interface Converter {
+        @Nullable Object convert(@Nullable Object o) throws ValidationException;
+    }
+
+    private static final ClassValue<Converter> converters = new ClassValue<>() {
+        @Override
+        protected Converter computeValue(Class<?> target) { return resolve(target); }
+    };
+
     /**
      * Converts an object to a target class
      *
@@ -31,69 +42,99 @@ public final class StringToClassConverter {
      */
     @SuppressWarnings("unchecked") // raw type checked
     public static @Nullable <T> T convert(@Nullable final Object o, @NotNull final Class<? super T> target) throws ValidationException {
+        return (T) converterFor(target).convert(o);
+    }
 
-        // argument 'null'
-        if(o == null) return null;
-        // json 'null'
-        if(o instanceof String && ((String) o).equalsIgnoreCase("null")) return null;
+    /**
+     * Returns the converter to the target class. The conversion to use is resolved once per target class,
+     * converting with the returned converter is equivalent to {@link #convert(Object, Class)}.
+     */
+    public static @NotNull Converter converterFor(@NotNull final Class<?> target) {
+        return converters.get(target);
+    }
 
-        if(target.isAssignableFrom(o.getClass())) return (T) o;
+    private static Converter resolve(@NotNull final Class<?> target) {
+        Converter fromString = fromString(target);
 
-        if(
-                !(o instanceof String)
-                        && !(o instanceof Integer)
-                        && !(o instanceof Boolean)
-                        && !(o instanceof Double)
-        )
-            throw new ValidationException("Could not convert object to target class; origin class: '"+ o.getClass()+"'; target class: '"+target+"'");
+        return o -> {
+            // argument 'null'
+            if(o == null) return null;
+            // json 'null'
+            if(o instanceof String && ((String) o).equalsIgnoreCase("null")) return null;
 
-        String s = String.valueOf(o);
+            if(target.isInstance(o)) return o;
 
+            if(
+                    !(o instanceof String)
+                            && !(o instanceof Integer)
+                            && !(o instanceof Boolean)
+                            && !(o instanceof Double)
+            )
+                throw new ValidationException("Could not convert object to target class; origin class: '"+ o.getClass()+"'; target class: '"+target+"'");
+
+            return fromString.convert(String.valueOf(o));
+        };
+    }
+
+    private static Converter fromString(@NotNull final Class<?> target) {
         if(Double.class.isAssignableFrom(target))
-            try {
-                return (T) Double.valueOf(s);
-            } catch (NumberFormatException e) {
-                throw new ValidationException(e, "Could not convert string to Double");
-            }
+            return s -> {
+                try {
+                    return Double.valueOf((String) s);
+                } catch (NumberFormatException e) {
+                    throw new ValidationException(e, "Could not convert string to Double");
+                }
+            };
 
         if(Long.class.isAssignableFrom(target))
-            try {
-                return (T) Long.valueOf(s);
-            } catch (NumberFormatException e) {
-                throw new ValidationException(e, "Could not convert string to Long");
-            }
+            return s -> {
+                try {
+                    return Long.valueOf((String) s);
+                } catch (NumberFormatException e) {
+                    throw new ValidationException(e, "Could not convert string to Long");
+                }
+            };
 
         if(Integer.class.isAssignableFrom(target))
-            try {
-                return (T) Integer.valueOf(s);
-            } catch (NumberFormatException e) {
-                throw new ValidationException(e, "Could not convert string to Integer");
-            }
+            return s -> {
+                try {
+                    return Integer.valueOf((String) s);
+                } catch (NumberFormatException e) {
+                    throw new ValidationException(e, "Could not convert string to Integer");
+                }
+            };
 
         if(Address.class.isAssignableFrom(target))
-            return (T) new AddressImpl(o.toString());
+            return s -> new AddressImpl((String) s);
 
-        if(Boolean.class.isAssignableFrom(target)) {
-            if(s.equalsIgnoreCase("false")) return (T) Boolean.valueOf(false);
-            else if(s.equalsIgnoreCase("true")) return (T) Boolean.valueOf(true);
-        }
+        if(Boolean.class.isAssignableFrom(target))
+            return s -> {
+                if(((String) s).equalsIgnoreCase("false")) return Boolean.FALSE;
+                else if(((String) s).equalsIgnoreCase("true")) return Boolean.TRUE;
+                throw noConversion(s, target);
+            };
 
         if (Enum.class.isAssignableFrom(target)) {
             Class<? extends Enum> e = target.asSubclass(Enum.class);
 
-            // class cast should be thrown before, if enum cant be converted
-            try {
-                Enum<?> t = Enum.valueOf(e, s);
-                return (T) t;
-            } catch (IllegalArgumentException | NullPointerException ex) {
-                throw new ValidationException(ex, "Could not convert string to Enum");
-            }
+            return s -> {
+                // class cast should be thrown before, if enum cant be converted
+                try {
+                    return Enum.valueOf(e, (String) s);
+                } catch (IllegalArgumentException | NullPointerException ex) {
+                    throw new ValidationException(ex, "Could not convert string to Enum");
+                }
+            };
         }
 
         if (String.class.isAssignableFrom(target)) {
-            return (T) s;
+            return s -> s;
         }
 
-        throw new ValidationException("Could not convert string to target class. String: '"+s+"'; target class: '"+target+"'");
+        return s -> { throw noConversion(s, target); };
+    }
+
+    private static ValidationException noConversion(Object s, Class<?> target) {
+        return new ValidationException("Could not convert string to target class. String: '"+s+"'; target class: '"+target+"'");
     }
 }
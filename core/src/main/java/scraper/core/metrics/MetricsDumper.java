@@ -0,0 +1,67 @@
+package scraper.core.metrics;
+
+import scraper.annotations.NotNull;
+import scraper.api.service.FileService;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.System.Logger.Level.WARNING;
+
+/**
+ * Periodically replaces a file with a snapshot of a metrics registry.
+ * Files ending with {@code .json} are written as JSON, all other files as CSV.
+ * A last snapshot is written on shutdown.
+ */
+public final class MetricsDumper implements AutoCloseable {
+
+    private static final System.Logger log = System.getLogger("Metrics");
+
+    private final MetricsRegistry registry;
+    private final FileService files;
+    private final String path;
+    private final ScheduledExecutorService scheduler;
+    private final Thread shutdownDump;
+
+    public MetricsDumper(@NotNull MetricsRegistry registry, @NotNull FileService files, @NotNull String path) {
+        this.registry = registry;
+        this.files = files;
+        this.path = path;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "metrics-dump");
+            t.setDaemon(true);
+            return t;
+        });
+        this.shutdownDump = new Thread(this::dump, "metrics-dump-shutdown");
+    }
+
+    /** Writes a snapshot every period and on shutdown */
+    public void start(long period, @NotNull TimeUnit unit) {
+        scheduler.scheduleAtFixedRate(this::dump, period, period, unit);
+        Runtime.getRuntime().addShutdownHook(shutdownDump);
+    }
+
+    /** Writes a snapshot now */
+    public void dump() {
+        try {
+            files.ensureFile(path);
+            files.replaceFile(path, path.endsWith(".json") ? registry.toJson() : registry.toCsv());
+        } catch (IOException | RuntimeException e) {
+            log.log(WARNING, "Could not write metrics to {0}: {1}", path, e.getMessage());
+        }
+    }
+
+    /** Stops periodic snapshots and writes a last snapshot */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownDump);
+        } catch (IllegalStateException | IllegalArgumentException ignored) {
+            // shutting down or not started
+        }
+        dump();
+    }
+}
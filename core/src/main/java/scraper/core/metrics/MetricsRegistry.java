@@ -0,0 +1,90 @@
+package scraper.core.metrics;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import scraper.annotations.NotNull;
+import scraper.api.node.NodeAddress;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Metrics of all nodes of one or more jobs, keyed by node address.
+ * Snapshots can be formatted as CSV or JSON, one row or object per node.
+ */
+public final class MetricsRegistry {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    /** Reported latency quantiles */
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+    private static final String[] QUANTILE_NAMES = {"p50", "p90", "p99"};
+
+    private final ConcurrentMap<NodeAddress, NodeMetricsImpl> nodes = new ConcurrentHashMap<>();
+
+    /** Metrics of the node with the given address, created on first access */
+    @NotNull
+    public NodeMetricsImpl metricsOf(@NotNull NodeAddress address) {
+        return nodes.computeIfAbsent(address, NodeMetricsImpl::new);
+    }
+
+    /** Metrics of all nodes ordered by address */
+    @NotNull
+    public List<NodeMetricsImpl> getMetrics() {
+        List<NodeMetricsImpl> metrics = new ArrayList<>(nodes.values());
+        metrics.sort(Comparator.comparing(m -> m.getAddress().toString()));
+        return metrics;
+    }
+
+    /** Snapshot of all nodes, one map per node with the same keys as the CSV columns */
+    @NotNull
+    public List<Map<String, Object>> snapshot() {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (NodeMetricsImpl m : getMetrics()) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("address", m.getAddress().toString());
+            row.put("processed", m.getProcessed());
+            row.put("exceptions", m.getExceptions());
+            row.put("forks", m.getForks());
+            row.put("latency_total_ns", m.getTotalLatency());
+            for (int i = 0; i < QUANTILES.length; i++)
+                row.put("latency_" + QUANTILE_NAMES[i] + "_ns", m.getLatency(QUANTILES[i]));
+            for (int i = 0; i < QUANTILES.length; i++)
+                row.put("queue_wait_" + QUANTILE_NAMES[i] + "_ns", m.getQueueWait(QUANTILES[i]));
+            row.put("concurrency_limit", m.getConcurrencyLimit());
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    @NotNull
+    public String toCsv() {
+        StringBuilder csv = new StringBuilder();
+        List<Map<String, Object>> rows = snapshot();
+        csv.append(String.join(",", columns())).append("\n");
+        for (Map<String, Object> row : rows) {
+            StringJoiner line = new StringJoiner(",");
+            row.values().forEach(value -> line.add(String.valueOf(value)));
+            csv.append(line).append("\n");
+        }
+        return csv.toString();
+    }
+
+    @NotNull
+    public String toJson() {
+        try {
+            return mapper.writerWithDefaultPrettyPrinter().writeValueAsString(snapshot());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not write metrics as JSON", e);
+        }
+    }
+
+    private static List<String> columns() {
+        List<String> columns = new ArrayList<>(List.of("address", "processed", "exceptions", "forks", "latency_total_ns"));
+        for (String q : QUANTILE_NAMES) columns.add("latency_" + q + "_ns");
+        for (String q : QUANTILE_NAMES) columns.add("queue_wait_" + q + "_ns");
+        columns.add("concurrency_limit");
+        return columns;
+    }
+}
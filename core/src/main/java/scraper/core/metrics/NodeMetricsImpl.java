@@ -0,0 +1,52 @@
+package scraper.core.metrics;
+
+import scraper.annotations.NotNull;
+import scraper.api.node.NodeAddress;
+import scraper.api.node.container.NodeMetrics;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/** Metrics of a single node, updated concurrently by all flows of the node */
+public final class NodeMetricsImpl implements NodeMetrics {
+
+    private final NodeAddress address;
+
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder exceptions = new LongAdder();
+    private final LongAdder forks = new LongAdder();
+    private final LongAdder totalLatency = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    private volatile IntSupplier concurrencyLimit = () -> 0;
+
+    public NodeMetricsImpl(@NotNull NodeAddress address) { this.address = address; }
+
+    @NotNull
+    public NodeAddress getAddress() { return address; }
+
+    /** Records a processed flow and its processing time in nanoseconds */
+    public void processed(long nanos, boolean exceptional) {
+        processed.increment();
+        if(exceptional) exceptions.increment();
+        totalLatency.add(nanos);
+        latency.record(nanos);
+    }
+
+    /** Records a forked flow and the time in nanoseconds it waited for a thread */
+    public void forked(long queuedNanos) {
+        forks.increment();
+        queueWait.record(queuedNanos);
+    }
+
+    /** Reports the adaptive concurrency limit of the executor of the node */
+    public void setConcurrencyLimit(@NotNull IntSupplier concurrencyLimit) { this.concurrencyLimit = concurrencyLimit; }
+
+    @Override public long getProcessed() { return processed.sum(); }
+    @Override public long getExceptions() { return exceptions.sum(); }
+    @Override public long getForks() { return forks.sum(); }
+    @Override public long getTotalLatency() { return totalLatency.sum(); }
+    @Override public long getLatency(double quantile) { return latency.quantile(quantile); }
+    @Override public long getQueueWait(double quantile) { return queueWait.quantile(quantile); }
+    @Override public int getConcurrencyLimit() { return concurrencyLimit.getAsInt(); }
+}
@@ -0,0 +1,57 @@
+package scraper.core.template;
+
+import scraper.annotations.NotNull;
+import scraper.api.template.*;
+
+/**
+ * Compiles parsed terms once before they are evaluated.
+ * <p>
+ * Constants are converted to their target type, adjacent constants of string concatenations are folded
+ * and converters of lookups are resolved for their target class.
+ * Compiling is optional, terms which are not compiled are evaluated by walking the term.
+ */
+public final class TemplateCompiler {
+    private TemplateCompiler(){}
+
+    private static final TVisitor<Void> compiler = new DefaultVisitor<>() {
+        @Override
+        public Void visitFlowKeyLookup(@NotNull FlowKeyLookup<?> mapKey) {
+            super.visitFlowKeyLookup(mapKey);
+            return compile(mapKey);
+        }
+
+        @Override
+        public Void visitPrimitive(@NotNull Primitive<?> primitive) {
+            return compile(primitive);
+        }
+
+        @Override
+        public Void visitConcatenation(@NotNull Concatenation concat) {
+            super.visitConcatenation(concat);
+            return compile(concat);
+        }
+
+        @Override
+        public Void visitListLookup(@NotNull ListLookup<?> listLookup) {
+            super.visitListLookup(listLookup);
+            return compile(listLookup);
+        }
+
+        @Override
+        public Void visitMapLookup(@NotNull MapLookup<?> mapLookup) {
+            super.visitMapLookup(mapLookup);
+            return compile(mapLookup);
+        }
+
+        private Void compile(Term<?> term) {
+            if (term instanceof TemplateExpression) ((TemplateExpression<?>) term).compile();
+            return null;
+        }
+    };
+
+    /** Compiles the given term and all of its sub terms, sub terms are compiled first */
+    public static <K> Term<K> compile(@NotNull Term<K> term) {
+        term.accept(compiler);
+        return term;
+    }
+}
@@ -16,6 +16,7 @@ import static scraper.core.converter.StringToClassConverter.convert;
 public class TemplateConstant<K> extends TemplateExpression<K> implements Primitive<K> {
     @Override public <X> X accept(@NotNull TVisitor<X> visitor) { return visitor.visitPrimitive(this); }
     private final Object constant;
+    private Object folded;
 
     public TemplateConstant(@NotNull Object constant, @NotNull T<K> targetType) {
         super(targetType);
@@ -42,9 +43,21 @@ public class TemplateConstant<K> extends TemplateExpression<K> implements Primit
         return constant.toString();
     }
 
+    @Override
+    void compile() {
+        try {
+            folded = convert(constant, rawType(targetType.get()));
+            super.compile();
+        } catch (ValidationException ignored) {
+            // not foldable, report conversion error at evaluation time
+        }
+    }
+
     @NotNull
     @Override
+    @SuppressWarnings("unchecked") // converted with the compiled token
     public K eval() {
+        if (isCompiled()) return (K) folded;
         try {
             @SuppressWarnings({"RedundantCast", "unchecked"}) // lost type but reconstructed
             K result = (K) convert(constant, rawType(targetType.get()));
@@ -10,8 +10,17 @@ public abstract class TemplateExpression<K> implements Term<K> {
     @NotNull T<K> targetType;
     protected String typevarsuffix;
 
+    // token this term was compiled for, state precomputed by compile is stale if the token changes
+    private T<K> compiledFor;
+
     TemplateExpression(@NotNull T<K> targetType) { this.targetType = targetType; }
 
+    /** Precomputes evaluation state of this term, called by the {@link TemplateCompiler} after its sub terms are compiled */
+    void compile() { compiledFor = targetType; }
+
+    /** True if the precomputed evaluation state is valid for the current token */
+    boolean isCompiled() { return compiledFor == targetType; }
+
     @Override
     public @NotNull T<K> getToken() { return targetType; }
 
@@ -47,8 +47,10 @@ public class TemplateList<K> implements ListTerm<K> {
     }
 
     public @NotNull List<K> eval(@NotNull final FlowMap o) {
-        List<K> result = new ArrayList<>();
-        termList.forEach(t -> result.add(t.eval(o)));
+        List<K> result = new ArrayList<>(termList.size());
+        for (Term<K> t : termList) {
+            result.add(t.eval(o));
+        }
         return result;
     }
 
@@ -7,18 +7,21 @@ import scraper.api.template.ListLookup;
 import scraper.api.template.T;
 import scraper.api.template.TVisitor;
 import scraper.api.template.Term;
+import scraper.core.converter.StringToClassConverter.Converter;
 
 import java.lang.reflect.TypeVariable;
 import java.util.List;
 import java.util.Objects;
 
 import static scraper.core.converter.StringToClassConverter.convert;
+import static scraper.core.converter.StringToClassConverter.converterFor;
 
 public class TemplateListLookup<K> extends TemplateExpression<K> implements ListLookup<K> {
     @Override public <X> X accept(@NotNull TVisitor<X> visitor) { return visitor.visitListLookup(this); }
 
     private final TemplateExpression<List<K>> list;
     private final TemplateExpression<Integer> index;
+    private Converter converter;
 
     public TemplateListLookup(
             TemplateExpression<List<K>> list,
@@ -34,6 +37,12 @@ public class TemplateListLookup<K> extends TemplateExpression<K> implements List
         return getToken().get() instanceof TypeVariable;
     }
 
+    @Override
+    void compile() {
+        converter = converterFor(targetType.getRawType());
+        super.compile();
+    }
+
     @SuppressWarnings({"unchecked", "rawtypes"}) // checked with generics subtype relation
     public K eval(@NotNull final FlowMap o) {
         try{
@@ -47,7 +56,7 @@ public class TemplateListLookup<K> extends TemplateExpression<K> implements List
                 element = l.get(index);
             }
 
-            return (K) convert(element, targetType.getRawType());
+            return (K) (isCompiled() ? converter.convert(element) : convert(element, targetType.getRawType()));
         }
         catch (IndexOutOfBoundsException e) {
             throw new TemplateException(e, "Array index out of bounds for '"+toString()+"': "+ e.getMessage());
@@ -61,8 +61,10 @@ public class TemplateMap<K> implements MapTerm<K> {
     }
 
     public Map<String, K> eval(@NotNull final FlowMap o) {
-        Map<String, K> result = new HashMap<>();
-        termMap.forEach((k,v) -> result.put(k, v.eval(o)));
+        Map<String, K> result = new HashMap<>(termMap.size() * 4 / 3 + 1);
+        for (Map.Entry<String, Term<K>> e : termMap.entrySet()) {
+            result.put(e.getKey(), e.getValue().eval(o));
+        }
         return result;
     }
 
@@ -26,6 +26,7 @@ public class TemplateMapKey<K> extends TemplateExpression<K> implements FlowKeyL
     }
 
     private final Term<String> keyLookup;
+    private String constantKey;
 
     @Override
     public Term<K> withTypeVar(String suffix) {
@@ -43,8 +44,26 @@ public class TemplateMapKey<K> extends TemplateExpression<K> implements FlowKeyL
         return targetType.get().getTypeName();
     }
 
+    @Override
+    @SuppressWarnings("unchecked") // key lookups are string terms
+    void compile() {
+        if (keyLookup instanceof TemplateConstant) {
+            try {
+                constantKey = ((TemplateConstant<String>) keyLookup).eval();
+            } catch (TemplateException ignored) {
+                // report error at evaluation time
+            }
+        }
+        super.compile();
+    }
+
     @SuppressWarnings("unchecked") // statically checked
     public K eval(@NotNull final FlowMap o) {
+        if (constantKey != null && o instanceof FlowMapImpl) {
+            Object targetValue = ((FlowMapImpl) o).getPrivateMap().get(constantKey);
+            if (targetValue != null) return (K) targetValue;
+        }
+
         try{
             // TODO how to get rid of the FlowMapImpl cast
             String targetKey = keyLookup.eval(o);
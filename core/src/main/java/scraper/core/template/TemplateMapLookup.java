@@ -7,12 +7,14 @@ import scraper.api.template.MapLookup;
 import scraper.api.template.T;
 import scraper.api.template.TVisitor;
 import scraper.api.template.Term;
+import scraper.core.converter.StringToClassConverter.Converter;
 
 import java.util.Map;
 import java.util.Objects;
 
 import static scraper.api.template.T.rawType;
 import static scraper.core.converter.StringToClassConverter.convert;
+import static scraper.core.converter.StringToClassConverter.converterFor;
 
 public class TemplateMapLookup<K> extends TemplateExpression<K> implements MapLookup<K> {
 
@@ -22,6 +24,7 @@ public class TemplateMapLookup<K> extends TemplateExpression<K> implements MapLo
     private TemplateExpression<String> key;
     private final boolean isTypeVar;
     private String typevarsuffix = "";
+    private Converter converter;
 
     @Override
     public boolean isTypeVariable() {
@@ -51,6 +54,12 @@ public class TemplateMapLookup<K> extends TemplateExpression<K> implements MapLo
         return map.targetType.getTypeString() + (typevarsuffix.isEmpty() ? "" : "$"+this.typevarsuffix);
     }
 
+    @Override
+    void compile() {
+        converter = converterFor(rawType(targetType.get()));
+        super.compile();
+    }
+
     @SuppressWarnings("unchecked") // checked with map generics subtype relation
     public K eval(@NotNull final FlowMap o) {
         try {
@@ -62,7 +71,7 @@ public class TemplateMapLookup<K> extends TemplateExpression<K> implements MapLo
             if(mapElement == null)
                 throw new TemplateException("Key '"+k+"' does not exist for map access '" +toString() +"'. Map has only the keys " + m.keySet()+"");
 
-            return (K) convert(mapElement, rawType(targetType.get()));
+            return (K) (isCompiled() ? converter.convert(mapElement) : convert(mapElement, rawType(targetType.get())));
         } catch (Exception e) {
             throw new TemplateException(e, "Could not evaluate array/map lookup template '"+toString()+"'. " + e.getMessage());
         }
@@ -7,16 +7,21 @@ import scraper.api.template.Concatenation;
 import scraper.api.template.T;
 import scraper.api.template.TVisitor;
 import scraper.api.template.Term;
+import scraper.core.converter.StringToClassConverter.Converter;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 
 import static scraper.core.converter.StringToClassConverter.convert;
+import static scraper.core.converter.StringToClassConverter.converterFor;
 
 public class TemplateMixed extends TemplateExpression<String> implements Concatenation {
     @Override public <X> X accept(@NotNull TVisitor<X> visitor) { return visitor.visitConcatenation(this); }
     private final List<Term<String>> concatTemplatesOrStrings = new ArrayList<>();
+    // compiled concatenation, either folded strings or terms to evaluate
+    private Object[] parts;
+    private Converter converter;
 
     @NotNull
     @Override
@@ -37,7 +42,37 @@ public class TemplateMixed extends TemplateExpression<String> implements Concate
         return false;
     }
 
+    @Override
+    void compile() {
+        try {
+            Converter converter = converterFor(targetType.getRawType());
+            List<Object> parts = new ArrayList<>();
+            StringBuilder constant = null;
+
+            // fold adjacent constants
+            for (Term<String> term : concatTemplatesOrStrings) {
+                if (term instanceof TemplateConstant) {
+                    if (constant == null) constant = new StringBuilder();
+                    constant.append((String) converter.convert(((TemplateConstant<String>) term).eval()));
+                } else {
+                    if (constant != null) parts.add(constant.toString());
+                    constant = null;
+                    parts.add(term);
+                }
+            }
+            if (constant != null) parts.add(constant.toString());
+
+            this.converter = converter;
+            this.parts = parts.toArray();
+            super.compile();
+        } catch (Exception ignored) {
+            // not foldable, report error at evaluation time
+        }
+    }
+
     public String eval(@NotNull final FlowMap o) {
+        if (isCompiled()) return evalCompiled(o);
+
         try{
             StringBuilder lookup = new StringBuilder();
             for (Term<String> term : concatTemplatesOrStrings) {
@@ -51,6 +86,23 @@ public class TemplateMixed extends TemplateExpression<String> implements Concate
         }
     }
 
+    @SuppressWarnings("unchecked") // terms are string terms
+    private String evalCompiled(@NotNull final FlowMap o) {
+        if (parts.length == 1 && parts[0] instanceof String) return (String) parts[0];
+
+        try{
+            StringBuilder lookup = new StringBuilder();
+            for (Object part : parts) {
+                if (part instanceof String) lookup.append((String) part);
+                else lookup.append((String) converter.convert(((Term<String>) part).eval(o)));
+            }
+
+            return lookup.toString();
+        } catch (Exception e) {
+            throw new TemplateException("Could not evaluate template string '"+toString()+"'. "+ e.toString());
+        }
+    }
+
     @NotNull
     @Override
     public Object getRaw() {
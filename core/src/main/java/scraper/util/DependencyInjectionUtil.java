@@ -10,8 +10,10 @@ import scraper.api.plugin.NodeHook;
 import scraper.api.plugin.ScrapeSpecificationParser;
 import scraper.api.service.impl.ExecutorsServiceImpl;
 import scraper.api.service.impl.FileServiceImpl;
+import scraper.api.service.impl.HttpCacheImpl;
 import scraper.api.service.impl.HttpServiceImpl;
 import scraper.api.service.impl.ProxyReservationImpl;
+import scraper.core.FlowExecutor;
 import scraper.core.JobFactory;
 import scraper.core.PluginBean;
 
@@ -31,9 +33,11 @@ public class DependencyInjectionUtil {
         diContainer.addComponent(PluginBean.class);
         diContainer.addComponent(ExecutorsServiceImpl.class);
         diContainer.addComponent(HttpServiceImpl.class);
+        diContainer.addComponent(HttpCacheImpl.class);
         diContainer.addComponent(ProxyReservationImpl.class);
         diContainer.addComponent(FileServiceImpl.class);
 
+        diContainer.addComponent(FlowExecutor.class);
         diContainer.addComponent(JobFactory.class);
 
         try (ScanResult scanResult = new ClassGraph().enableClassInfo()
@@ -5,6 +5,7 @@ import scraper.annotations.NotNull;
 import scraper.annotations.node.Argument;
 import scraper.annotations.node.FlowKey;
 import scraper.api.exceptions.ValidationException;
+import scraper.api.flow.impl.FlowMapImpl;
 import scraper.api.node.Address;
 import scraper.api.node.GraphAddress;
 import scraper.api.node.NodeAddress;
@@ -15,11 +16,14 @@ import scraper.api.node.impl.InstanceAddressImpl;
 import scraper.api.node.impl.NodeAddressImpl;
 import scraper.api.node.type.Node;
 import scraper.api.specification.ScrapeInstance;
+import scraper.api.template.DefaultVisitor;
 import scraper.api.template.L;
+import scraper.api.template.Primitive;
 import scraper.api.template.T;
 import scraper.api.template.Term;
 import scraper.core.AbstractNode;
 import scraper.core.converter.StringToClassConverter;
+import scraper.core.template.TemplateCompiler;
 import scraper.core.template.TemplateConstant;
 import scraper.utils.ClassUtil;
 
@@ -60,38 +64,37 @@ public final class NodeUtil {
         return replaced;
     }
 
+    /** Absolute node address with label and index, e.g. instance.graph.label:0 */
+    private static final Pattern absoluteNodePattern = Pattern.compile("(\\w+\\.\\w+\\.)([\\w]+):(\\d+)");
+    /** Instance and optional graph prefix of an address */
+    private static final Pattern hashPrefixPattern = Pattern.compile("(\\w+)(\\.\\w+)?");
+
     public static boolean representationEquals(@NotNull String address1, @NotNull String address2) {
         if(address1.equalsIgnoreCase(address2)) return true;
 
-        Pattern p = Pattern.compile("(\\w+\\.\\w+\\.)([\\w]+):(\\d+)");
-
-        boolean a1isAbsolute = p.matcher(address1).results().findFirst().isPresent();
-        boolean a2isAbsolute = p.matcher(address2).results().findFirst().isPresent();
-
-        if (a1isAbsolute && test(address1, address2, p)) return true;
-        if (a2isAbsolute && test(address2, address1, p)) return true;
+        Matcher m1 = absoluteNodePattern.matcher(address1);
+        if (m1.find() && test(m1, address2)) return true;
+        Matcher m2 = absoluteNodePattern.matcher(address2);
+        if (m2.find() && test(m2, address1)) return true;
 
         return false;
     }
 
-    private static boolean test(@NotNull String address1, @NotNull String address2, Pattern p) {
-        Optional<String> onlyNodeRepresentation = p.matcher(address1).results().map(m -> m.group(1) + m.group(2)).findFirst();
-        if(onlyNodeRepresentation.isEmpty()) return false;
-        if(representationEquals(onlyNodeRepresentation.get(), address2)) return true;
-
-        Optional<String> onlyIndexRepresentation = p.matcher(address1).results().map(m -> m.group(1) + m.group(3)).findFirst();
-        if(onlyIndexRepresentation.isEmpty()) return false;
-        if(representationEquals(onlyIndexRepresentation.get(), address2)) return true;
+    private static boolean test(@NotNull Matcher absolute, @NotNull String address2) {
+        if(representationEquals(absolute.group(1) + absolute.group(2), address2)) return true;
+        if(representationEquals(absolute.group(1) + absolute.group(3), address2)) return true;
 
         return false;
     }
 
     public static int representationHashCode(String representation) {
-        Pattern p = Pattern.compile("(\\w+)(\\.\\w+)?(\\..*+)?");
-        assert p.matcher(representation).results().findFirst().isPresent();
+        Matcher m = hashPrefixPattern.matcher(representation);
+        boolean found = m.find();
+        assert found;
 
-        // only hash instance + graph or only instance
-        return Objects.hash(p.matcher(representation).results().findFirst().map(m -> m.group(1)).get());
+        // only hash instance + graph or only instance, case insensitive like equality
+        String prefix = (m.group(2) == null ? m.group(1) : m.group(1) + m.group(2));
+        return prefix.toLowerCase().hashCode();
     }
 
     @NotNull
@@ -122,6 +125,7 @@ public final class NodeUtil {
                 // initialize field
                 try { // ensure templated arguments
                     initField(instance, field, flowKey, ann, spec, initialArguments, globalConfigurations);
+                    compileTemplate(field.get(instance));
                 }
                 catch (Exception e) {
                     throw new ValidationException(e, "Could not initialize field " + field.getName()+": "+ e.getMessage() );
@@ -130,6 +134,15 @@ public final class NodeUtil {
 
         }
     }
+    /** Compiles the term of an initialized template field once, instead of walking the term on every evaluation */
+    private static void compileTemplate(Object fieldValue) {
+        if (fieldValue instanceof T && ((T<?>) fieldValue).getTerm() != null) {
+            TemplateCompiler.compile(((T<?>) fieldValue).getTerm());
+        } else if (fieldValue instanceof L && ((L<?>) fieldValue).getLocation() != null) {
+            TemplateCompiler.compile(((L<?>) fieldValue).getLocation());
+        }
+    }
+
     /**
      * Initializes a field with its actual value. If it is a template, its value is evaluated with the given map.
      * @param field Field of the node to initialize
@@ -400,6 +413,45 @@ public final class NodeUtil {
         return outputResult;
     }
 
+    /**
+     * Collects all statically known address targets of a field, i.e. a raw {@link Address} value or
+     * constant addresses inside a template
+     */
+    @NotNull
+    public static List<Address> getAddressTargets(@NotNull Field field, @NotNull Object node)
+            throws ValidationException, IllegalAccessException {
+        field.setAccessible(true);
+
+        // if just an Address.class target raw value of field
+        if (field.getType() == Address.class) {
+            Address address = (Address) field.get(node);
+            return (address == null ? List.of() : List.of(address));
+        }
+
+        // descend into template to get all Address.class targets
+        if (field.getType() == T.class) {
+            T<?> t = (T<?>) field.get(node);
+            if (t == null)
+                throw new ValidationException("Fix implementation, T<> " +
+                        "field was not created for " + node.getClass());
+
+            List<Address> targets = new LinkedList<>();
+            if (t.getTerm() != null) {
+                t.getTerm().accept(new DefaultVisitor<Void>() {
+                    @Override
+                    public Void visitPrimitive(@NotNull Primitive<?> primitive) {
+                        Object address = primitive.eval(new FlowMapImpl());
+                        if (address instanceof Address) targets.add((Address) address);
+                        return null;
+                    }
+                });
+            }
+            return targets;
+        }
+
+        return List.of();
+    }
+
     public static NodeContainer<? extends Node> getTarget(NodeAddress origin, Address goTo, ScrapeInstance jobInstance) {
         try {
             Optional<NodeContainer<? extends Node>> localTarget;
@@ -0,0 +1,52 @@
+package scraper.util;
+
+import scraper.annotations.NotNull;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared scheduler for holds and backoffs, delays do not block a thread.
+ * <p>
+ * Scheduled actions run on a single daemon thread and should be short,
+ * longer actions should be handed to an executor.
+ * Flows suspended on a delay are resumed by the executor of their node, never by the scheduler thread.
+ */
+public final class SchedulerUtil {
+
+    private static final @NotNull ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+        Thread t = new Thread(r, "scheduler");
+        t.setDaemon(true);
+        return t;
+    });
+    static {
+        scheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    private SchedulerUtil() {}
+
+    /** The shared scheduler */
+    @NotNull
+    public static ScheduledExecutorService getScheduler() { return scheduler; }
+
+    /**
+     * Future which completes after the given delay, completed already if the delay is not positive.
+     * The future is completed by the scheduler thread, dependent stages must not block.
+     */
+    @NotNull
+    public static CompletableFuture<Void> delay(long ms) {
+        if (ms <= 0) return CompletableFuture.completedFuture(null);
+
+        CompletableFuture<Void> delayed = new CompletableFuture<>();
+        scheduler.schedule(() -> delayed.complete(null), ms, TimeUnit.MILLISECONDS);
+        return delayed;
+    }
+
+    /** Runs the action after the given delay, runs it with the calling thread if the delay is not positive */
+    public static void schedule(@NotNull Runnable action, long ms) {
+        if (ms <= 0) action.run();
+        else scheduler.schedule(action, ms, TimeUnit.MILLISECONDS);
+    }
+}
@@ -9,10 +9,12 @@ import scraper.api.template.*;
 import scraper.core.exp.TemplateExpressionVisitor;
 import scraper.core.exp.TemplateLexer;
 import scraper.core.exp.TemplateParser;
+import scraper.core.template.TemplateCompiler;
 import scraper.core.template.TemplateConstant;
 import scraper.core.template.TemplateExpression;
 import scraper.core.template.TemplateList;
 import scraper.core.template.TemplateMap;
+import scraper.core.template.TemplateMapKey;
 
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
@@ -21,6 +23,8 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import static java.lang.System.Logger.Level.*;
 
@@ -29,6 +33,11 @@ public final class TemplateUtil {
 
     private static final System.Logger log = System.getLogger("TemplateUtil");
 
+    /** Upper bound of cached fm lookup terms per target type */
+    static final int MAX_CACHED_LOOKUPS = 4096;
+    private static final ConcurrentMap<String, Term<?>> objectLookups = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, Term<?>> variableLookups = new ConcurrentHashMap<>();
+
     // used to infer the type of complex args JSON expressions
     public static Term<?> inferTemplate(@NotNull final Object term) throws ValidationException {
         if (List.class.isAssignableFrom(term.getClass())) {
@@ -239,15 +248,43 @@ public final class TemplateUtil {
 
 
     public static T<?> templateOf(L<?> location) {
-        T<Object> t = new T<>(){};
-        t.setTerm(parseTemplate("{"+location.getLocation().getRaw()+"}", new T<>(){}));
-        return t;
+        return T.of(lookupOf(location.getLocation().getRaw().toString(), objectLookups, new T<Object>(){}));
     }
 
     public static <A> T<A> templateOf(String location) {
-        T<A> t = new T<>(){};
-        t.setTerm(parseTemplate("{"+location+"}", new T<>(){}));
-        return t;
+        return T.of(lookupOf(location, variableLookups, new T<A>(){}));
+    }
+
+    /**
+     * Returns the cached fm lookup term of the given key, parsing it on a cache miss.
+     * Simple keys without template syntax are converted directly without invoking the parser.
+     */
+    @SuppressWarnings("unchecked") // cache is bound to the target type
+    private static <A> Term<A> lookupOf(@NotNull String key, @NotNull ConcurrentMap<String, Term<?>> cache, @NotNull T<A> targetType) {
+        Term<?> term = cache.get(key);
+        if (term == null) {
+            term = (isPlainKey(key)
+                    ? new TemplateMapKey<>(new TemplateConstant<>(key, new T<String>(){}), targetType, targetType.get() instanceof TypeVariable)
+                    : parseTemplate("{" + key + "}", targetType));
+            TemplateCompiler.compile(term);
+
+            // keys are usually static, a cache overflow indicates dynamic keys; start over instead of tracking recency
+            if (cache.size() >= MAX_CACHED_LOOKUPS) cache.clear();
+            Term<?> previous = cache.putIfAbsent(key, term);
+            if (previous != null) term = previous;
+        }
+        return (Term<A>) term;
+    }
+
+    private static boolean isPlainKey(@NotNull String key) {
+        if (key.isEmpty()) return false;
+        for (int i = 0; i < key.length(); i++) {
+            switch (key.charAt(i)) {
+                case '{': case '}': case '[': case ']': case '^': case '@': case '\\': return false;
+                default:
+            }
+        }
+        return true;
     }
 
     public static <A> L<A> locationOf(String loc) {
@@ -0,0 +1,107 @@
+package scraper.api.flow.impl;
+
+import org.junit.jupiter.api.Test;
+import scraper.api.flow.FlowMap;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PersistentConcurrentMapTest {
+
+    /** Keys with colliding hash codes */
+    private static final class Colliding {
+        private final int id;
+        Colliding(int id) { this.id = id; }
+        @Override public int hashCode() { return 42; }
+        @Override public boolean equals(Object o) { return o instanceof Colliding && ((Colliding) o).id == id; }
+    }
+
+    @Test
+    public void behavesLikeHashMapTest() {
+        Map<Integer, Integer> expected = new HashMap<>();
+        PersistentConcurrentMap<Integer, Integer> actual = new PersistentConcurrentMap<>();
+
+        Random random = new Random(7);
+        for (int i = 0; i < 20000; i++) {
+            int key = random.nextInt(3000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), actual.remove(key));
+            } else {
+                assertEquals(expected.put(key, i), actual.put(key, i));
+            }
+        }
+
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected, actual);
+        assertEquals(expected.hashCode(), actual.hashCode());
+    }
+
+    @Test
+    public void snapshotIsIndependentTest() {
+        PersistentConcurrentMap<String, Object> map = new PersistentConcurrentMap<>(Map.of("a", 1, "b", 2));
+        PersistentConcurrentMap<String, Object> copy = map.snapshot();
+
+        copy.put("a", 3);
+        copy.remove("b");
+        copy.put("c", 4);
+
+        assertEquals(Map.of("a", 1, "b", 2), map);
+        assertEquals(Map.of("a", 3, "c", 4), copy);
+    }
+
+    @Test
+    public void hashCollisionsTest() {
+        PersistentConcurrentMap<Colliding, Integer> map = new PersistentConcurrentMap<>();
+        for (int i = 0; i < 10; i++) map.put(new Colliding(i), i);
+
+        assertEquals(10, map.size());
+        assertEquals(5, (int) map.get(new Colliding(5)));
+
+        map.put(new Colliding(5), 50);
+        assertEquals(50, (int) map.get(new Colliding(5)));
+
+        for (int i = 0; i < 10; i++) map.remove(new Colliding(i));
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void concurrentMapOperationsTest() {
+        PersistentConcurrentMap<String, Integer> map = new PersistentConcurrentMap<>();
+
+        assertNull(map.putIfAbsent("a", 1));
+        assertEquals(1, (int) map.putIfAbsent("a", 2));
+        assertFalse(map.replace("a", 2, 3));
+        assertTrue(map.replace("a", 1, 3));
+        assertEquals(3, (int) map.replace("a", 4));
+        assertFalse(map.remove("a", 3));
+        assertTrue(map.remove("a", 4));
+        assertNull(map.replace("a", 5));
+
+        assertThrows(NullPointerException.class, () -> map.put(null, 1));
+        assertThrows(NullPointerException.class, () -> map.put("a", null));
+    }
+
+    @Test
+    public void iteratorRemoveTest() {
+        PersistentConcurrentMap<String, Integer> map = new PersistentConcurrentMap<>(Map.of("a", 1, "b", 2, "c", 3));
+        map.entrySet().removeIf(e -> e.getValue() > 1);
+
+        assertEquals(Map.of("a", 1), map);
+    }
+
+    @Test
+    public void persistentFlowCopyTest() {
+        FlowMapImpl o = (FlowMapImpl) FlowMapImpl.persistentOrigin(Map.of("list", List.of(1, 2)));
+        FlowMapImpl copy = (FlowMapImpl) o.copy();
+        copy.output("element", 1);
+
+        assertTrue(copy.getPrivateMap() instanceof PersistentConcurrentMap);
+        assertNull(o.getPrivateMap().get("element"));
+        assertEquals(1, copy.getPrivateMap().get("element"));
+        assertEquals(o.getId(), copy.getId());
+
+        FlowMap newFlow = copy.newFlow();
+        assertEquals(copy.getId(), newFlow.getParentId().orElseThrow());
+    }
+}
@@ -0,0 +1,44 @@
+package scraper.api.flow.impl;
+
+import org.junit.jupiter.api.Test;
+import scraper.api.flow.FlowMap;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SequentialFlowIdGeneratorTest {
+
+    @Test
+    public void uniqueIdsAcrossThreadsTest() throws Exception {
+        FlowIdGenerator ids = new SequentialFlowIdGenerator();
+        Set<UUID> all = ConcurrentHashMap.newKeySet();
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(pool.submit(() -> { for (int i = 0; i < 5000; i++) all.add(ids.newId()); }));
+        }
+        for (Future<?> future : futures) future.get();
+        pool.shutdown();
+
+        assertEquals(8 * 5000, all.size());
+    }
+
+    @Test
+    public void newFlowKeepsParentContractTest() {
+        FlowIdGenerator ids = new SequentialFlowIdGenerator();
+        FlowMap origin = FlowMapImpl.origin(Map.of(), ids);
+        origin.nextSequence();
+
+        FlowMap child = origin.newFlow();
+        assertNotEquals(origin.getId(), child.getId());
+        assertEquals(origin.getId(), child.getParentId().orElseThrow());
+        assertEquals(1, (int) child.getParentSequence().orElseThrow());
+        assertEquals(origin.getId(), origin.copy().getId());
+
+        FlowMap grandChild = child.newFlow();
+        assertEquals(child.getId(), grandChild.getParentId().orElseThrow());
+    }
+}
@@ -6,6 +6,7 @@ import scraper.api.node.impl.InstanceAddressImpl;
 import scraper.api.node.impl.NodeAddressImpl;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static scraper.util.NodeUtil.addressOf;
 
@@ -102,6 +103,24 @@ public class AddressTest {
         );
     }
 
+    @Test
+    public void nodeAddressLabelAndIndexHashTest() {
+        NodeAddressImpl node = new NodeAddressImpl("debug", "graph", "node", 3);
+
+        assertEquals(node, addressOf("debug.graph.3"));
+        assertEquals(node.hashCode(), addressOf("debug.graph.3").hashCode());
+        assertEquals(node.hashCode(), addressOf("DEBUG.Graph.node").hashCode());
+        assertEquals(node, addressOf("DEBUG.Graph.node"));
+    }
+
+    @Test
+    public void graphsHashDifferentlyTest() {
+        assertNotEquals(
+                new NodeAddressImpl("debug", "graph", "node", 0).hashCode(),
+                new NodeAddressImpl("debug", "other", "node", 0).hashCode()
+        );
+    }
+
     // label and index together is only allowed for NodeAddress
     @Test
     public void forbidInferringLabelAndIndexRelationTest() {
@@ -0,0 +1,65 @@
+package scraper.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FlowTrackerTest {
+
+    @Test
+    public void quiescentAfterAllFlowsFinishedTest() throws Exception {
+        FlowTracker flows = new FlowTracker();
+        assertTrue(flows.awaitQuiescence(Duration.ZERO));
+        assertNull(flows.getFirstStarted());
+
+        flows.started();
+        flows.started();
+        CountDownLatch first = new CountDownLatch(1);
+        Thread worker = new Thread(() -> {
+            flows.finished();
+            first.countDown();
+            try { Thread.sleep(50); } catch (InterruptedException ignored) {}
+            flows.finished();
+        });
+        worker.start();
+
+        first.await();
+        assertTrue(flows.awaitQuiescence(Duration.ofSeconds(5)));
+        assertEquals(0L, flows.getInFlight());
+        assertEquals(2L, flows.getTotal());
+        assertNotNull(flows.getFirstStarted());
+        assertFalse(flows.getLastQuiescent().isBefore(flows.getFirstStarted()));
+        worker.join();
+    }
+
+    @Test
+    public void awaitTimesOutWhileFlowsRunTest() throws Exception {
+        FlowTracker flows = new FlowTracker();
+        flows.started();
+        assertFalse(flows.awaitQuiescence(Duration.ofMillis(20)));
+        assertEquals(1L, flows.getInFlight());
+        assertNull(flows.getLastQuiescent());
+
+        assertFalse(flows.isDraining());
+        flows.drain();
+        assertTrue(flows.isDraining());
+    }
+
+    @Test
+    public void quiescenceTimeIsSetWhenAwaitReturnsTest() throws Exception {
+        FlowTracker flows = new FlowTracker();
+        for (int i = 0; i < 1000; i++) {
+            flows.started();
+            Thread worker = new Thread(flows::finished);
+            worker.start();
+            flows.awaitQuiescence();
+            assertNotNull(flows.getLastQuiescent());
+            worker.join();
+        }
+
+        assertThrows(IllegalStateException.class, flows::finished);
+    }
+}
@@ -0,0 +1,106 @@
+package scraper.core;
+
+import org.junit.jupiter.api.Test;
+import scraper.api.flow.FlowMap;
+import scraper.api.flow.impl.FlowMapImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ForkedFlowTest {
+
+    @Test
+    public void joinRunsQueuedFlowInlineTest() {
+        // executor which never runs anything
+        BlockingQueue<Runnable> queue = new LinkedBlockingQueue<>();
+        Executor stuck = queue::add;
+
+        AtomicInteger runs = new AtomicInteger();
+        FlowMap result = FlowMapImpl.origin();
+        ForkedFlow forked = ForkedFlow.fork(() -> { runs.incrementAndGet(); return result; }, stuck);
+
+        assertSame(result, forked.join());
+        assertEquals(1, runs.get());
+
+        // the queued task does not run the flow again
+        queue.poll().run();
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    public void joinAllWithSingleThreadTest() throws Exception {
+        ExecutorService single = Executors.newSingleThreadExecutor();
+        try {
+            // the only thread forks into its own executor and joins
+            FlowMap result = single.submit(() -> {
+                List<ForkedFlow> forks = List.of(
+                        ForkedFlow.fork(FlowMapImpl::origin, single),
+                        ForkedFlow.fork(FlowMapImpl::origin, single)
+                );
+                ForkedFlow.joinAll(forks);
+                return forks.get(1).get();
+            }).get(5, TimeUnit.SECONDS);
+            assertNotNull(result);
+        } finally {
+            single.shutdownNow();
+        }
+    }
+
+    @Test
+    public void cancelledFlowIsNeverRunTest() {
+        BlockingQueue<Runnable> queue = new LinkedBlockingQueue<>();
+        Executor stuck = queue::add;
+
+        AtomicInteger runs = new AtomicInteger();
+        ForkedFlow queued = ForkedFlow.fork(() -> { runs.incrementAndGet(); return FlowMapImpl.origin(); }, stuck);
+        ForkedFlow started = ForkedFlow.fork(() -> { runs.incrementAndGet(); return FlowMapImpl.origin(); }, stuck);
+        started.join();
+
+        assertTrue(queued.cancel(false));
+        assertTrue(queued.isCancelled());
+        assertFalse(started.cancel(false));
+        assertFalse(started.isCancelled());
+
+        queue.forEach(Runnable::run);
+        assertFalse(queued.tryRunInline());
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    public void exceptionalFlowTest() {
+        ForkedFlow forked = ForkedFlow.fork(() -> { throw new IllegalStateException("bad"); }, Runnable::run);
+        CompletionException e = assertThrows(CompletionException.class, forked::join);
+        assertTrue(e.getCause() instanceof IllegalStateException);
+        assertThrows(ExecutionException.class, forked::get);
+    }
+
+    @Test
+    public void forkAllRunsBatchesOnSingleThreadTest() throws Exception {
+        BlockingQueue<Runnable> queue = new LinkedBlockingQueue<>();
+        Executor queued = queue::add;
+
+        List<Thread> threads = new CopyOnWriteArrayList<>();
+        List<Supplier<FlowMap>> flows = new ArrayList<>();
+        for (int i = 0; i < 10; i++) flows.add(() -> { threads.add(Thread.currentThread()); return FlowMapImpl.origin(); });
+
+        List<ForkedFlow> forked = ForkedFlow.forkAll(flows, queued, 4);
+        assertEquals(10, forked.size());
+        assertEquals(3, queue.size());
+
+        // joined before its batch started
+        forked.get(9).join();
+        assertEquals(1, threads.size());
+
+        Thread worker = new Thread(() -> queue.forEach(Runnable::run));
+        worker.start();
+        worker.join();
+        forked.forEach(CompletableFuture::join);
+        assertEquals(10, threads.size());
+        assertEquals(9, threads.stream().filter(t -> t != Thread.currentThread()).count());
+    }
+}
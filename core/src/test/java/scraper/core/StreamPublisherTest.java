@@ -0,0 +1,86 @@
+package scraper.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StreamPublisherTest {
+
+    private static class Recorder implements Flow.Subscriber<Integer> {
+        final List<Integer> received = new CopyOnWriteArrayList<>();
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        volatile Flow.Subscription subscription;
+        volatile boolean complete = false;
+        volatile CountDownLatch expected = new CountDownLatch(0);
+
+        /** Waits until the given number of further items was received */
+        boolean await(int items, Runnable trigger) throws InterruptedException {
+            expected = new CountDownLatch(items);
+            trigger.run();
+            return expected.await(5, TimeUnit.SECONDS);
+        }
+
+        @Override public void onSubscribe(Flow.Subscription subscription) { this.subscription = subscription; subscription.request(2); }
+        @Override public void onNext(Integer item) { received.add(item); expected.countDown(); }
+        @Override public void onError(Throwable throwable) { error.set(throwable); }
+        @Override public void onComplete() { complete = true; }
+    }
+
+    @Test
+    public void producerWaitsForDemandTest() throws Exception {
+        StreamPublisher<Integer> publisher = new StreamPublisher<>(() -> false);
+        Recorder recorder = new Recorder();
+        publisher.subscribe(recorder);
+
+        Thread producer = new Thread(() -> {
+            try {
+                for (int i = 0; i < 5; i++) publisher.publish(i);
+                publisher.complete();
+            } catch (InterruptedException ignored) {}
+        });
+        assertTrue(recorder.await(2, producer::start));
+
+        // the producer waits for demand instead of publishing the third item
+        while (producer.getState() != Thread.State.TIMED_WAITING) Thread.onSpinWait();
+        assertEquals(List.of(0, 1), recorder.received);
+        assertTrue(producer.isAlive());
+
+        assertTrue(recorder.await(3, () -> recorder.subscription.request(3)));
+        producer.join(5000);
+        assertEquals(List.of(0, 1, 2, 3, 4), recorder.received);
+        assertTrue(recorder.complete);
+    }
+
+    @Test
+    public void helpRunsWhileWaitingTest() throws Exception {
+        Recorder recorder = new Recorder();
+        // the producer itself creates the demand it waits for
+        StreamPublisher<Integer> publisher = new StreamPublisher<>(() -> { recorder.subscription.request(1); return true; });
+        publisher.subscribe(recorder);
+
+        for (int i = 0; i < 10; i++) assertTrue(publisher.publish(i));
+        assertEquals(10, recorder.received.size());
+    }
+
+    @Test
+    public void cancelledAndSecondSubscriberTest() throws Exception {
+        StreamPublisher<Integer> publisher = new StreamPublisher<>(() -> false);
+        Recorder recorder = new Recorder();
+        publisher.subscribe(recorder);
+
+        Recorder second = new Recorder();
+        publisher.subscribe(second);
+        assertTrue(second.error.get() instanceof IllegalStateException);
+
+        recorder.subscription.cancel();
+        assertFalse(publisher.publish(1));
+        assertTrue(recorder.received.isEmpty());
+    }
+}
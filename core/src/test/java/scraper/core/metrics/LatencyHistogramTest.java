@@ -0,0 +1,42 @@
+package scraper.core.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketsCoverAllValuesTest() {
+        long[] values = {0, 1, 7, 8, 9, 15, 16, 17, 1000, 123456789, Long.MAX_VALUE};
+        for (long value : values) {
+            int index = LatencyHistogram.indexOf(value);
+            long upper = LatencyHistogram.upperBoundOf(index);
+            assertTrue(upper >= value, "Bucket of " + value);
+            // relative error is bounded by the sub-bucket width
+            assertTrue(upper - value <= value / 8, "Error of " + value);
+        }
+    }
+
+    @Test
+    public void quantilesTest() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0L, histogram.quantile(0.5));
+
+        for (int i = 1; i <= 1000; i++) histogram.record(i);
+        assertEquals(1000L, histogram.count());
+
+        long median = histogram.quantile(0.5);
+        assertTrue(median >= 500 && median <= 500 * 9 / 8, "Median " + median);
+        long max = histogram.quantile(1);
+        assertTrue(max >= 1000 && max <= 1000 * 9 / 8, "Max " + max);
+        assertEquals(1L, histogram.quantile(0));
+    }
+
+    @Test
+    public void negativeValuesAreRecordedAsZeroTest() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        assertEquals(0L, histogram.quantile(1));
+    }
+}
@@ -0,0 +1,99 @@
+package scraper.core.template;
+
+import org.junit.jupiter.api.Test;
+import scraper.api.exceptions.TemplateException;
+import scraper.api.flow.FlowMap;
+import scraper.api.flow.impl.FlowMapImpl;
+import scraper.api.template.T;
+import scraper.api.template.Term;
+import scraper.util.TemplateUtil;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TemplateCompilerTest {
+
+    private final FlowMap o = FlowMapImpl.origin(Map.of(
+            "hello", "world",
+            "int", 42,
+            "pointer", "hello",
+            "list", List.of(1, 2, 3),
+            "map", Map.of("x", "1", "y", "null")
+    ));
+
+    private <K> void assertSameResult(Object template, T<K> type) throws Exception {
+        Term<K> interpreted = TemplateUtil.parseTemplate(template, type);
+        Term<K> compiled = TemplateCompiler.compile(TemplateUtil.parseTemplate(template, type));
+        assertEquals(interpreted.eval(o), compiled.eval(o), "Template " + template);
+        assertEquals(interpreted, compiled);
+    }
+
+    @Test
+    public void compiledTermsEvaluateLikeInterpretedTerms() throws Exception {
+        assertSameResult("hello world", new T<String>(){});
+        assertSameResult("null", new T<String>(){});
+        assertSameResult("42", new T<Integer>(){});
+        assertSameResult("true", new T<Boolean>(){});
+        assertSameResult("{hello}", new T<String>(){});
+        assertSameResult("{{pointer}}", new T<String>(){});
+        assertSameResult("{hello} and {int}!", new T<String>(){});
+        assertSameResult("{{list}}[1]", new T<Integer>(){});
+        assertSameResult("{{list}}[-1]", new T<Long>(){});
+        assertSameResult("{{map}@x}", new T<Integer>(){});
+        assertSameResult("{{map}@y}", new T<String>(){});
+        assertSameResult(List.of("{hello}", "a"), new T<List<String>>(){});
+        assertSameResult(Map.of("a", "{int}", "b", "1"), new T<Map<String, Integer>>(){});
+    }
+
+    @Test
+    public void constantsAreConvertedOnce() {
+        Term<Integer> constant = TemplateCompiler.compile(TemplateUtil.parseTemplate("4242", new T<>(){}));
+        assertSame(constant.eval(o), constant.eval(o));
+        assertEquals(4242, (int) constant.eval(o));
+    }
+
+    @Test
+    public void adjacentConstantsAreFolded() {
+        TemplateMixed mixed = new TemplateMixed();
+        mixed.addTemplateOrString(new TemplateConstant<>("a", new T<>(){}));
+        mixed.addTemplateOrString(new TemplateConstant<>("null", new T<>(){}));
+        mixed.addTemplateOrString(TemplateUtil.parseTemplate("{hello}", new T<>(){}));
+        mixed.addTemplateOrString(new TemplateConstant<>("b", new T<>(){}));
+
+        String interpreted = mixed.eval(o);
+        TemplateCompiler.compile(mixed);
+        assertEquals(interpreted, mixed.eval(o));
+        assertEquals("anullworldb", mixed.eval(o));
+
+        TemplateMixed constant = new TemplateMixed();
+        constant.addTemplateOrString(new TemplateConstant<>("a", new T<>(){}));
+        constant.addTemplateOrString(new TemplateConstant<>("b", new T<>(){}));
+        TemplateCompiler.compile(constant);
+        assertSame(constant.eval(o), constant.eval(o));
+    }
+
+    @Test
+    public void badConstantFailsAtEvaluation() {
+        Term<Integer> constant = TemplateCompiler.compile(TemplateUtil.parseTemplate("no number", new T<>(){}));
+        assertThrows(TemplateException.class, () -> constant.eval(o));
+    }
+
+    @Test
+    public void missingKeyFailsAfterCompilation() {
+        Term<String> key = TemplateCompiler.compile(TemplateUtil.parseTemplate("{missing}", new T<>(){}));
+        assertThrows(TemplateException.class, () -> key.eval(o));
+    }
+
+    @Test
+    public void changedTokenInvalidatesCompilation() {
+        Term<Object> constant = TemplateCompiler.compile(TemplateUtil.parseTemplate("42", new T<>(){}));
+        assertEquals("42", constant.eval(o));
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Term<Integer> retyped = (Term) constant;
+        retyped.setToken(new T<>(){});
+        assertEquals(42, (int) retyped.eval(o));
+    }
+}
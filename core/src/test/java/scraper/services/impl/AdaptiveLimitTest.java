@@ -0,0 +1,149 @@
+package scraper.services.impl;
+
+import org.junit.jupiter.api.Test;
+import scraper.api.service.impl.AdaptiveExecutorService;
+import scraper.api.service.impl.AdaptiveLimit;
+import scraper.api.flow.FlowMap;
+import scraper.api.service.impl.ExecutorsServiceImpl;
+import scraper.core.ForkedFlow;
+
+import java.time.Duration;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdaptiveLimitTest {
+
+    @Test
+    public void fastFlowsIncreaseLimitTest() {
+        AdaptiveLimit limit = new AdaptiveLimit(1, 20, 4);
+        for (int i = 0; i < 1000; i++) limit.onSample(1000, false, limit.getLimit());
+        assertEquals(20, limit.getLimit());
+
+        // unused limit does not grow
+        AdaptiveLimit idle = new AdaptiveLimit(1, 20, 4);
+        for (int i = 0; i < 1000; i++) idle.onSample(1000, false, 1);
+        assertEquals(4, idle.getLimit());
+    }
+
+    @Test
+    public void failuresAndSlowFlowsDecreaseLimitTest() {
+        AdaptiveLimit failing = new AdaptiveLimit(2, 100, 50);
+        for (int i = 0; i < 1000; i++) failing.onSample(1000, true, 50);
+        assertEquals(2, failing.getLimit());
+
+        AdaptiveLimit slow = new AdaptiveLimit(2, 100, 50);
+        for (int i = 0; i < 100; i++) slow.onSample(1000, false, 50);
+        int before = slow.getLimit();
+        slow.onSample(100_000, false, 50);
+        assertTrue(slow.getLimit() < before);
+
+        // at most one decrease per limit many flows
+        int after = slow.getLimit();
+        slow.onSample(100_000, false, 50);
+        assertEquals(after, slow.getLimit());
+    }
+
+    @Test
+    public void badBoundsTest() {
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveLimit(0, 10, 1));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveLimit(5, 4, 1));
+        assertThrows(IllegalArgumentException.class, () -> new ExecutorsServiceImpl().setAdaptive("group", 5, 4));
+        assertEquals(5, new AdaptiveLimit(5, 10, 1).getLimit());
+    }
+
+    @Test
+    public void adaptiveGroupTest() throws Exception {
+        ExecutorsServiceImpl executors = new ExecutorsServiceImpl();
+        executors.setAdaptive("http", 1, 0);
+
+        ExecutorService http = executors.getService("job", "http", 3);
+        assertTrue(http instanceof AdaptiveExecutorService);
+        assertEquals(3, ((AdaptiveExecutorService) http).getLimit());
+
+        CompletableFuture<String> failed = CompletableFuture.supplyAsync(() -> { throw new IllegalStateException(); }, http);
+        assertThrows(CompletionException.class, failed::join);
+        assertEquals("ok", CompletableFuture.supplyAsync(() -> "ok", http).get(1, TimeUnit.SECONDS));
+
+        assertTrue(executors.shutdown("job", Duration.ofSeconds(1)));
+        assertEquals(0, ((AdaptiveExecutorService) http).getInFlight());
+    }
+
+    @Test
+    public void suspendedFlowsHoldTheirSlotTest() throws Exception {
+        AdaptiveExecutorService executor = new AdaptiveExecutorService(Executors.newCachedThreadPool(), new AdaptiveLimit(2, 2, 2));
+        try {
+            CompletableFuture<FlowMap> first = new CompletableFuture<>();
+            CompletableFuture<FlowMap> second = new CompletableFuture<>();
+
+            ForkedFlow a = ForkedFlow.forkAsync(() -> first, executor);
+            ForkedFlow b = ForkedFlow.forkAsync(() -> second, executor);
+            while (a.getStarted() == 0 || b.getStarted() == 0) Thread.sleep(1);
+            assertEquals(2, executor.getInFlight());
+
+            // both flows are suspended, a third flow waits for a slot
+            CountDownLatch thirdRan = new CountDownLatch(1);
+            CompletableFuture<ForkedFlow> third = new CompletableFuture<>();
+            Thread submitter = new Thread(() -> third.complete(ForkedFlow.forkAsync(() -> {
+                thirdRan.countDown();
+                return CompletableFuture.completedFuture(null);
+            }, executor)));
+            submitter.start();
+            while (submitter.getState() != Thread.State.TIMED_WAITING) Thread.onSpinWait();
+            assertEquals(1, thirdRan.getCount());
+            assertFalse(third.isDone());
+
+            first.complete(null);
+            assertTrue(thirdRan.await(1, TimeUnit.SECONDS));
+            third.get(1, TimeUnit.SECONDS).get(1, TimeUnit.SECONDS);
+            second.completeExceptionally(new IllegalStateException());
+            assertThrows(ExecutionException.class, b::get);
+
+            while (executor.getInFlight() > 0) Thread.sleep(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void flowsFailingAfterSuspensionDecreaseLimitTest() {
+        AdaptiveExecutorService executor = new AdaptiveExecutorService(Executors.newCachedThreadPool(), new AdaptiveLimit(1, 10, 10));
+
+        try {
+            for (int i = 0; i < 100; i++) {
+                ForkedFlow failing = ForkedFlow.forkAsync(() -> CompletableFuture.<FlowMap>supplyAsync(() -> {
+                    throw new IllegalStateException();
+                }), executor);
+                assertThrows(CompletionException.class, failing::join);
+            }
+
+            assertEquals(1, executor.getLimit());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void flowsRunByJoiningThreadLeaveTheQueueTest() throws Exception {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+        AdaptiveExecutorService executor = new AdaptiveExecutorService(pool, new AdaptiveLimit(2, 2, 2));
+
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            executor.execute(() -> { try { release.await(); } catch (InterruptedException ignored) {} });
+            ForkedFlow queued = ForkedFlow.forkAsync(() -> CompletableFuture.completedFuture(null), executor);
+            assertEquals(1, pool.getQueue().size());
+
+            // run by the joining thread, the queued task and its slot are freed
+            assertTrue(queued.tryRunInline());
+            assertTrue(pool.getQueue().isEmpty());
+            assertEquals(1, executor.getInFlight());
+
+            release.countDown();
+            while (executor.getInFlight() > 0) Thread.sleep(1);
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+}
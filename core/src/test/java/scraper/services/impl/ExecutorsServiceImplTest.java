@@ -0,0 +1,197 @@
+package scraper.services.impl;
+
+import org.junit.jupiter.api.Test;
+import scraper.api.flow.FlowMap;
+import scraper.api.service.impl.ExecutorsServiceImpl;
+import scraper.api.service.impl.LimitedExecutorService;
+import scraper.core.ForkedFlow;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExecutorsServiceImplTest {
+
+    @Test
+    public void sameGroupSameServiceTest() {
+        ExecutorsServiceImpl executors = new ExecutorsServiceImpl();
+        ExecutorService a = executors.getService("job", "group", 2);
+        assertSame(a, executors.getService("job", "group", 2));
+        assertNotSame(a, executors.getService("job", "other", 2));
+        assertNotSame(a, executors.getService("job2", "group", 2));
+    }
+
+    @Test
+    public void virtualModeRunsFlowsTest() throws Exception {
+        ExecutorsServiceImpl executors = new ExecutorsServiceImpl();
+        executors.setMode("io", ExecutorsServiceImpl.Mode.VIRTUAL);
+
+        // falls back to platform threads if the runtime has no virtual threads
+        ExecutorService io = executors.getService("job", "io", 4);
+        assertEquals("done", io.submit(() -> "done").get(1, TimeUnit.SECONDS));
+        assertFalse(executors.getService("job", "cpu", 4) instanceof LimitedExecutorService);
+    }
+
+    @Test
+    public void limitBoundsConcurrentTasksTest() throws Exception {
+        LimitedExecutorService limited = new LimitedExecutorService(Executors.newCachedThreadPool(), 3);
+
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(30);
+        for (int i = 0; i < 30; i++) {
+            limited.execute(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try { Thread.sleep(5); } catch (InterruptedException ignored) {}
+                running.decrementAndGet();
+                done.countDown();
+            });
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(maxRunning.get() <= 3, "Running concurrently: " + maxRunning.get());
+        limited.shutdown();
+        assertTrue(limited.awaitTermination(1, TimeUnit.SECONDS));
+        assertEquals(3, limited.getAvailablePermits());
+    }
+
+    @Test
+    public void suspendedFlowsHoldTheirPermitTest() throws Exception {
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        LimitedExecutorService limited = new LimitedExecutorService(pool, 1);
+        CompletableFuture<FlowMap> suspended = new CompletableFuture<>();
+
+        ForkedFlow flow = ForkedFlow.forkAsync(() -> suspended, limited);
+        // runs on the single thread after the flow was suspended
+        CountDownLatch flowRan = new CountDownLatch(1);
+        pool.execute(flowRan::countDown);
+        assertTrue(flowRan.await(1, TimeUnit.SECONDS));
+        assertEquals(0, limited.getAvailablePermits());
+
+        suspended.complete(null);
+        flow.get(1, TimeUnit.SECONDS);
+        assertEquals(1, limited.getAvailablePermits());
+        limited.shutdown();
+    }
+
+    @Test
+    public void rejectedTaskReleasesPermitTest() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ThreadPoolExecutor perTask = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new SynchronousQueue<>());
+        LimitedExecutorService limited = new LimitedExecutorService(perTask, 2);
+
+        limited.execute(() -> { try { release.await(); } catch (InterruptedException ignored) {} });
+        assertThrows(RejectedExecutionException.class, () -> limited.execute(() -> {}));
+        assertEquals(1, limited.getAvailablePermits());
+
+        release.countDown();
+        perTask.shutdown();
+        assertTrue(perTask.awaitTermination(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void shutdownRunsTasksInlineTest() {
+        ExecutorService perTask = Executors.newCachedThreadPool();
+        LimitedExecutorService limited = new LimitedExecutorService(perTask, 1);
+        perTask.shutdown();
+
+        AtomicInteger runs = new AtomicInteger();
+        limited.execute(runs::incrementAndGet);
+        assertEquals(1, runs.get());
+        assertEquals(1, limited.getAvailablePermits());
+    }
+
+    @Test
+    public void concurrentLookupCreatesOneServiceTest() throws Exception {
+        ExecutorsServiceImpl executors = new ExecutorsServiceImpl();
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<ExecutorService>> lookups = new ArrayList<>();
+            for (int i = 0; i < 64; i++) lookups.add(callers.submit(() -> executors.getService("job", "group", 2)));
+
+            ExecutorService first = lookups.get(0).get();
+            for (Future<ExecutorService> lookup : lookups) assertSame(first, lookup.get());
+        } finally {
+            callers.shutdown();
+        }
+    }
+
+    @Test
+    public void shutdownWaitsForRunningFlowsTest() throws Exception {
+        ExecutorsServiceImpl executors = new ExecutorsServiceImpl();
+        ExecutorService pool = executors.getService("job", "group", 2);
+
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicInteger forked = new AtomicInteger();
+        pool.execute(() -> {
+            started.countDown();
+            try { Thread.sleep(50); } catch (InterruptedException ignored) {}
+            // forks of a running flow still complete after shutdown
+            pool.execute(forked::incrementAndGet);
+        });
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+
+        assertTrue(executors.shutdown("job", Duration.ofSeconds(5)));
+        assertTrue(pool.isTerminated());
+        assertEquals(1, forked.get());
+
+        // a new service is created for later runs of the job
+        assertNotSame(pool, executors.getService("job", "group", 2));
+        assertTrue(executors.shutdown("unknown", Duration.ZERO));
+    }
+
+    @Test
+    public void shutdownNowDoesNotWaitForRunningFlowsTest() throws Exception {
+        ExecutorsServiceImpl executors = new ExecutorsServiceImpl();
+        ExecutorService pool = executors.getService("job", "group", 1);
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        AtomicInteger queued = new AtomicInteger();
+        pool.execute(() -> {
+            started.countDown();
+            try { Thread.sleep(10_000); } catch (InterruptedException e) { interrupted.countDown(); }
+        });
+        pool.execute(queued::incrementAndGet);
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+
+        executors.shutdownNow("job");
+        assertTrue(pool.isShutdown());
+        assertTrue(interrupted.await(1, TimeUnit.SECONDS));
+        assertTrue(pool.awaitTermination(1, TimeUnit.SECONDS));
+        assertEquals(0, queued.get());
+
+        assertNotSame(pool, executors.getService("job", "group", 1));
+        executors.shutdownNow("unknown");
+    }
+
+    @Test
+    public void resumeDoesNotBlockOnSaturatedExecutorTest() throws Exception {
+        ExecutorsServiceImpl executors = new ExecutorsServiceImpl();
+        ExecutorService pool = executors.getService("job", "group", 1);
+
+        // one running and one queued flow saturate the executor
+        CountDownLatch release = new CountDownLatch(1);
+        pool.execute(() -> { try { release.await(); } catch (InterruptedException ignored) {} });
+        pool.execute(() -> {});
+
+        CompletableFuture<String> resumed = new CompletableFuture<>();
+        ExecutorsServiceImpl.resume(pool, () -> resumed.complete(Thread.currentThread().getName()));
+        assertTrue(resumed.get(1, TimeUnit.SECONDS).startsWith("flow-resume"));
+
+        // continuations of admitted flows do not need a permit
+        LimitedExecutorService limited = new LimitedExecutorService(Executors.newCachedThreadPool(), 1);
+        limited.execute(() -> { try { release.await(); } catch (InterruptedException ignored) {} });
+        CompletableFuture<Boolean> continued = new CompletableFuture<>();
+        ExecutorsServiceImpl.resume(limited, () -> continued.complete(ExecutorsServiceImpl.isFlowWorker()));
+        assertTrue(continued.get(1, TimeUnit.SECONDS));
+
+        release.countDown();
+        limited.shutdown();
+        assertTrue(executors.shutdown("job", Duration.ofSeconds(5)));
+    }
+}
@@ -0,0 +1,108 @@
+package scraper.services.impl;
+
+import org.junit.jupiter.api.Test;
+import scraper.api.service.impl.HostScheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HostSchedulerTest {
+
+    @Test
+    public void unlimitedRequestsStartImmediatelyTest() {
+        HostScheduler scheduler = new HostScheduler();
+        CompletableFuture<String> response = scheduler.submit("a", () -> CompletableFuture.completedFuture("ok"));
+        assertEquals("ok", response.join());
+        assertEquals(0, scheduler.getQueued());
+    }
+
+    @Test
+    public void rateIsLimitedPerHostTest() throws Exception {
+        HostScheduler scheduler = new HostScheduler();
+        scheduler.limit("*", 20, 1, 0);
+
+        long start = System.nanoTime();
+        List<CompletableFuture<Long>> responses = new ArrayList<>();
+        for (int i = 0; i < 5; i++)
+            responses.add(scheduler.submit("a", () -> CompletableFuture.completedFuture(System.nanoTime())));
+        // another host has an own bucket
+        CompletableFuture<Long> other = scheduler.submit("b", () -> CompletableFuture.completedFuture(System.nanoTime()));
+
+        assertTrue(responses.get(0).isDone());
+        assertTrue(other.isDone());
+        CompletableFuture.allOf(responses.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+
+        // one request per 50ms after the first one
+        long elapsed = responses.get(4).get() - start;
+        assertTrue(elapsed >= TimeUnit.MILLISECONDS.toNanos(150), "Elapsed " + elapsed);
+    }
+
+    @Test
+    public void concurrencyIsLimitedPerHostTest() {
+        HostScheduler scheduler = new HostScheduler();
+        scheduler.limit("a", 0, 1, 2);
+
+        List<CompletableFuture<String>> sent = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            scheduler.submit("a", () -> {
+                CompletableFuture<String> request = new CompletableFuture<>();
+                sent.add(request);
+                return request;
+            });
+        }
+
+        assertEquals(2, sent.size());
+        assertEquals(3, scheduler.getQueued());
+
+        sent.get(0).complete("done");
+        assertEquals(3, sent.size());
+        assertEquals(2, scheduler.getQueued());
+    }
+
+    @Test
+    public void queuedRequestsAreStartedRoundRobinTest() {
+        HostScheduler scheduler = new HostScheduler();
+        scheduler.limitConcurrent(1);
+
+        List<String> started = new ArrayList<>();
+        List<CompletableFuture<String>> sent = new ArrayList<>();
+        for (String host : List.of("a", "a", "a", "b")) {
+            scheduler.submit(host, () -> {
+                CompletableFuture<String> request = new CompletableFuture<>();
+                started.add(host);
+                sent.add(request);
+                return request;
+            });
+        }
+
+        for (int i = 0; i < 4; i++) sent.get(i).complete("done");
+        assertEquals(List.of("a", "a", "b", "a"), started);
+        assertEquals(0, scheduler.getQueued());
+    }
+
+    @Test
+    public void limitingAgainKeepsStricterLimitTest() {
+        HostScheduler scheduler = new HostScheduler();
+        scheduler.limit("*", 0, 1, 1);
+        scheduler.limit("*", 0, 1, 3);
+        scheduler.limitConcurrent(2);
+        scheduler.limitConcurrent(0);
+
+        List<CompletableFuture<String>> sent = new ArrayList<>();
+        for (String host : List.of("a", "a", "b", "c")) {
+            scheduler.submit(host, () -> {
+                CompletableFuture<String> request = new CompletableFuture<>();
+                sent.add(request);
+                return request;
+            });
+        }
+
+        // one request per host, two over all hosts
+        assertEquals(2, sent.size());
+        assertEquals(2, scheduler.getQueued());
+    }
+}
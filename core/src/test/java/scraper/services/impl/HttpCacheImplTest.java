@@ -0,0 +1,110 @@
+package scraper.services.impl;
+
+import org.junit.jupiter.api.Test;
+import scraper.api.service.HttpCache;
+import scraper.api.service.impl.HttpCacheImpl;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HttpCacheImplTest {
+
+    @Test
+    public void cachedResponsesTest() throws Exception {
+        HttpCache cache = new HttpCacheImpl();
+        String dir = Files.createTempDirectory("cache").toString();
+        String url = "https://example.org/" + "very-long-path/".repeat(100);
+
+        assertEquals(Optional.empty(), cache.get(dir, url, null));
+        cache.put(dir, url, "<html>\n</html>");
+        assertEquals(Optional.of("<html>\n</html>"), cache.get(dir, url, null));
+        // same directory with another path
+        assertEquals(Optional.of("<html>\n</html>"), cache.get(dir + "/.", url, 1000L));
+
+        cache.remove(dir, url);
+        assertEquals(Optional.empty(), cache.get(dir, url, null));
+    }
+
+    @Test
+    public void responsesCachedAsFilesAreImportedTest() throws Exception {
+        HttpCache cache = new HttpCacheImpl();
+        Path dir = Files.createTempDirectory("cache");
+        String url = "https://example.org/page";
+        Path legacy = dir.resolve(Base64.getUrlEncoder().encodeToString(url.getBytes()));
+        Files.writeString(legacy, "line\r\nline\n");
+
+        assertEquals(Optional.of("line\r\nline\n"), cache.get(dir.toString(), url, null));
+        assertFalse(Files.exists(legacy));
+        assertEquals(Optional.of("line\r\nline\n"), cache.get(dir.toString(), url, null));
+    }
+
+    @Test
+    public void responsesAreHeldInMemoryTest() throws Exception {
+        HttpCacheImpl cache = new HttpCacheImpl();
+        String dir = Files.createTempDirectory("cache").toString();
+        String url = "https://example.org/page";
+
+        cache.put(dir, url, "response");
+        assertEquals(Optional.of("response"), cache.get(dir, url, null));
+        assertEquals(1L, cache.getMemoryHits());
+
+        // read from disk after evicted from memory, then held in memory again
+        cache.setMemorySize(0);
+        cache.setMemorySize(1 << 20);
+        assertEquals(Optional.of("response"), cache.get(dir, url, null));
+        assertEquals(Optional.of("response"), cache.get(dir, url, 60_000L));
+        assertEquals(2L, cache.getMemoryHits());
+        assertEquals(1L, cache.getMemoryMisses());
+        assertEquals(1L, cache.getMemoryEvictions());
+
+        cache.remove(dir, url);
+        assertEquals(Optional.empty(), cache.get(dir, url, null));
+        assertEquals(0L, cache.getMemorySize());
+    }
+
+    @Test
+    public void responsesInMemoryAreCheckedOncePerCheckKeyTest() throws Exception {
+        HttpCacheImpl cache = new HttpCacheImpl();
+        String dir = Files.createTempDirectory("cache").toString();
+        String url = "https://example.org/page";
+        AtomicInteger checks = new AtomicInteger();
+
+        cache.put(dir, url, "response");
+        for (int i = 0; i < 3; i++) {
+            assertEquals(Optional.of("response"), cache.get(dir, url, null, List.of("captcha"), r -> checks.incrementAndGet() > 0));
+        }
+        assertEquals(1, checks.get());
+
+        // other rules check again, a replaced response is checked again
+        assertEquals(Optional.of("response"), cache.get(dir, url, null, List.of("denied"), r -> checks.incrementAndGet() > 0));
+        cache.put(dir, url, "replaced");
+        assertEquals(Optional.of("replaced"), cache.get(dir, url, null, List.of("denied"), r -> checks.incrementAndGet() > 0));
+        assertEquals(3, checks.get());
+
+        // a failing response is removed
+        assertEquals(Optional.empty(), cache.get(dir, url, null, List.of("replaced"), r -> false));
+        assertEquals(Optional.empty(), cache.get(dir, url, null));
+    }
+
+    @Test
+    public void closedCacheIsReadAfterReopenTest() throws Exception {
+        String dir = Files.createTempDirectory("cache").toString();
+        String url = "https://example.org/page";
+
+        HttpCacheImpl cache = new HttpCacheImpl();
+        cache.put(dir, url, "response");
+        cache.close();
+        // closing twice is harmless
+        cache.close();
+
+        try (HttpCacheImpl reopened = new HttpCacheImpl()) {
+            assertEquals(Optional.of("response"), reopened.get(dir, url, null));
+        }
+    }
+}
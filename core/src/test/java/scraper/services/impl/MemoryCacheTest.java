@@ -0,0 +1,72 @@
+package scraper.services.impl;
+
+import org.junit.jupiter.api.Test;
+import scraper.api.service.impl.cache.MemoryCache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MemoryCacheTest {
+
+    @Test
+    public void putGetRemoveTest() {
+        MemoryCache<String> cache = new MemoryCache<>(1 << 20);
+
+        assertNull(cache.get("a", null));
+        cache.put("a", "value", System.currentTimeMillis());
+        assertEquals("value", cache.get("a", null));
+        cache.put("a", "other", System.currentTimeMillis());
+        assertEquals("other", cache.get("a", null));
+
+        cache.remove("a");
+        assertNull(cache.get("a", null));
+        assertEquals(0L, cache.getSize());
+
+        assertEquals(2L, cache.getHits());
+        assertEquals(2L, cache.getMisses());
+    }
+
+    @Test
+    public void expiredValuesAreMissesTest() {
+        MemoryCache<String> cache = new MemoryCache<>(1 << 20);
+        cache.put("old", "value", System.currentTimeMillis() - 10_000);
+
+        assertEquals("value", cache.get("old", null));
+        assertEquals("value", cache.get("old", 60_000L));
+        assertNull(cache.get("old", 1_000L));
+        // expired values are removed
+        assertNull(cache.get("old", null));
+    }
+
+    @Test
+    public void leastRecentlyUsedValuesAreEvictedTest() {
+        // every stripe holds two values of 1000 chars
+        MemoryCache<Integer> cache = new MemoryCache<>(16 * 5000);
+        String value = "x".repeat(1000);
+
+        for (int i = 0; i < 1000; i++) {
+            // each key is missed once, then accessed again after it is loaded
+            assertNull(cache.get(i, null));
+            cache.put(i, value, System.currentTimeMillis());
+            cache.get(i, null);
+        }
+
+        // values accessed as often as the values they would evict are not admitted
+        assertTrue(cache.getRejections() > 900);
+        assertTrue(cache.getSize() <= 16 * 5000);
+
+        // a frequently accessed value evicts the least recently used value
+        for (int i = 0; i < 5; i++) assertNull(cache.get(-1, null));
+        cache.put(-1, value, System.currentTimeMillis());
+        assertEquals(value, cache.get(-1, null));
+        assertEquals(1L, cache.getEvictions());
+        assertTrue(cache.getSize() <= 16 * 5000);
+
+        // values larger than a stripe are not cached
+        cache.put(-2, "x".repeat(10_000), System.currentTimeMillis());
+        assertNull(cache.get(-2, null));
+
+        cache.setMaxSize(0);
+        assertEquals(0L, cache.getSize());
+        assertNull(cache.get(-1, null));
+    }
+}
@@ -0,0 +1,187 @@
+package scraper.services.impl;
+
+import org.junit.jupiter.api.Test;
+import scraper.api.service.impl.cache.SegmentStore;
+
+import java.io.IOException;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SegmentStoreTest {
+
+    /** Maintenance is run explicitly by the tests */
+    private final Executor noMaintenance = r -> {};
+
+    private SegmentStore open(Path dir, long segmentSize) throws IOException {
+        return SegmentStore.open(dir, segmentSize, noMaintenance);
+    }
+
+    @Test
+    public void putGetRemoveTest() throws Exception {
+        Path dir = Files.createTempDirectory("store");
+        try (SegmentStore store = open(dir, SegmentStore.DEFAULT_SEGMENT_SIZE)) {
+            assertEquals(Optional.empty(), store.get("http://a", null));
+
+            store.put("http://a", "first\r\nline");
+            store.put("http://b", "");
+            assertEquals(Optional.of("first\r\nline"), store.get("http://a", null));
+            assertEquals(Optional.of(""), store.get("http://b", null));
+
+            store.put("http://a", "second");
+            assertEquals(Optional.of("second"), store.get("http://a", null));
+            assertEquals(2, store.size());
+
+            assertTrue(store.remove("http://a"));
+            assertFalse(store.remove("http://a"));
+            assertEquals(Optional.empty(), store.get("http://a", null));
+        }
+    }
+
+    @Test
+    public void reopenedStoreIsIndexedAndCorruptTailIsCutTest() throws Exception {
+        Path dir = Files.createTempDirectory("store");
+        try (SegmentStore store = open(dir, SegmentStore.DEFAULT_SEGMENT_SIZE)) {
+            for (int i = 0; i < 100; i++) store.put("k" + i, "v" + i);
+            store.put("k1", "overwritten");
+            store.remove("k2");
+        }
+
+        // interrupted write at the end of every segment
+        for (Path segment : segments(dir))
+            Files.write(segment, new byte[]{0x5C, 0x4A, 0, 1, 0, 0}, StandardOpenOption.APPEND);
+
+        try (SegmentStore store = open(dir, SegmentStore.DEFAULT_SEGMENT_SIZE)) {
+            assertEquals(99, store.size());
+            assertEquals(Optional.of("v0"), store.get("k0", null));
+            assertEquals(Optional.of("overwritten"), store.get("k1", null));
+            assertEquals(Optional.empty(), store.get("k2", null));
+
+            store.put("k100", "v100");
+        }
+
+        try (SegmentStore store = open(dir, SegmentStore.DEFAULT_SEGMENT_SIZE)) {
+            assertEquals(Optional.of("v100"), store.get("k100", null));
+            assertEquals(Optional.of("v99"), store.get("k99", null));
+        }
+    }
+
+    @Test
+    public void expiredValuesAreRemovedTest() throws Exception {
+        Path dir = Files.createTempDirectory("store");
+        try (SegmentStore store = open(dir, SegmentStore.DEFAULT_SEGMENT_SIZE)) {
+            store.put("old", "value", System.currentTimeMillis() - 10_000);
+            store.put("new", "value");
+
+            assertEquals(Optional.of("value"), store.get("old", null));
+            assertEquals(Optional.empty(), store.get("old", 5_000L));
+            assertEquals(Optional.empty(), store.get("old", null));
+            assertEquals(Optional.of("value"), store.get("new", 5_000L));
+        }
+    }
+
+    @Test
+    public void compressedValuesTest() throws Exception {
+        String page = "<html>" + "<p>same paragraph</p>\n".repeat(1000) + "</html>";
+
+        Path plainDir = Files.createTempDirectory("store");
+        Path compressedDir = Files.createTempDirectory("store");
+        try (SegmentStore plain = open(plainDir, SegmentStore.DEFAULT_SEGMENT_SIZE);
+             SegmentStore compressed = open(compressedDir, SegmentStore.DEFAULT_SEGMENT_SIZE)) {
+            compressed.setCompression(true);
+            plain.put("page", page);
+            compressed.put("page", page);
+
+            assertEquals(Optional.of(page), compressed.get("page", null));
+            assertTrue(compressed.sizeOnDisk() * 10 < plain.sizeOnDisk());
+        }
+
+        try (SegmentStore compressed = open(compressedDir, SegmentStore.DEFAULT_SEGMENT_SIZE)) {
+            assertEquals(Optional.of(page), compressed.get("page", null));
+        }
+    }
+
+    @Test
+    public void compactionKeepsLiveValuesTest() throws Exception {
+        Path dir = Files.createTempDirectory("store");
+        try (SegmentStore store = open(dir, 4096)) {
+            for (int round = 0; round < 50; round++)
+                for (int i = 0; i < 20; i++) store.put("k" + i, "value " + i + " of round " + round);
+            for (int i = 0; i < 10; i++) store.remove("k" + i);
+
+            long before = store.sizeOnDisk();
+            store.maintain();
+            assertTrue(store.sizeOnDisk() < before / 2, store.sizeOnDisk() + " of " + before);
+
+            for (int i = 0; i < 10; i++) assertEquals(Optional.empty(), store.get("k" + i, null));
+            for (int i = 10; i < 20; i++) assertEquals(Optional.of("value " + i + " of round 49"), store.get("k" + i, null));
+        }
+
+        try (SegmentStore store = open(dir, 4096)) {
+            assertEquals(10, store.size());
+            for (int i = 0; i < 10; i++) assertEquals(Optional.empty(), store.get("k" + i, null));
+            for (int i = 10; i < 20; i++) assertEquals(Optional.of("value " + i + " of round 49"), store.get("k" + i, null));
+        }
+    }
+
+    @Test
+    public void oldestValuesAreEvictedTest() throws Exception {
+        Path dir = Files.createTempDirectory("store");
+        try (SegmentStore store = open(dir, 4096)) {
+            for (int i = 0; i < 2000; i++) store.put("k" + i, "value " + i);
+
+            store.setMaxSize(64 * 1024);
+            store.maintain();
+
+            assertTrue(store.sizeOnDisk() <= 64 * 1024);
+            assertEquals(Optional.empty(), store.get("k0", null));
+            assertEquals(Optional.of("value 1999"), store.get("k1999", null));
+            assertTrue(store.size() < 2000);
+        }
+    }
+
+    @Test
+    public void interruptedReaderDoesNotCloseStoreTest() throws Exception {
+        Path dir = Files.createTempDirectory("store");
+        try (SegmentStore store = open(dir, SegmentStore.DEFAULT_SEGMENT_SIZE)) {
+            store.put("k", "v");
+
+            // reading on an interrupted thread closes the file channel
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            Thread reader = new Thread(() -> {
+                Thread.currentThread().interrupt();
+                try {
+                    store.get("k", null);
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            });
+            reader.start();
+            reader.join();
+            assertTrue(failure.get() instanceof ClosedByInterruptException, String.valueOf(failure.get()));
+
+            assertEquals(Optional.of("v"), store.get("k", null));
+            store.put("k", "v2");
+            assertEquals(Optional.of("v2"), store.get("k", null));
+        }
+
+        try (SegmentStore store = open(dir, SegmentStore.DEFAULT_SEGMENT_SIZE)) {
+            assertEquals(Optional.of("v2"), store.get("k", null));
+        }
+    }
+
+    private static List<Path> segments(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            return files.filter(f -> f.toString().endsWith(".seg")).collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package scraper.services.impl;
+
+import org.junit.jupiter.api.Test;
+import scraper.api.service.impl.SingleFlight;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SingleFlightTest {
+
+    @Test
+    public void concurrentCallsShareOneCallTest() {
+        SingleFlight flight = new SingleFlight();
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<String> request = new CompletableFuture<>();
+
+        CompletableFuture<String> first = flight.run("a", () -> { calls.incrementAndGet(); return request; });
+        CompletableFuture<String> second = flight.run("a", () -> { calls.incrementAndGet(); return request; });
+        CompletableFuture<String> other = flight.run("b", () -> { calls.incrementAndGet(); return CompletableFuture.completedFuture("b"); });
+
+        assertEquals(2, calls.get());
+        assertEquals(1, flight.getInFlight());
+        assertEquals(1L, flight.getCoalesced());
+        assertEquals("b", other.join());
+
+        // a caller does not affect other callers
+        second.cancel(true);
+        request.complete("a");
+        assertEquals("a", first.join());
+        assertEquals(0, flight.getInFlight());
+
+        // completed calls are forgotten
+        assertEquals("again", flight.run("a", () -> CompletableFuture.completedFuture("again")).join());
+    }
+
+    @Test
+    public void failuresAreSharedTest() {
+        SingleFlight flight = new SingleFlight();
+        CompletableFuture<String> request = new CompletableFuture<>();
+
+        CompletableFuture<String> first = flight.run("a", () -> request);
+        CompletableFuture<String> second = flight.run("a", () -> request);
+        request.completeExceptionally(new IOException("failed"));
+
+        CompletionException e = assertThrows(CompletionException.class, first::join);
+        assertTrue(e.getCause() instanceof IOException);
+        e = assertThrows(CompletionException.class, second::join);
+        assertTrue(e.getCause() instanceof IOException);
+
+        // a call which fails to start is not in flight
+        CompletableFuture<String> failed = flight.run("b", () -> { throw new IllegalStateException(); });
+        assertTrue(failed.isCompletedExceptionally());
+        assertEquals(0, flight.getInFlight());
+    }
+}
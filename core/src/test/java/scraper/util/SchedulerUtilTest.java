@@ -0,0 +1,42 @@
+package scraper.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SchedulerUtilTest {
+
+    @Test
+    public void delayDoesNotBlockCallerTest() throws Exception {
+        long start = System.nanoTime();
+        CompletableFuture<Void> delayed = SchedulerUtil.delay(50);
+        assertFalse(delayed.isDone());
+
+        delayed.get(5, TimeUnit.SECONDS);
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+    }
+
+    @Test
+    public void noDelayCompletesImmediatelyTest() {
+        assertTrue(SchedulerUtil.delay(0).isDone());
+
+        AtomicReference<Thread> ran = new AtomicReference<>();
+        SchedulerUtil.schedule(() -> ran.set(Thread.currentThread()), 0);
+        assertEquals(Thread.currentThread(), ran.get());
+    }
+
+    @Test
+    public void scheduledActionRunsOnSchedulerTest() throws Exception {
+        CountDownLatch ran = new CountDownLatch(1);
+        AtomicReference<String> thread = new AtomicReference<>();
+        SchedulerUtil.schedule(() -> { thread.set(Thread.currentThread().getName()); ran.countDown(); }, 10);
+
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        assertEquals("scheduler", thread.get());
+    }
+}
@@ -0,0 +1,64 @@
+package scraper.util;
+
+import org.junit.jupiter.api.Test;
+import scraper.api.exceptions.TemplateException;
+import scraper.api.flow.FlowMap;
+import scraper.api.flow.impl.FlowMapImpl;
+import scraper.api.template.L;
+import scraper.api.template.T;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TemplateUtilTest {
+
+    @Test
+    public void plainKeyLookupEqualsParsedLookup() {
+        T<Object> parsed = new T<>(){};
+        parsed.setTerm(TemplateUtil.parseTemplate("{some key}", parsed));
+
+        T<Object> fast = TemplateUtil.templateOf("some key");
+        assertEquals(parsed.getTerm(), fast.getTerm());
+        assertEquals(parsed.getTerm().toString(), fast.getTerm().toString());
+    }
+
+    @Test
+    public void lookupsAreCached() {
+        T<Object> first = TemplateUtil.templateOf("cached");
+        T<Object> second = TemplateUtil.templateOf("cached");
+
+        // fresh tokens which share the parsed term
+        assertNotSame(first, second);
+        assertSame(first.getTerm(), second.getTerm());
+
+        L<Object> location = TemplateUtil.locationOf("cached");
+        assertSame(TemplateUtil.templateOf(location).getTerm(), TemplateUtil.templateOf(location).getTerm());
+    }
+
+    @Test
+    public void templateKeysAreParsed() {
+        FlowMap o = FlowMapImpl.origin(Map.of("a", "b", "b", 42, "m", Map.of("x", 1)));
+
+        assertEquals("b", o.eval(TemplateUtil.templateOf("a")));
+        assertEquals(42, (int) o.eval(TemplateUtil.<Integer>templateOf("{a}")));
+        assertEquals(1, (int) o.eval(TemplateUtil.<Integer>templateOf("{m}@x")));
+    }
+
+    @Test
+    public void missingKeyStillFails() {
+        FlowMap o = FlowMapImpl.origin(Map.of());
+        assertThrows(TemplateException.class, () -> o.eval(TemplateUtil.templateOf("missing")));
+        assertTrue(o.evalMaybe(TemplateUtil.templateOf("missing")).isEmpty());
+    }
+
+    @Test
+    public void cacheIsBounded() {
+        for (int i = 0; i < TemplateUtil.MAX_CACHED_LOOKUPS * 2; i++) {
+            TemplateUtil.templateOf("dynamic" + i);
+        }
+
+        FlowMap o = FlowMapImpl.origin(Map.of("dynamic1", 1));
+        assertEquals(1, (int) o.eval(TemplateUtil.<Integer>templateOf("dynamic1")));
+    }
+}
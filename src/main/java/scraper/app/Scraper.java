@@ -15,12 +15,18 @@ import scraper.api.plugin.ScrapeSpecificationParser;
 import scraper.api.service.ExecutorsService;
 import scraper.api.specification.ScrapeInstance;
 import scraper.api.specification.ScrapeSpecification;
+import scraper.api.specification.impl.ScrapeInstaceImpl;
+import scraper.core.AbstractNode;
+import scraper.core.FlowTracker;
 import scraper.core.JobFactory;
 import scraper.utils.StringUtil;
 
 import java.io.File;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import static java.lang.System.Logger.Level.*;
@@ -34,6 +40,9 @@ public class Scraper {
     private @NotNull
     static final System.Logger log = System.getLogger("Scraper");
 
+    /** Time running flows get to finish once a job completed or drained */
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(30);
+
     // dependencies
     private @NotNull
     final JobFactory jobFactory;
@@ -59,6 +68,9 @@ public class Scraper {
     // specifications and instantiations
     private @NotNull
     final Map<ScrapeSpecification, ScrapeInstance> jobs = new LinkedHashMap<>();
+    // flows of jobs which are not tracked by the instance
+    private @NotNull
+    final Map<ScrapeInstance, FlowTracker> untrackedFlows = new ConcurrentHashMap<>();
 
     public Scraper(@NotNull JobFactory jobFactory, @NotNull ExecutorsService executorsService,
                    @NotNull @DITarget(Hook.class) Collection<Hook> hooks,
@@ -187,22 +199,36 @@ public class Scraper {
         log.log(TRACE, "--------------------------------------------------------");
         log.log(TRACE, "--- Starting Main Threads");
         log.log(TRACE, "--------------------------------------------------------");
+        // on exit, jobs configured to drain finish their flows, all other jobs are stopped
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdownExecutors, "executors-shutdown"));
+
         List<CompletableFuture<FlowMap>>  futures = new ArrayList<>();
         jobs.forEach((definition, job) -> {
+            FlowTracker flows = flowsOf(job);
+            // the main flow keeps the job running until the entry node returns
+            flows.started();
             CompletableFuture<FlowMap> future = CompletableFuture.supplyAsync(() -> {
                 try {
-                    FlowMap initial = FlowMapImpl.origin(job.getEntryArguments());
+                    FlowMap initial = (job instanceof ScrapeInstaceImpl
+                            ? ((ScrapeInstaceImpl) job).createOrigin()
+                            : FlowMapImpl.origin(job.getEntryArguments()));
                     Optional<NodeContainer<? extends Node>> entry = job.getEntry();
                     if(entry.isEmpty()) {
                         log.log(WARNING, "Job has no entry node: {0}", job.getName());
                     } else {
                         NodeContainer<? extends Node> initialNode = entry.get();
-                        initialNode.getC().accept(initialNode, initial);
+                        // the flow executor also records metrics of the entry node
+                        if(initialNode instanceof AbstractNode)
+                            ((AbstractNode<?>) initialNode).getFlowExecutor().run(initialNode, initial);
+                        else
+                            initialNode.getC().accept(initialNode, initial);
                     }
 
                     return initial;
                 } catch (Exception e) {
                     throw new RuntimeException(e);
+                } finally {
+                    flows.finished();
                 }
             }, executorsService.getService(definition.getName(), "main", 1));
 
@@ -215,6 +241,108 @@ public class Scraper {
         });
 
         futures.forEach(CompletableFuture::join);
+
+        // forked flows outlive the main flow, each job is complete once all of its flows terminated
+        List<Thread> completions = new ArrayList<>();
+        for (ScrapeInstance job : jobs.values()) {
+            Thread completion = new Thread(() -> awaitCompletion(job), job.getName() + "-completion");
+            completion.start();
+            completions.add(completion);
+        }
+
+        try {
+            for (Thread completion : completions) completion.join();
+        } catch (InterruptedException e) {
+            completions.forEach(Thread::interrupt);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Waits until no flow of the job is running or queued, then stops its executors */
+    private void awaitCompletion(@NotNull ScrapeInstance job) {
+        FlowTracker flows = flowsOf(job);
+        try {
+            flows.awaitQuiescence();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        Instant started = flows.getFirstStarted(), quiescent = flows.getLastQuiescent();
+        if(started != null && quiescent != null)
+            log.log(INFO, "{0} completed {1} flows in {2}", job.getName(), flows.getTotal(), Duration.between(started, quiescent));
+        else
+            log.log(INFO, "{0} completed {1} flows", job.getName(), flows.getTotal());
+        shutdownExecutors(job);
+    }
+
+    /** Drains jobs configured to drain and stops their executors, the executors of all other jobs are stopped at once */
+    private void shutdownExecutors() {
+        List<ScrapeInstance> draining = new ArrayList<>();
+        Set<String> drainingNames = new HashSet<>();
+        for (ScrapeInstance job : jobs.values()) {
+            if(drainTimeoutOf(job).isZero()) continue;
+            draining.add(job);
+            drainingNames.addAll(executorNames(job));
+        }
+
+        // flows of jobs without drain timeout are not waited for
+        for (ScrapeInstance job : jobs.values()) {
+            if(draining.contains(job)) continue;
+            executorNames(job).stream()
+                    .filter(name -> !drainingNames.contains(name))
+                    .forEach(executorsService::shutdownNow);
+        }
+
+        for (ScrapeInstance job : draining) {
+            Duration drainTimeout = drainTimeoutOf(job);
+            FlowTracker flows = flowsOf(job);
+            flows.drain();
+            log.log(INFO, "Draining {0} flows of {1}", flows.getInFlight(), job.getName());
+            try {
+                if(!flows.awaitQuiescence(drainTimeout))
+                    log.log(WARNING, "{0} flows of {1} did not drain within {2}", flows.getInFlight(), job.getName(), drainTimeout);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+
+        for (ScrapeInstance job : draining) {
+            if(!shutdownExecutors(job)) return;
+        }
+    }
+
+    /** Stops the executors of the job and its imports, false if interrupted */
+    private boolean shutdownExecutors(@NotNull ScrapeInstance job) {
+        for (String name : executorNames(job)) {
+            try {
+                if(!executorsService.shutdown(name, SHUTDOWN_TIMEOUT))
+                    log.log(WARNING, "Flows of {0} did not finish within {1}", name, SHUTDOWN_TIMEOUT);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Names of the job and its imports the executors are grouped by */
+    private static Set<String> executorNames(@NotNull ScrapeInstance job) {
+        Set<String> names = new LinkedHashSet<>();
+        names.add(job.getName());
+        job.getImportedInstances().values().forEach(i -> names.add(i.getName()));
+        return names;
+    }
+
+    private static Duration drainTimeoutOf(@NotNull ScrapeInstance job) {
+        return (job instanceof ScrapeInstaceImpl ? ((ScrapeInstaceImpl) job).getDrainTimeout() : Duration.ZERO);
+    }
+
+    /** Flows of the job, jobs which do not track their flows get one tracker for the whole run */
+    private FlowTracker flowsOf(@NotNull ScrapeInstance job) {
+        if(job instanceof ScrapeInstaceImpl) return ((ScrapeInstaceImpl) job).getFlows();
+        return untrackedFlows.computeIfAbsent(job, j -> new FlowTracker());
     }
 
 }
@@ -0,0 +1,24 @@
+package scraper.nodes.test;
+
+
+import scraper.annotations.NotNull;
+import scraper.annotations.node.FlowKey;
+import scraper.annotations.node.NodePlugin;
+import scraper.api.flow.FlowMap;
+import scraper.api.node.container.NodeContainer;
+import scraper.api.node.type.AsyncNode;
+import scraper.api.node.type.Node;
+import scraper.util.SchedulerUtil;
+
+import java.util.concurrent.CompletableFuture;
+
+@NodePlugin
+public class AsyncSleep implements AsyncNode {
+    private @FlowKey(mandatory = true) Integer sleep;
+
+    @NotNull
+    @Override
+    public CompletableFuture<FlowMap> processAsync(@NotNull NodeContainer<? extends Node> n, @NotNull FlowMap o) {
+        return SchedulerUtil.delay(sleep).thenApply(v -> o);
+    }
+}
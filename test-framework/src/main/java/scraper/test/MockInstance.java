@@ -10,6 +10,7 @@ import scraper.api.node.type.Node;
 import scraper.api.plugin.NodeHook;
 import scraper.api.service.ExecutorsService;
 import scraper.api.service.FileService;
+import scraper.api.service.HttpCache;
 import scraper.api.service.HttpService;
 import scraper.api.service.ProxyReservation;
 import scraper.api.specification.ScrapeInstance;
@@ -42,6 +43,7 @@ public class MockInstance implements ScrapeInstance {
     @Override public ExecutorsService getExecutors() { throw new IllegalStateException("Functional node called service"); }
     @NotNull
     @Override public HttpService getHttpService() { throw new IllegalStateException("Functional node called service"); }
+    @Override public HttpCache getHttpCache() { throw new IllegalStateException("Functional node called service"); }
     @NotNull
     @Override public ProxyReservation getProxyReservation() { throw new IllegalStateException("Functional node called service"); }
     @NotNull